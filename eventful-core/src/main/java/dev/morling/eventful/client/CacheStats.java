@@ -0,0 +1,9 @@
+package dev.morling.eventful.client;
+
+public record CacheStats(long hits, long misses, long evictions, int size, long weight) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,190 @@
+package dev.morling.eventful.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.EventStore;
+
+/**
+ * Keeps rehydrated aggregates of one stream type in a bounded LRU cache in
+ * front of an event store. Events persisted through this repository are
+ * applied to the cached aggregate once they have been committed, instead of
+ * evicting it. All writes to the stream type must go through this repository
+ * (or be followed by {@link #invalidate(UUID)}) for the cache to stay current.
+ * <p>
+ * As aggregates are mutable, {@link #load(UUID)} returns a copy created by the
+ * given copier; pass {@link UnaryOperator#identity()} for immutable aggregates.
+ */
+public class CachingAggregateRepository<T> {
+
+    private final EventStore eventStore;
+    private final String streamType;
+    private final EventHandler<T> eventHandler;
+    private final UnaryOperator<T> copier;
+    private final ToLongFunction<T> weigher;
+    private final int maxEntries;
+    private final long maxWeight;
+    private final Projector projector;
+
+    private final LinkedHashMap<UUID, Entry<T>> entries;
+    private long weight;
+
+    // incremented whenever an event for a non-cached aggregate got committed;
+    // misses don't cache their result if this changed while they were loading
+    private long writeStamp;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static class Entry<T> {
+        T aggregate;
+        long version;
+        long weight;
+
+        Entry(T aggregate, long version, long weight) {
+            this.aggregate = aggregate;
+            this.version = version;
+            this.weight = weight;
+        }
+    }
+
+    public CachingAggregateRepository(EventStore eventStore, String streamType, EventHandler<T> eventHandler, UnaryOperator<T> copier, int maxEntries) {
+        this(eventStore, streamType, eventHandler, copier, aggregate -> 1, maxEntries, Long.MAX_VALUE);
+    }
+
+    public CachingAggregateRepository(EventStore eventStore, String streamType, EventHandler<T> eventHandler, UnaryOperator<T> copier,
+                                      ToLongFunction<T> weigher, int maxEntries, long maxWeight) {
+        if (maxEntries < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("Maximum number of entries and maximum weight must be larger than 0");
+        }
+
+        this.eventStore = eventStore;
+        this.streamType = streamType;
+        this.eventHandler = eventHandler;
+        this.copier = copier;
+        this.weigher = weigher;
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        this.projector = new Projector();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a copy of the given aggregate, or {@code null} if there are no
+     * events for it.
+     */
+    public T load(UUID aggregateId) {
+        long stamp;
+
+        synchronized (this) {
+            Entry<T> entry = entries.get(aggregateId);
+            if (entry != null) {
+                hits.increment();
+                return copier.apply(entry.aggregate);
+            }
+
+            misses.increment();
+            stamp = writeStamp;
+        }
+
+        List<Event> events = eventStore.events(streamType, aggregateId);
+        if (events.isEmpty()) {
+            return null;
+        }
+
+        T aggregate = projector.restore(events, eventHandler);
+        long version = events.get(events.size() - 1).version();
+        T copy = copier.apply(aggregate);
+
+        synchronized (this) {
+            if (stamp == writeStamp) {
+                Entry<T> existing = entries.get(aggregateId);
+                if (existing == null) {
+                    Entry<T> entry = new Entry<>(aggregate, version, weigher.applyAsLong(aggregate));
+                    entries.put(aggregateId, entry);
+                    weight += entry.weight;
+                    evictIfNeeded();
+                }
+            }
+        }
+
+        return copy;
+    }
+
+    public Future<Void> persist(Event event) {
+        Future<Void> result = eventStore.persist(streamType, event);
+
+        if (result instanceof CompletableFuture<Void> completable) {
+            return completable.thenRun(() -> onCommitted(event));
+        }
+        else {
+            invalidate(event.aggregateId());
+            return result;
+        }
+    }
+
+    public synchronized void invalidate(UUID aggregateId) {
+        Entry<T> entry = entries.remove(aggregateId);
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+        writeStamp++;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        weight = 0;
+        writeStamp++;
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), entries.size(), weight);
+    }
+
+    private synchronized void onCommitted(Event event) {
+        Entry<T> entry = entries.get(event.aggregateId());
+
+        if (entry == null) {
+            writeStamp++;
+        }
+        else if (entry.version == event.version() - 1) {
+            try {
+                entry.aggregate = eventHandler.apply(entry.aggregate, event);
+                entry.version = event.version();
+
+                long newWeight = weigher.applyAsLong(entry.aggregate);
+                weight += newWeight - entry.weight;
+                entry.weight = newWeight;
+
+                evictIfNeeded();
+            }
+            catch (RuntimeException e) {
+                invalidate(event.aggregateId());
+            }
+        }
+        else {
+            invalidate(event.aggregateId());
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<UUID, Entry<T>>> it = entries.entrySet().iterator();
+
+        while ((entries.size() > maxEntries || weight > maxWeight) && it.hasNext()) {
+            Entry<T> eldest = it.next().getValue();
+            it.remove();
+            weight -= eldest.weight;
+            evictions.increment();
+        }
+    }
+}
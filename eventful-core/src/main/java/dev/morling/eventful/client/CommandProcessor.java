@@ -0,0 +1,351 @@
+package dev.morling.eventful.client;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.EventStore;
+
+/**
+ * Handles the commands of one stream type, routing all the commands for one
+ * aggregate to the same single-threaded mailbox. Each mailbox keeps the live
+ * state of its aggregates in memory, so commands are handled without reading
+ * and replaying the aggregate's events first, and as there is only one writer
+ * per aggregate, there are no version conflicts. All writes to the stream type
+ * must go through one processor for this to hold.
+ * <p>
+ * A mailbox takes all the commands queued up while it was persisting the
+ * previous batch, handles them one after another, and persists the resulting
+ * events with one {@link EventStore#persistAll(String, List)} call per
+ * aggregate, issuing all of them before waiting for the first one, so that the
+ * store can commit them together. The futures of the commands complete once
+ * the events of their aggregate have been committed; if that fails, e.g. due
+ * to a version conflict after a write bypassing this processor, only the
+ * commands of that aggregate fail, and it is reloaded from the store for its
+ * next command.
+ * <p>
+ * Following the aggregates of this code base, a command handles a copy of the
+ * aggregate created by the given copier, applying the state change to that
+ * copy itself; the copy becomes the live state once its event has been
+ * committed. Creation commands get {@code null} and the aggregate is
+ * initialized from their event by the event handler. Commands failing with an
+ * exception don't change the aggregate.
+ * <p>
+ * Closing the processor rejects new commands and lets each mailbox finish the
+ * batch it is handling; commands still queued up at that point fail.
+ */
+public class CommandProcessor<T> implements AutoCloseable {
+
+    private static final int MAX_BATCH_SIZE = 1_000;
+
+    private final EventStore eventStore;
+    private final String streamType;
+    private final EventHandler<T> eventHandler;
+    private final UnaryOperator<T> copier;
+    private final Executor completionExecutor;
+    private final List<Mailbox> mailboxes;
+    private final Projector projector;
+
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+
+    // guards against enqueueing commands after close() has drained the mailboxes
+    private final ReadWriteLock lifecycleLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+
+    private record Request<T>(UUID aggregateId, Function<T, CommandResult> command, CompletableFuture<T> future) {
+    }
+
+    /**
+     * The commands of one batch for one aggregate, with their events and the
+     * aggregate's state after them, persisted as one unit.
+     */
+    private static class Update<T> {
+
+        private final List<Request<T>> requests = new ArrayList<>();
+        private final List<Event> events = new ArrayList<>();
+        private final List<T> results = new ArrayList<>();
+        private T state;
+        private Future<Void> result;
+    }
+
+    /**
+     * Creates a processor completing the futures of the commands on the common
+     * fork-join pool.
+     *
+     * @param mailboxes the number of mailboxes, each with its own thread
+     * @param maxAggregates the maximum number of aggregates kept in memory; the
+     *        least recently used ones are reloaded from the store when needed
+     */
+    public CommandProcessor(EventStore eventStore, String streamType, EventHandler<T> eventHandler, UnaryOperator<T> copier, int mailboxes,
+                            int maxAggregates) {
+        this(eventStore, streamType, eventHandler, copier, mailboxes, maxAggregates, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param mailboxes the number of mailboxes, each with its own thread
+     * @param maxAggregates the maximum number of aggregates kept in memory; the
+     *        least recently used ones are reloaded from the store when needed
+     * @param completionExecutor the executor completing the futures of the
+     *        commands, so that dependent actions don't hold up the mailboxes
+     */
+    public CommandProcessor(EventStore eventStore, String streamType, EventHandler<T> eventHandler, UnaryOperator<T> copier, int mailboxes,
+                            int maxAggregates, Executor completionExecutor) {
+        if (mailboxes < 1 || maxAggregates < mailboxes) {
+            throw new IllegalArgumentException("Number of mailboxes must be larger than 0, maximum number of aggregates at least the number of mailboxes");
+        }
+
+        this.eventStore = eventStore;
+        this.streamType = streamType;
+        this.eventHandler = eventHandler;
+        this.copier = copier;
+        this.completionExecutor = completionExecutor;
+        this.projector = new Projector();
+        this.mailboxes = new ArrayList<>(mailboxes);
+        this.running = true;
+
+        for (int i = 0; i < mailboxes; i++) {
+            Mailbox mailbox = new Mailbox(i, maxAggregates / mailboxes);
+            this.mailboxes.add(mailbox);
+            mailbox.thread.start();
+        }
+    }
+
+    /**
+     * Handles the given command with the current state of the given aggregate,
+     * {@code null} if it doesn't exist yet. Returns a future with a copy of
+     * the aggregate after the command, completing once its event has been
+     * committed. The future completes on a thread of the completion executor
+     * rather than on the mailbox's thread.
+     */
+    public CompletableFuture<T> submit(UUID aggregateId, Function<T, CommandResult> command) {
+        lifecycleLock.readLock().lock();
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Command processor is stopped already"));
+            }
+
+            CompletableFuture<T> future = new CompletableFuture<>();
+            mailboxes.get(Math.floorMod(aggregateId.hashCode(), mailboxes.size())).queue.add(new Request<>(aggregateId, command, future));
+
+            return future;
+        }
+        finally {
+            lifecycleLock.readLock().unlock();
+        }
+    }
+
+    public CommandProcessorStats stats() {
+        return new CommandProcessorStats(commands.sum(), batches.sum(), loads.sum());
+    }
+
+    @Override
+    public void close() {
+        lifecycleLock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        finally {
+            lifecycleLock.writeLock().unlock();
+        }
+
+        // not interrupting the threads, as they may be waiting for a batch to be committed
+        for (Mailbox mailbox : mailboxes) {
+            mailbox.queue.add(mailbox.stop);
+        }
+
+        for (Mailbox mailbox : mailboxes) {
+            try {
+                mailbox.thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            List<Request<T>> pending = new ArrayList<>();
+            mailbox.queue.drainTo(pending);
+            pending.remove(mailbox.stop);
+            for (Request<T> request : pending) {
+                request.future().completeExceptionally(new IllegalStateException("Command processor is stopped already"));
+            }
+        }
+    }
+
+    /**
+     * A queue of commands and the aggregates they apply to; only accessed by
+     * the mailbox's thread, apart from enqueueing.
+     */
+    private class Mailbox {
+
+        private final BlockingQueue<Request<T>> queue;
+        private final LinkedHashMap<UUID, T> aggregates;
+        private final Thread thread;
+        // enqueued by close() to wake up the mailbox's thread
+        private final Request<T> stop;
+
+        Mailbox(int index, int maxAggregates) {
+            this.queue = new LinkedBlockingQueue<>();
+            this.stop = new Request<>(null, null, null);
+            this.aggregates = new LinkedHashMap<>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, T> eldest) {
+                    return size() > maxAggregates;
+                }
+            };
+            this.thread = new Thread(this::run, "eventful-mailbox-" + streamType + "-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private void run() {
+            List<Request<T>> requests = new ArrayList<>();
+
+            while (running) {
+                try {
+                    requests.add(queue.take());
+                }
+                catch (InterruptedException e) {
+                    break;
+                }
+
+                queue.drainTo(requests, MAX_BATCH_SIZE - 1);
+                requests.remove(stop);
+                if (!requests.isEmpty()) {
+                    process(requests);
+                    requests.clear();
+                }
+            }
+        }
+
+        private void process(List<Request<T>> requests) {
+            // the commands per aggregate, with the state after them, not committed yet
+            Map<UUID, Update<T>> updates = new LinkedHashMap<>();
+
+            for (Request<T> request : requests) {
+                try {
+                    Update<T> update = updates.get(request.aggregateId());
+                    T aggregate = update != null ? update.state : load(request.aggregateId());
+                    T copy = aggregate != null ? copier.apply(aggregate) : null;
+
+                    Event event = request.command().apply(copy).event();
+                    T updated = copy != null ? copy : projector.initialize(event, eventHandler);
+
+                    if (update == null) {
+                        update = new Update<>();
+                        updates.put(request.aggregateId(), update);
+                    }
+                    update.state = updated;
+                    update.events.add(event);
+                    update.requests.add(request);
+                    update.results.add(copier.apply(updated));
+                }
+                catch (RuntimeException e) {
+                    fail(request, e);
+                }
+            }
+
+            commands.add(requests.size());
+
+            if (updates.isEmpty()) {
+                return;
+            }
+
+            for (Update<T> update : updates.values()) {
+                try {
+                    update.result = eventStore.persistAll(streamType, update.events);
+                }
+                catch (RuntimeException e) {
+                    update.result = CompletableFuture.failedFuture(e);
+                }
+            }
+
+            boolean committed = false;
+
+            for (Map.Entry<UUID, Update<T>> entry : updates.entrySet()) {
+                Update<T> update = entry.getValue();
+
+                try {
+                    update.result.get();
+                }
+                catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+
+                    // the live state may be stale, e.g. after a write bypassing this processor
+                    aggregates.remove(entry.getKey());
+                    for (Request<T> request : update.requests) {
+                        fail(request, cause);
+                    }
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                    }
+                    continue;
+                }
+
+                committed = true;
+                aggregates.put(entry.getKey(), update.state);
+
+                for (int i = 0; i < update.requests.size(); i++) {
+                    complete(update.requests.get(i), update.results.get(i));
+                }
+            }
+
+            if (committed) {
+                batches.increment();
+            }
+        }
+
+        private void complete(Request<T> request, T result) {
+            try {
+                request.future().completeAsync(() -> result, completionExecutor);
+            }
+            catch (RejectedExecutionException e) {
+                request.future().complete(result);
+            }
+        }
+
+        private void fail(Request<T> request, Throwable cause) {
+            try {
+                completionExecutor.execute(() -> request.future().completeExceptionally(cause));
+            }
+            catch (RejectedExecutionException e) {
+                request.future().completeExceptionally(cause);
+            }
+        }
+
+        private T load(UUID aggregateId) {
+            T aggregate = aggregates.get(aggregateId);
+
+            if (aggregate == null) {
+                loads.increment();
+                List<Event> events = eventStore.events(streamType, aggregateId);
+                aggregate = events.isEmpty() ? null : projector.restore(events, eventHandler);
+
+                if (aggregate != null) {
+                    aggregates.put(aggregateId, aggregate);
+                }
+            }
+
+            return aggregate;
+        }
+    }
+}
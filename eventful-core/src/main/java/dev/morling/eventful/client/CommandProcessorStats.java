@@ -0,0 +1,13 @@
+package dev.morling.eventful.client;
+
+/**
+ * @param commands the number of handled commands, including failed ones
+ * @param batches the number of committed batches
+ * @param loads the number of aggregates loaded from the store
+ */
+public record CommandProcessorStats(long commands, long batches, long loads) {
+
+    public double commandsPerBatch() {
+        return batches == 0 ? 0.0 : (double) commands / batches;
+    }
+}
@@ -0,0 +1,77 @@
+package dev.morling.eventful.client;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import dev.morling.eventful.store.Event;
+
+/**
+ * An event handler dispatching to the handlers registered for the individual
+ * event types of one stream type, e.g.:
+ *
+ * <pre>
+ * EventHandler&lt;Customer&gt; handler = DispatchingEventHandler.&lt;Customer&gt; builder("customer")
+ *         .on("created", NAME, (customer, event, name) -&gt; new Customer(event.aggregateId(), 1, name, new ArrayList&lt;&gt;()))
+ *         .on("contact-person-added", ContactPerson.class, (customer, event, contactPerson) -&gt; ...)
+ *         .build();
+ * </pre>
+ *
+ * Payloads are bound with a {@link FieldBinder} or read into a type via the
+ * shared {@link ObjectReaders}. Instances are immutable and thread-safe, so
+ * one handler can be shared by all callers.
+ */
+public class DispatchingEventHandler<T> implements EventHandler<T> {
+
+    private final String streamType;
+    private final Map<String, EventHandler<T>> handlers;
+
+    private DispatchingEventHandler(String streamType, Map<String, EventHandler<T>> handlers) {
+        this.streamType = streamType;
+        this.handlers = Map.copyOf(handlers);
+    }
+
+    public static <T> Builder<T> builder(String streamType) {
+        return new Builder<>(streamType);
+    }
+
+    @Override
+    public T apply(T aggregate, Event event) {
+        EventHandler<T> handler = handlers.get(event.type());
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Unsupported event type %s for stream of type %s".formatted(event.type(), streamType));
+        }
+
+        return handler.apply(aggregate, event);
+    }
+
+    public static class Builder<T> {
+
+        private final String streamType;
+        private final Map<String, EventHandler<T>> handlers = new HashMap<>();
+
+        private Builder(String streamType) {
+            this.streamType = streamType;
+        }
+
+        public Builder<T> on(String eventType, EventHandler<T> handler) {
+            if (handlers.putIfAbsent(eventType, handler) != null) {
+                throw new IllegalArgumentException("A handler for event type %s has been registered already".formatted(eventType));
+            }
+
+            return this;
+        }
+
+        public <P> Builder<T> on(String eventType, Class<P> payloadType, PayloadHandler<T, P> handler) {
+            return on(eventType, (aggregate, event) -> handler.apply(aggregate, event, ObjectReaders.readPayload(event, payloadType)));
+        }
+
+        public <P> Builder<T> on(String eventType, FieldBinder<P> binder, PayloadHandler<T, P> handler) {
+            return on(eventType, (aggregate, event) -> handler.apply(aggregate, event, binder.bind(event)));
+        }
+
+        public DispatchingEventHandler<T> build() {
+            return new DispatchingEventHandler<>(streamType, handlers);
+        }
+    }
+}
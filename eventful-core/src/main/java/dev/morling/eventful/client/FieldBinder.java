@@ -0,0 +1,177 @@
+package dev.morling.eventful.client;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import dev.morling.eventful.codec.PayloadCodecs;
+import dev.morling.eventful.store.Event;
+
+/**
+ * Binds the declared top-level fields of an event payload to a value, e.g.:
+ *
+ * <pre>
+ * FieldBinder&lt;ContactPerson&gt; binder = FieldBinder.fields("email", "name")
+ *         .to(values -&gt; new ContactPerson(values.string(0), values.string(1)));
+ * </pre>
+ *
+ * JSON payloads are read with a streaming parser, without building a tree;
+ * undeclared fields are skipped and parsing stops as soon as all declared
+ * fields have been seen. Payloads of other codecs are decoded into a tree.
+ * Binders are immutable and thread-safe.
+ */
+public final class FieldBinder<P> {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final String[] fields;
+    private final Function<FieldValues, P> factory;
+
+    private FieldBinder(String[] fields, Function<FieldValues, P> factory) {
+        this.fields = fields;
+        this.factory = factory;
+    }
+
+    public static Fields fields(String... fields) {
+        if (fields.length == 0 || fields.length > Long.SIZE) {
+            throw new IllegalArgumentException("Between 1 and %s fields must be declared".formatted(Long.SIZE));
+        }
+        if (Arrays.stream(fields).distinct().count() != fields.length) {
+            throw new IllegalArgumentException("Fields must be unique: " + Arrays.toString(fields));
+        }
+
+        return new Fields(fields.clone());
+    }
+
+    public P bind(Event event) {
+        String[] values = event.codec() == PayloadCodecs.JSON_ID ? parse(event) : fromTree(event, event.payload(JsonNode.class));
+        return factory.apply(new FieldValues(fields, values));
+    }
+
+    private String[] parse(Event event) {
+        String[] values = new String[fields.length];
+        long pending = fields.length == Long.SIZE ? -1L : (1L << fields.length) - 1;
+
+        try (JsonParser parser = FACTORY.createParser(event.data())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Payload of event %s isn't an object".formatted(event.id()));
+            }
+
+            while (pending != 0 && parser.nextToken() == JsonToken.FIELD_NAME) {
+                int index = indexOf(parser.currentName());
+                JsonToken token = parser.nextToken();
+
+                if (index == -1) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (token.isStructStart()) {
+                    throw new IllegalArgumentException("Field %s of event %s isn't a scalar value".formatted(fields[index], event.id()));
+                }
+
+                values[index] = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                pending &= ~(1L << index);
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Couldn't deserialize event %s".formatted(event.id()), e);
+        }
+
+        return values;
+    }
+
+    private String[] fromTree(Event event, JsonNode payload) {
+        String[] values = new String[fields.length];
+
+        for (int i = 0; i < fields.length; i++) {
+            JsonNode value = payload.get(fields[i]);
+
+            if (value != null && value.isContainerNode()) {
+                throw new IllegalArgumentException("Field %s of event %s isn't a scalar value".formatted(fields[i], event.id()));
+            }
+
+            values[i] = value == null || value.isNull() ? null : value.asText();
+        }
+
+        return values;
+    }
+
+    private int indexOf(String field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * The declared fields of a binder, to be completed with a factory creating
+     * the bound value.
+     */
+    public static final class Fields {
+
+        private final String[] fields;
+
+        private Fields(String[] fields) {
+            this.fields = fields;
+        }
+
+        public <P> FieldBinder<P> to(Function<FieldValues, P> factory) {
+            return new FieldBinder<>(fields, factory);
+        }
+    }
+
+    /**
+     * The values of the declared fields, in declaration order. Values of missing
+     * and null fields are {@code null}.
+     */
+    public static final class FieldValues {
+
+        private final String[] fields;
+        private final String[] values;
+
+        private FieldValues(String[] fields, String[] values) {
+            this.fields = fields;
+            this.values = values;
+        }
+
+        public boolean isNull(int index) {
+            return values[index] == null;
+        }
+
+        public String string(int index) {
+            return values[index];
+        }
+
+        public long longValue(int index) {
+            return Long.parseLong(nonNull(index));
+        }
+
+        public int intValue(int index) {
+            return Integer.parseInt(nonNull(index));
+        }
+
+        public double doubleValue(int index) {
+            return Double.parseDouble(nonNull(index));
+        }
+
+        public boolean booleanValue(int index) {
+            return Boolean.parseBoolean(nonNull(index));
+        }
+
+        private String nonNull(int index) {
+            if (values[index] == null) {
+                throw new IllegalArgumentException("Field %s has no value".formatted(fields[index]));
+            }
+
+            return values[index];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dev.morling.eventful.client;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+public class JacksonSnapshotSerializer<T> implements SnapshotSerializer<T> {
+
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    public JacksonSnapshotSerializer(Class<T> aggregateType) {
+        this(new ObjectMapper(), aggregateType);
+    }
+
+    public JacksonSnapshotSerializer(ObjectMapper mapper, Class<T> aggregateType) {
+        this.reader = mapper.readerFor(aggregateType);
+        this.writer = mapper.writerFor(aggregateType);
+    }
+
+    @Override
+    public byte[] serialize(T aggregate) {
+        try {
+            return writer.writeValueAsBytes(aggregate);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Couldn't serialize snapshot of aggregate %s".formatted(aggregate), e);
+        }
+    }
+
+    @Override
+    public T deserialize(byte[] state) {
+        try {
+            return reader.readValue(state);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Couldn't deserialize snapshot", e);
+        }
+    }
+}
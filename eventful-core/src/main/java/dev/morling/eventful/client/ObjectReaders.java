@@ -0,0 +1,51 @@
+package dev.morling.eventful.client;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import dev.morling.eventful.codec.PayloadCodecs;
+import dev.morling.eventful.store.Event;
+
+/**
+ * A cache of Jackson {@link ObjectReader}s, shared by all handlers. Readers are
+ * immutable and thread-safe, so one instance per payload type suffices, instead
+ * of one mapper per handler or request. Unknown properties are ignored, so
+ * payload types only need to declare the fields they are interested in.
+ */
+public final class ObjectReaders {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final ConcurrentMap<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    private ObjectReaders() {
+    }
+
+    public static ObjectReader forType(Class<?> type) {
+        return READERS.computeIfAbsent(type, MAPPER::readerFor);
+    }
+
+    /**
+     * Reads the payload of the given event into the given type; JSON payloads
+     * are read straight from the event's bytes, payloads of other codecs are
+     * decoded by their codec.
+     */
+    public static <P> P readPayload(Event event, Class<P> type) {
+        if (event.codec() != PayloadCodecs.JSON_ID) {
+            return event.payload(type);
+        }
+
+        try {
+            return forType(type).readValue(event.data());
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Couldn't deserialize event %s".formatted(event.id()), e);
+        }
+    }
+}
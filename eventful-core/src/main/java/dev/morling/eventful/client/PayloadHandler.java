@@ -0,0 +1,13 @@
+package dev.morling.eventful.client;
+
+import dev.morling.eventful.store.Event;
+
+/**
+ * Applies an event, whose payload has already been bound to a value of type
+ * {@code P}, to an aggregate of type {@code T}.
+ */
+@FunctionalInterface
+public interface PayloadHandler<T, P> {
+
+    T apply(T aggregate, Event event, P payload);
+}
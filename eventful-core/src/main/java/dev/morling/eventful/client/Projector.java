@@ -1,21 +1,286 @@
 package dev.morling.eventful.client;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.EventStore;
+import dev.morling.eventful.store.Snapshot;
 
 public class Projector {
 
+    private static final int PENDING_AGGREGATES_PER_THREAD = 16;
+
     public <T> T restore(List<Event> events, EventHandler<T> eventHandler) {
-        T aggregate = null;
+        return restore(null, events, eventHandler);
+    }
+
+    public <T> T restore(T aggregate, List<Event> events, EventHandler<T> eventHandler) {
+        RestoreEvent restoreEvent = new RestoreEvent();
+        restoreEvent.begin();
 
         for (Event event : events) {
             aggregate = eventHandler.apply(aggregate, event);
         }
 
+        restoreEvent.events = events.size();
+        commit(restoreEvent, null, null);
+
+        return aggregate;
+    }
+
+    /**
+     * Folds the given events into the aggregate while they are read; the
+     * stream is not closed by this method.
+     */
+    public <T> T restore(T aggregate, Stream<Event> events, EventHandler<T> eventHandler) {
+        RestoreEvent restoreEvent = new RestoreEvent();
+        restoreEvent.begin();
+
+        aggregate = fold(aggregate, events, eventHandler, restoreEvent);
+        commit(restoreEvent, null, null);
+
+        return aggregate;
+    }
+
+    /**
+     * Restores the given aggregate by streaming its events from the store,
+     * without materializing them all at once.
+     */
+    public <T> T restore(EventStore eventStore, String streamType, UUID aggregateId, EventHandler<T> eventHandler) {
+        RestoreEvent restoreEvent = new RestoreEvent();
+        restoreEvent.begin();
+
+        T aggregate;
+
+        try (Stream<Event> events = eventStore.eventStream(streamType, aggregateId, Event.VERSION_INIT)) {
+            aggregate = fold(null, events, eventHandler, restoreEvent);
+        }
+
+        commit(restoreEvent, streamType, aggregateId);
+
+        return aggregate;
+    }
+
+    /**
+     * Restores all the given aggregates from the events read with one
+     * multi-aggregate read, e.g. for building list views. The result contains
+     * the existing aggregates, in the order of the given ids.
+     */
+    public <T> Map<UUID, T> restoreAll(EventStore eventStore, String streamType, Collection<UUID> aggregateIds, EventHandler<T> eventHandler) {
+        RestoreEvent restoreEvent = new RestoreEvent();
+        restoreEvent.begin();
+
+        Map<UUID, T> aggregates = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, List<Event>> events : eventStore.events(streamType, aggregateIds).entrySet()) {
+            if (events.getValue().isEmpty()) {
+                continue;
+            }
+
+            T aggregate = null;
+            for (Event event : events.getValue()) {
+                aggregate = eventHandler.apply(aggregate, event);
+            }
+
+            aggregates.put(events.getKey(), aggregate);
+            restoreEvent.events += events.getValue().size();
+        }
+
+        commit(restoreEvent, streamType, null);
+
+        return aggregates;
+    }
+
+    /**
+     * Restores all the aggregates of the given stream type, e.g. for warming a
+     * cache after a deployment, passing each of them to the given sink. The
+     * events are read with {@link EventStore#scan(String, int, BiConsumer)}
+     * using the given number of ranges, while the aggregates are restored
+     * concurrently by the given pool, so the sink must be thread-safe. Readers
+     * wait when the pool falls behind, so that only a bounded number of
+     * aggregates is held in memory; as {@link dev.morling.eventful.store.SqliteEventStore}
+     * scans with connections of its own, the event handler and the sink may
+     * read from the store meanwhile. The returned future completes once all
+     * aggregates have been passed to the sink, or fails with the first
+     * exception raised by the scan, the event handler or the sink.
+     */
+    public <T> CompletableFuture<Void> restoreAll(EventStore eventStore, String streamType, EventHandler<T> eventHandler, int ranges, ForkJoinPool pool,
+                                                  BiConsumer<UUID, T> sink) {
+        RestoreEvent restoreEvent = new RestoreEvent();
+        restoreEvent.begin();
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Semaphore pending = new Semaphore(pool.getParallelism() * PENDING_AGGREGATES_PER_THREAD);
+        // the scan itself and each aggregate not restored yet
+        AtomicLong running = new AtomicLong(1);
+        LongAdder events = new LongAdder();
+
+        Runnable done = () -> {
+            if (running.decrementAndGet() == 0 && result.complete(null)) {
+                restoreEvent.events = (int) Math.min(events.sum(), Integer.MAX_VALUE);
+                commit(restoreEvent, streamType, null);
+            }
+        };
+
+        eventStore.scan(streamType, ranges, (aggregateId, aggregateEvents) -> {
+            if (result.isDone()) {
+                throw new CancellationException("Restore has failed already");
+            }
+
+            pending.acquireUninterruptibly();
+            running.incrementAndGet();
+
+            try {
+                pool.execute(() -> {
+                    try {
+                        T aggregate = null;
+                        for (Event event : aggregateEvents) {
+                            aggregate = eventHandler.apply(aggregate, event);
+                        }
+
+                        sink.accept(aggregateId, aggregate);
+                        events.add(aggregateEvents.size());
+                    }
+                    catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                    finally {
+                        pending.release();
+                        done.run();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                pending.release();
+                running.decrementAndGet();
+                throw e;
+            }
+        }).whenComplete((ignored, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+            done.run();
+        });
+
+        return result;
+    }
+
+    /**
+     * Restores the given aggregate from its latest snapshot and the events after
+     * that. Takes a new snapshot if the number of replayed events has reached the
+     * snapshot frequency.
+     */
+    public <T> T restore(EventStore eventStore, UUID aggregateId, EventHandler<T> eventHandler, Snapshotter<T> snapshotter) {
+        RestoreEvent restoreEvent = new RestoreEvent();
+        restoreEvent.begin();
+
+        T aggregate = null;
+        long version = 0;
+
+        Optional<Snapshot> snapshot = snapshotter.latest(aggregateId);
+        if (snapshot.isPresent()) {
+            aggregate = snapshotter.restore(snapshot.get());
+            version = snapshot.get().version();
+        }
+
+        int replayed = 0;
+
+        try (Stream<Event> events = eventStore.eventStream(snapshotter.streamType(), aggregateId, version + 1)) {
+            Iterator<Event> iterator = events.iterator();
+
+            while (iterator.hasNext()) {
+                Event event = iterator.next();
+                aggregate = eventHandler.apply(aggregate, event);
+                version = event.version();
+                replayed++;
+            }
+        }
+
+        restoreEvent.events = replayed;
+        restoreEvent.snapshotVersion = snapshot.isPresent() ? snapshot.get().version() : 0;
+        commit(restoreEvent, snapshotter.streamType(), aggregateId);
+
+        if (snapshotter.isDue(replayed)) {
+            snapshotter.snapshot(aggregateId, version, aggregate);
+        }
+
         return aggregate;
     }
 
+    /**
+     * Restores the given aggregate from its latest snapshot and the events after
+     * that like {@link #restore(EventStore, UUID, EventHandler, Snapshotter)},
+     * but without blocking the calling thread. The events are applied, and a
+     * new snapshot is taken if due, on the thread completing the read of the
+     * events, i.e. a thread of the store in case of asynchronous stores.
+     */
+    public <T> CompletionStage<T> restoreAsync(EventStore eventStore, UUID aggregateId, EventHandler<T> eventHandler, Snapshotter<T> snapshotter) {
+        RestoreEvent restoreEvent = new RestoreEvent();
+        restoreEvent.begin();
+
+        String streamType = snapshotter.streamType();
+
+        return snapshotter.latestAsync(aggregateId).thenCompose(snapshot -> {
+            long snapshotVersion = snapshot.isPresent() ? snapshot.get().version() : 0;
+
+            return eventStore.eventsAsync(streamType, aggregateId, snapshotVersion + 1).thenApply(events -> {
+                T aggregate = snapshot.isPresent() ? snapshotter.restore(snapshot.get()) : null;
+
+                for (Event event : events) {
+                    aggregate = eventHandler.apply(aggregate, event);
+                }
+
+                restoreEvent.events = events.size();
+                restoreEvent.snapshotVersion = snapshotVersion;
+                commit(restoreEvent, streamType, aggregateId);
+
+                if (snapshotter.isDue(events.size())) {
+                    snapshotter.snapshot(aggregateId, events.get(events.size() - 1).version(), aggregate);
+                }
+
+                return aggregate;
+            });
+        });
+    }
+
+    private static <T> T fold(T aggregate, Stream<Event> events, EventHandler<T> eventHandler, RestoreEvent restoreEvent) {
+        Iterator<Event> iterator = events.iterator();
+
+        while (iterator.hasNext()) {
+            aggregate = eventHandler.apply(aggregate, iterator.next());
+            restoreEvent.events++;
+        }
+
+        return aggregate;
+    }
+
+    private static void commit(RestoreEvent restoreEvent, String streamType, UUID aggregateId) {
+        restoreEvent.end();
+
+        if (restoreEvent.shouldCommit()) {
+            restoreEvent.streamType = streamType;
+            restoreEvent.aggregateId = aggregateId != null ? aggregateId.toString() : null;
+            restoreEvent.commit();
+        }
+    }
+
     public <T> T initialize(Event event, EventHandler<T> eventHandler) {
         return eventHandler.apply(null, event);
     }
@@ -0,0 +1,33 @@
+package dev.morling.eventful.client;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted by {@link Projector} for each restored aggregate, spanning the
+ * loading of its snapshot and events, if any, and applying the events.
+ */
+@Name("dev.morling.eventful.Restore")
+@Label("Restore")
+@Category({ "Eventful", "Projector" })
+@Description("The restoration of an aggregate from its events")
+@StackTrace(false)
+class RestoreEvent extends jdk.jfr.Event {
+
+    @Label("Stream Type")
+    String streamType;
+
+    @Label("Aggregate Id")
+    String aggregateId;
+
+    @Label("Snapshot Version")
+    @Description("The version of the snapshot the aggregate has been restored from, 0 if none")
+    long snapshotVersion;
+
+    @Label("Events")
+    @Description("The number of events applied")
+    int events;
+}
@@ -0,0 +1,8 @@
+package dev.morling.eventful.client;
+
+public interface SnapshotSerializer<T> {
+
+    byte[] serialize(T aggregate);
+
+    T deserialize(byte[] state);
+}
@@ -0,0 +1,69 @@
+package dev.morling.eventful.client;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionStage;
+
+import dev.morling.eventful.store.Snapshot;
+import dev.morling.eventful.store.SnapshotStore;
+
+/**
+ * Takes snapshots of the aggregates of one stream type, either on demand or
+ * whenever {@code frequency} events have been applied since the last snapshot.
+ */
+public class Snapshotter<T> {
+
+    private final SnapshotStore snapshotStore;
+    private final String streamType;
+    private final SnapshotSerializer<T> serializer;
+    private final int frequency;
+
+    public Snapshotter(SnapshotStore snapshotStore, String streamType, SnapshotSerializer<T> serializer, int frequency) {
+        if (frequency < 1) {
+            throw new IllegalArgumentException("Snapshot frequency must be larger than 0");
+        }
+
+        this.snapshotStore = snapshotStore;
+        this.streamType = streamType;
+        this.serializer = serializer;
+        this.frequency = frequency;
+    }
+
+    public String streamType() {
+        return streamType;
+    }
+
+    public int frequency() {
+        return frequency;
+    }
+
+    public Optional<Snapshot> latest(UUID aggregateId) {
+        return snapshotStore.latest(streamType, aggregateId);
+    }
+
+    public CompletionStage<Optional<Snapshot>> latestAsync(UUID aggregateId) {
+        return snapshotStore.latestAsync(streamType, aggregateId);
+    }
+
+    public T restore(Snapshot snapshot) {
+        return serializer.deserialize(snapshot.state());
+    }
+
+    public void snapshot(UUID aggregateId, long version, T aggregate) {
+        snapshotStore.save(streamType, new Snapshot(aggregateId, version, serializer.serialize(aggregate)));
+    }
+
+    /**
+     * To be invoked after an event of the given version has been persisted and
+     * applied to the aggregate; takes a snapshot for every {@code frequency}-th version.
+     */
+    public void onPersisted(UUID aggregateId, long version, T aggregate) {
+        if (version % frequency == 0) {
+            snapshot(aggregateId, version, aggregate);
+        }
+    }
+
+    boolean isDue(int eventsSinceSnapshot) {
+        return eventsSinceSnapshot >= frequency;
+    }
+}
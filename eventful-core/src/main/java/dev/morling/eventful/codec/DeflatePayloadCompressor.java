@@ -0,0 +1,125 @@
+package dev.morling.eventful.codec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses payloads with the JDK's {@link Deflater}, as raw deflate data
+ * without zlib header and checksum, prefixed with the uncompressed length.
+ * Dictionaries are used as preset dictionaries, of which deflate takes the
+ * last 32 KB into account.
+ */
+public class DeflatePayloadCompressor implements PayloadCompressor {
+
+    private static final int LENGTH_BYTES = Integer.BYTES;
+
+    private final int id;
+    private final String name;
+    private final int level;
+
+    public DeflatePayloadCompressor(int level) {
+        this(PayloadCompressors.DEFLATE_ID, "deflate", level);
+    }
+
+    public DeflatePayloadCompressor(int id, String name, int level) {
+        this.id = id;
+        this.name = name;
+        this.level = level;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Compression withDictionary(byte[] dictionary) {
+        // deflaters and inflaters allocate native memory, so they are pooled
+        Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+        Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+        return new Compression() {
+
+            @Override
+            public byte[] compress(byte[] data) {
+                Deflater deflater = deflaters.poll();
+                if (deflater == null) {
+                    deflater = new Deflater(level, true);
+                }
+
+                try {
+                    if (dictionary != null) {
+                        deflater.setDictionary(dictionary);
+                    }
+                    deflater.setInput(data);
+                    deflater.finish();
+
+                    // deflate may expand incompressible data by a few bytes per 16 KB block
+                    byte[] compressed = new byte[LENGTH_BYTES + data.length + (data.length >> 10) + 64];
+                    ByteBuffer.wrap(compressed).putInt(data.length);
+                    int length = LENGTH_BYTES;
+
+                    while (!deflater.finished()) {
+                        if (length == compressed.length) {
+                            compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                        }
+                        length += deflater.deflate(compressed, length, compressed.length - length);
+                    }
+
+                    return Arrays.copyOf(compressed, length);
+                }
+                finally {
+                    deflater.reset();
+                    deflaters.offer(deflater);
+                }
+            }
+
+            @Override
+            public byte[] decompress(byte[] data) {
+                Inflater inflater = inflaters.poll();
+                if (inflater == null) {
+                    inflater = new Inflater(true);
+                }
+
+                try {
+                    // raw inflate takes the dictionary upfront
+                    if (dictionary != null) {
+                        inflater.setDictionary(dictionary);
+                    }
+                    inflater.setInput(data, LENGTH_BYTES, data.length - LENGTH_BYTES);
+
+                    byte[] decompressed = new byte[ByteBuffer.wrap(data).getInt()];
+                    int length = 0;
+
+                    while (length < decompressed.length) {
+                        int inflated = inflater.inflate(decompressed, length, decompressed.length - length);
+
+                        if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+                            throw new IllegalArgumentException("Compressed payload is truncated");
+                        }
+                        length += inflated;
+                    }
+
+                    return decompressed;
+                }
+                catch (DataFormatException e) {
+                    throw new IllegalArgumentException("Couldn't decompress payload", e);
+                }
+                finally {
+                    inflater.reset();
+                    inflaters.offer(inflater);
+                }
+            }
+        };
+    }
+}
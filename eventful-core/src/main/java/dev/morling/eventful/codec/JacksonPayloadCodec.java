@@ -0,0 +1,57 @@
+package dev.morling.eventful.codec;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A codec based on a Jackson {@link ObjectMapper}, e.g. for JSON, CBOR or
+ * Smile.
+ */
+public class JacksonPayloadCodec implements PayloadCodec {
+
+    private final int id;
+    private final String name;
+    private final ObjectMapper mapper;
+
+    public JacksonPayloadCodec(int id, String name, ObjectMapper mapper) {
+        this.id = id;
+        this.name = name;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte[] encode(String eventType, Object payload) {
+        try {
+            return mapper.writeValueAsBytes(payload);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Couldn't encode payload of event type '%s'".formatted(eventType), e);
+        }
+    }
+
+    @Override
+    public <T> T decode(String eventType, byte[] data, Class<T> type) {
+        try {
+            return mapper.readValue(data, type);
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("Couldn't decode payload of event type '%s'".formatted(eventType), e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,30 @@
+package dev.morling.eventful.codec;
+
+/**
+ * Encodes event payloads to bytes and decodes them again. Each codec has a
+ * unique id, which is stored with each event, so that streams with events
+ * written by different codecs remain readable. Codecs must be registered with
+ * {@link PayloadCodecs} before reading events written by them; codecs with a
+ * default constructor are also discovered via the {@link java.util.ServiceLoader}.
+ */
+public interface PayloadCodec {
+
+    /**
+     * The id stored with each event. Ids up to 63 are reserved for the codecs
+     * of this library.
+     */
+    int id();
+
+    String name();
+
+    /**
+     * Encodes the given payload, e.g. a POJO, a map or a Jackson tree.
+     */
+    byte[] encode(String eventType, Object payload);
+
+    /**
+     * Decodes the given data into the given type, e.g. a POJO class or
+     * {@code JsonNode}.
+     */
+    <T> T decode(String eventType, byte[] data, Class<T> type);
+}
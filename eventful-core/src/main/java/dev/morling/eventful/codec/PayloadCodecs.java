@@ -0,0 +1,81 @@
+package dev.morling.eventful.codec;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+/**
+ * The registry of payload codecs, by id.
+ */
+public class PayloadCodecs {
+
+    public static final int JSON_ID = 0;
+    public static final int CBOR_ID = 1;
+    public static final int SMILE_ID = 2;
+
+    /**
+     * The default id of {@link SchemaPayloadCodec}.
+     */
+    public static final int SCHEMA_ID = 3;
+
+    /**
+     * JSON as UTF-8 text; stored as text in the database, so that it can be
+     * read with any SQLite client.
+     */
+    public static final PayloadCodec JSON = new JacksonPayloadCodec(JSON_ID, "json", new ObjectMapper());
+
+    public static final PayloadCodec CBOR = new JacksonPayloadCodec(CBOR_ID, "cbor", new CBORMapper());
+
+    public static final PayloadCodec SMILE = new JacksonPayloadCodec(SMILE_ID, "smile", new SmileMapper());
+
+    private static final Map<Integer, PayloadCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(JSON);
+        register(CBOR);
+        register(SMILE);
+
+        for (PayloadCodec codec : ServiceLoader.load(PayloadCodec.class)) {
+            register(codec);
+        }
+    }
+
+    private PayloadCodecs() {
+    }
+
+    /**
+     * Registers the given codec; fails if another codec has been registered
+     * with the same id already.
+     */
+    public static void register(PayloadCodec codec) {
+        PayloadCodec existing = CODECS.putIfAbsent(codec.id(), codec);
+
+        if (existing != null && existing != codec) {
+            throw new IllegalArgumentException("Codec '%s' has been registered with id %s already".formatted(existing.name(), codec.id()));
+        }
+    }
+
+    public static PayloadCodec forId(int id) {
+        PayloadCodec codec = CODECS.get(id);
+
+        if (codec == null) {
+            throw new IllegalArgumentException("No codec registered with id " + id);
+        }
+
+        return codec;
+    }
+
+    public static PayloadCodec forName(String name) {
+        for (PayloadCodec codec : CODECS.values()) {
+            if (codec.name().equals(name)) {
+                return codec;
+            }
+        }
+
+        throw new IllegalArgumentException("No codec registered with name '%s'".formatted(name));
+    }
+}
@@ -0,0 +1,56 @@
+package dev.morling.eventful.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Compresses event payloads, optionally using a dictionary trained from sample
+ * payloads. Like codecs, each compressor has a unique id, which is stored with
+ * each compressed event; compressors must be registered with
+ * {@link PayloadCompressors} before reading events compressed by them.
+ */
+public interface PayloadCompressor {
+
+    /**
+     * The id stored with each compressed event, between 1 and 255. Ids up to
+     * 63 are reserved for the compressors of this library.
+     */
+    int id();
+
+    String name();
+
+    /**
+     * Returns a compression using the given dictionary, or none if it is
+     * {@code null}. Compressions must be thread-safe; as preparing a dictionary
+     * may be expensive, they are created once per dictionary and then reused.
+     */
+    Compression withDictionary(byte[] dictionary);
+
+    /**
+     * Trains a dictionary of up to the given size from the given samples. By
+     * default, the most recent samples are concatenated, the latest ones at
+     * the end of the dictionary, where matches are the cheapest to encode.
+     */
+    default byte[] trainDictionary(List<byte[]> samples, int maxSize) {
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(maxSize);
+        int size = 0;
+        int first = samples.size();
+
+        while (first > 0 && size + samples.get(first - 1).length <= maxSize) {
+            size += samples.get(--first).length;
+        }
+
+        for (int i = first; i < samples.size(); i++) {
+            dictionary.writeBytes(samples.get(i));
+        }
+
+        return dictionary.toByteArray();
+    }
+
+    interface Compression {
+
+        byte[] compress(byte[] data);
+
+        byte[] decompress(byte[] data);
+    }
+}
@@ -0,0 +1,85 @@
+package dev.morling.eventful.codec;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
+
+/**
+ * The registry of payload compressors, by id.
+ */
+public class PayloadCompressors {
+
+    private static Logger LOGGER = System.getLogger(PayloadCompressors.class.getName());
+
+    public static final int DEFLATE_ID = 1;
+    public static final int ZSTD_ID = 2;
+
+    public static final PayloadCompressor DEFLATE = new DeflatePayloadCompressor(Deflater.DEFAULT_COMPRESSION);
+
+    private static final Map<Integer, PayloadCompressor> COMPRESSORS = new ConcurrentHashMap<>();
+
+    static {
+        register(DEFLATE);
+
+        if (isZstdAvailable()) {
+            register(new ZstdPayloadCompressor(3));
+        }
+
+        for (PayloadCompressor compressor : ServiceLoader.load(PayloadCompressor.class)) {
+            register(compressor);
+        }
+    }
+
+    private PayloadCompressors() {
+    }
+
+    private static boolean isZstdAvailable() {
+        try {
+            Class.forName("com.github.luben.zstd.Zstd");
+            return true;
+        }
+        catch (ClassNotFoundException | LinkageError e) {
+            LOGGER.log(Level.DEBUG, "zstd-jni isn't available, not registering the zstd compressor");
+            return false;
+        }
+    }
+
+    /**
+     * Registers the given compressor; fails if another compressor has been
+     * registered with the same id already.
+     */
+    public static void register(PayloadCompressor compressor) {
+        if (compressor.id() < 1 || compressor.id() > 255) {
+            throw new IllegalArgumentException("Compressor ids must be between 1 and 255");
+        }
+
+        PayloadCompressor existing = COMPRESSORS.putIfAbsent(compressor.id(), compressor);
+
+        if (existing != null && existing != compressor) {
+            throw new IllegalArgumentException("Compressor '%s' has been registered with id %s already".formatted(existing.name(), compressor.id()));
+        }
+    }
+
+    public static PayloadCompressor forId(int id) {
+        PayloadCompressor compressor = COMPRESSORS.get(id);
+
+        if (compressor == null) {
+            throw new IllegalArgumentException("No compressor registered with id " + id);
+        }
+
+        return compressor;
+    }
+
+    public static PayloadCompressor forName(String name) {
+        for (PayloadCompressor compressor : COMPRESSORS.values()) {
+            if (compressor.name().equals(name)) {
+                return compressor;
+            }
+        }
+
+        throw new IllegalArgumentException("No compressor registered with name '%s'".formatted(name));
+    }
+}
@@ -0,0 +1,46 @@
+package dev.morling.eventful.codec;
+
+import java.util.List;
+
+/**
+ * The fields of the payload of one event type, in the order in which they are
+ * encoded by {@link SchemaPayloadCodec}. As field names aren't part of the
+ * encoded data, the schema of an event type must not be changed once events
+ * have been written with it; add a new event type instead.
+ */
+public record PayloadSchema(List<Field> fields) {
+
+    public enum FieldType {
+        STRING,
+        LONG,
+        DOUBLE,
+        BOOLEAN;
+    }
+
+    public record Field(String name, FieldType type) {
+    }
+
+    public PayloadSchema {
+        fields = List.copyOf(fields);
+    }
+
+    public static PayloadSchema of(Field... fields) {
+        return new PayloadSchema(List.of(fields));
+    }
+
+    public static Field string(String name) {
+        return new Field(name, FieldType.STRING);
+    }
+
+    public static Field int64(String name) {
+        return new Field(name, FieldType.LONG);
+    }
+
+    public static Field float64(String name) {
+        return new Field(name, FieldType.DOUBLE);
+    }
+
+    public static Field bool(String name) {
+        return new Field(name, FieldType.BOOLEAN);
+    }
+}
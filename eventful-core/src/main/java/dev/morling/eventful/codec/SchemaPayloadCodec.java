@@ -0,0 +1,191 @@
+package dev.morling.eventful.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import dev.morling.eventful.codec.PayloadSchema.Field;
+
+/**
+ * A compact binary codec, based on a {@link PayloadSchema} per event type.
+ * Payloads are encoded as a bitmap of the null or absent fields, followed by
+ * the values of the present fields in schema order: strings with their UTF-8
+ * length as varint, longs as zig-zag varints, doubles with eight bytes and
+ * booleans with one byte. Field names aren't stored.
+ */
+public class SchemaPayloadCodec implements PayloadCodec {
+
+    private final int id;
+    private final Map<String, PayloadSchema> schemas;
+    private final ObjectMapper mapper;
+
+    public SchemaPayloadCodec(Map<String, PayloadSchema> schemasByEventType) {
+        this(PayloadCodecs.SCHEMA_ID, schemasByEventType);
+    }
+
+    public SchemaPayloadCodec(int id, Map<String, PayloadSchema> schemasByEventType) {
+        this.id = id;
+        this.schemas = Map.copyOf(schemasByEventType);
+        this.mapper = new ObjectMapper();
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return "schema";
+    }
+
+    @Override
+    public byte[] encode(String eventType, Object payload) {
+        List<Field> fields = schema(eventType).fields();
+        JsonNode node = payload instanceof JsonNode jsonNode ? jsonNode : mapper.valueToTree(payload);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        byte[] nulls = new byte[(fields.size() + 7) / 8];
+        int known = 0;
+
+        for (int i = 0; i < fields.size(); i++) {
+            JsonNode value = node.get(fields.get(i).name());
+            if (value == null || value.isNull()) {
+                nulls[i / 8] |= (byte) (1 << (i % 8));
+            }
+            if (value != null) {
+                known++;
+            }
+        }
+
+        if (known < node.size()) {
+            throw new IllegalArgumentException("Payload of event type '%s' has fields which aren't part of its schema".formatted(eventType));
+        }
+
+        out.writeBytes(nulls);
+
+        for (int i = 0; i < fields.size(); i++) {
+            if ((nulls[i / 8] & (1 << (i % 8))) != 0) {
+                continue;
+            }
+
+            JsonNode value = node.get(fields.get(i).name());
+
+            switch (fields.get(i).type()) {
+                case STRING -> {
+                    byte[] bytes = value.asText().getBytes(StandardCharsets.UTF_8);
+                    writeVarint(out, bytes.length);
+                    out.writeBytes(bytes);
+                }
+                case LONG -> {
+                    long l = value.asLong();
+                    writeVarint(out, (l << 1) ^ (l >> 63));
+                }
+                case DOUBLE -> {
+                    long bits = Double.doubleToRawLongBits(value.asDouble());
+                    for (int shift = 56; shift >= 0; shift -= 8) {
+                        out.write((int) (bits >>> shift));
+                    }
+                }
+                case BOOLEAN -> out.write(value.asBoolean() ? 1 : 0);
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(String eventType, byte[] data, Class<T> type) {
+        List<Field> fields = schema(eventType).fields();
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        int[] position = { (fields.size() + 7) / 8 };
+
+        try {
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+
+                if ((data[i / 8] & (1 << (i % 8))) != 0) {
+                    node.putNull(field.name());
+                    continue;
+                }
+
+                switch (field.type()) {
+                    case STRING -> {
+                        int length = (int) readVarint(data, position);
+                        node.put(field.name(), new String(data, position[0], length, StandardCharsets.UTF_8));
+                        position[0] += length;
+                    }
+                    case LONG -> {
+                        long zigZag = readVarint(data, position);
+                        node.put(field.name(), (zigZag >>> 1) ^ -(zigZag & 1));
+                    }
+                    case DOUBLE -> {
+                        long bits = 0;
+                        for (int b = 0; b < 8; b++) {
+                            bits = (bits << 8) | (data[position[0]++] & 0xFF);
+                        }
+                        node.put(field.name(), Double.longBitsToDouble(bits));
+                    }
+                    case BOOLEAN -> node.put(field.name(), data[position[0]++] != 0);
+                }
+            }
+        }
+        catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Couldn't decode payload of event type '%s'".formatted(eventType), e);
+        }
+
+        if (type.isInstance(node)) {
+            return type.cast(node);
+        }
+
+        try {
+            return mapper.treeToValue(node, type);
+        }
+        catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Couldn't decode payload of event type '%s'".formatted(eventType), e);
+        }
+    }
+
+    private PayloadSchema schema(String eventType) {
+        PayloadSchema schema = schemas.get(eventType);
+
+        if (schema == null) {
+            throw new IllegalArgumentException("No schema for event type '%s'".formatted(eventType));
+        }
+
+        return schema;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] position) {
+        long value = 0;
+
+        for (int shift = 0;; shift += 7) {
+            byte b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name();
+    }
+}
@@ -0,0 +1,129 @@
+package dev.morling.eventful.codec;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdDictTrainer;
+import com.github.luben.zstd.ZstdException;
+
+/**
+ * Compresses payloads with Zstandard, which is considerably faster than
+ * deflate at a similar ratio, and trains dictionaries with its dictionary
+ * builder. Requires the optional {@code com.github.luben:zstd-jni} dependency;
+ * it is only registered with {@link PayloadCompressors} if that is present.
+ */
+public class ZstdPayloadCompressor implements PayloadCompressor {
+
+    private final int id;
+    private final String name;
+    private final int level;
+
+    public ZstdPayloadCompressor(int level) {
+        this(PayloadCompressors.ZSTD_ID, "zstd", level);
+    }
+
+    public ZstdPayloadCompressor(int id, String name, int level) {
+        this.id = id;
+        this.name = name;
+        this.level = level;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public Compression withDictionary(byte[] dictionary) {
+        // the prepared dictionaries are thread-safe and freed when collected
+        ZstdDictCompress compressDictionary = dictionary != null ? new ZstdDictCompress(dictionary, level) : null;
+        ZstdDictDecompress decompressDictionary = dictionary != null ? new ZstdDictDecompress(dictionary) : null;
+
+        // creating a context is much more expensive than (de-)compressing a
+        // single payload, so contexts are pooled; they keep their dictionary
+        Queue<ZstdCompressCtx> compressContexts = new ConcurrentLinkedQueue<>();
+        Queue<ZstdDecompressCtx> decompressContexts = new ConcurrentLinkedQueue<>();
+
+        return new Compression() {
+
+            @Override
+            public byte[] compress(byte[] data) {
+                ZstdCompressCtx context = compressContexts.poll();
+
+                if (context == null) {
+                    context = new ZstdCompressCtx().setLevel(level);
+                    if (compressDictionary != null) {
+                        context.loadDict(compressDictionary);
+                    }
+                }
+
+                try {
+                    return context.compress(data);
+                }
+                finally {
+                    compressContexts.offer(context);
+                }
+            }
+
+            @Override
+            public byte[] decompress(byte[] data) {
+                ZstdDecompressCtx context = decompressContexts.poll();
+
+                if (context == null) {
+                    context = new ZstdDecompressCtx();
+                    if (decompressDictionary != null) {
+                        context.loadDict(decompressDictionary);
+                    }
+                }
+
+                try {
+                    return context.decompress(data, contentSize(data));
+                }
+                catch (ZstdException e) {
+                    throw new IllegalArgumentException("Couldn't decompress payload", e);
+                }
+                finally {
+                    decompressContexts.offer(context);
+                }
+            }
+        };
+    }
+
+    @Override
+    public byte[] trainDictionary(List<byte[]> samples, int maxSize) {
+        long totalSize = samples.stream().mapToLong(sample -> sample.length).sum();
+        ZstdDictTrainer trainer = new ZstdDictTrainer((int) Math.min(Integer.MAX_VALUE, totalSize), maxSize);
+
+        for (byte[] sample : samples) {
+            trainer.addSample(sample);
+        }
+
+        try {
+            return trainer.trainSamples();
+        }
+        catch (ZstdException e) {
+            throw new IllegalArgumentException("Couldn't train dictionary from %s samples".formatted(samples.size()), e);
+        }
+    }
+
+    private static int contentSize(byte[] data) {
+        long size = Zstd.getFrameContentSize(data);
+
+        if (size < 0 || size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Not a compressed payload");
+        }
+
+        return (int) size;
+    }
+}
@@ -0,0 +1,113 @@
+package dev.morling.eventful.store;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Maps aggregate ids to the latest persisted version, so that the writer
+ * doesn't have to query it before each insert. An open-addressing hash table
+ * with linear probing, keyed on the two longs of the UUID; only accessed by
+ * the writer thread.
+ * <p>
+ * The index is <em>complete</em> while it knows about all the aggregates of
+ * its stream type, e.g. when it was created together with the stream's table;
+ * an unknown aggregate then doesn't have any events. Once it exceeds its
+ * maximum size, or after a failed transaction, it is cleared and becomes
+ * partial; unknown aggregates then must be looked up in the database.
+ */
+class AggregateVersionIndex {
+
+    static final long UNKNOWN = -1;
+
+    private static final long EMPTY = 0;
+
+    private final int maxEntries;
+    private final long[] mostSignificantBits;
+    private final long[] leastSignificantBits;
+    private final long[] versions;
+    private final int mask;
+    private int size;
+    private boolean complete;
+
+    AggregateVersionIndex(int maxEntries, boolean complete) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Maximum number of entries must be larger than 0");
+        }
+
+        // keep the load factor at or below 0.5
+        int capacity = Integer.highestOneBit(Math.max(2, maxEntries) - 1) << 2;
+
+        this.maxEntries = maxEntries;
+        this.mostSignificantBits = new long[capacity];
+        this.leastSignificantBits = new long[capacity];
+        this.versions = new long[capacity];
+        this.mask = capacity - 1;
+        this.complete = complete;
+    }
+
+    /**
+     * Returns the latest version of the given aggregate, 0 if it doesn't have
+     * any events, or {@link #UNKNOWN} if that must be looked up in the database.
+     */
+    long get(UUID aggregateId) {
+        long msb = aggregateId.getMostSignificantBits();
+        long lsb = aggregateId.getLeastSignificantBits();
+
+        for (int i = indexOf(msb, lsb);; i = (i + 1) & mask) {
+            if (versions[i] == EMPTY) {
+                return complete ? 0 : UNKNOWN;
+            }
+            if (mostSignificantBits[i] == msb && leastSignificantBits[i] == lsb) {
+                return versions[i];
+            }
+        }
+    }
+
+    void put(UUID aggregateId, long version) {
+        long msb = aggregateId.getMostSignificantBits();
+        long lsb = aggregateId.getLeastSignificantBits();
+
+        for (int i = indexOf(msb, lsb);; i = (i + 1) & mask) {
+            if (versions[i] == EMPTY) {
+                if (size == maxEntries) {
+                    invalidate();
+                    put(aggregateId, version);
+                    return;
+                }
+
+                mostSignificantBits[i] = msb;
+                leastSignificantBits[i] = lsb;
+                versions[i] = version;
+                size++;
+                return;
+            }
+            if (mostSignificantBits[i] == msb && leastSignificantBits[i] == lsb) {
+                versions[i] = Math.max(versions[i], version);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Clears the index, e.g. after a transaction with updates to the index
+     * has been rolled back. The index isn't complete afterwards.
+     */
+    void invalidate() {
+        Arrays.fill(versions, EMPTY);
+        size = 0;
+        complete = false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    private int indexOf(long msb, long lsb) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
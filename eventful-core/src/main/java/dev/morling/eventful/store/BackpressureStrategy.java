@@ -0,0 +1,23 @@
+package dev.morling.eventful.store;
+
+/**
+ * What {@link EventStore#persist(String, Event)} does when the work queue is full.
+ */
+public enum BackpressureStrategy {
+
+    /**
+     * Blocks the caller until there is space in the queue.
+     */
+    BLOCK,
+
+    /**
+     * Fails the returned future with a {@link java.util.concurrent.RejectedExecutionException} right away.
+     */
+    FAIL_FAST,
+
+    /**
+     * Blocks the caller for at most the configured enqueue timeout, then fails
+     * the returned future with a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    TIMEOUT;
+}
@@ -0,0 +1,40 @@
+package dev.morling.eventful.store;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted by the writer thread for each batch of work items, spanning the
+ * execution of its statements and the commit.
+ */
+@Name("dev.morling.eventful.Batch")
+@Label("Batch")
+@Category({ "Eventful", "Writer" })
+@Description("A batch of work items executed and committed in one transaction")
+@StackTrace(false)
+class BatchEvent extends jdk.jfr.Event {
+
+    @Label("Work Items")
+    int workItems;
+
+    @Label("Events")
+    @Description("Events committed by the batch, i.e. excluding those of failed work items")
+    int events;
+
+    @Label("Durability")
+    String durability;
+
+    @Label("SQL Time")
+    @Description("Time spent executing the inserts and version checks")
+    @Timespan(Timespan.NANOSECONDS)
+    long sqlTime;
+
+    @Label("Commit Time")
+    @Description("Time spent committing, including syncing to disk")
+    @Timespan(Timespan.NANOSECONDS)
+    long commitTime;
+}
@@ -0,0 +1,41 @@
+package dev.morling.eventful.store;
+
+/**
+ * How durable committed events are, from the weakest to the strongest tier.
+ * Corresponds to SQLite's {@code synchronous} setting in WAL mode.
+ */
+public enum Durability {
+
+    /**
+     * Never syncs to disk; committed events survive a crash of the process,
+     * but may be lost or the database may get corrupted if the operating
+     * system crashes or the machine loses power. Only suitable for tests and
+     * bulk loads which can be repeated.
+     */
+    NONE("OFF"),
+
+    /**
+     * Syncs only when checkpointing the WAL into the database; the database
+     * stays consistent, but the latest commits may be lost if the operating
+     * system crashes or the machine loses power.
+     */
+    NORMAL("NORMAL"),
+
+    /**
+     * Syncs the WAL with each commit, so that committed events are never lost.
+     */
+    FULL("FULL");
+
+    private final String synchronous;
+
+    Durability(String synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    /**
+     * The value of the {@code synchronous} pragma for this tier.
+     */
+    String synchronous() {
+        return synchronous;
+    }
+}
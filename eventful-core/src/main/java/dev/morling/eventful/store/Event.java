@@ -1,8 +1,20 @@
 package dev.morling.eventful.store;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.UUID;
 
-public record Event(String type, UUID id, long aggregateId, long version, String payload) {
+import com.fasterxml.jackson.databind.JsonNode;
+
+import dev.morling.eventful.codec.PayloadCodec;
+import dev.morling.eventful.codec.PayloadCodecs;
+
+/**
+ * An event, with its payload encoded by the codec with the given id.
+ */
+public record Event(String type, UUID id, UUID aggregateId, long version, int codec, byte[] data) {
 
     public static final long VERSION_INIT = 1;
 
@@ -10,9 +22,71 @@ public record Event(String type, UUID id, long aggregateId, long version, String
         if (version < 1) {
             throw new IllegalArgumentException("Version must be larger than 0");
         }
+        Objects.requireNonNull(data);
+    }
+
+    /**
+     * Creates an event with the given JSON payload.
+     */
+    public Event(String type, UUID id, UUID aggregateId, long version, String payload) {
+        this(type, id, aggregateId, version, PayloadCodecs.JSON_ID, payload.getBytes(StandardCharsets.UTF_8));
     }
 
-    public Event(String type, long aggregateId, long version, String payload) {
+    /**
+     * Creates an event with the given JSON payload.
+     */
+    public Event(String type, UUID aggregateId, long version, String payload) {
         this(type, UUID.randomUUID(), aggregateId, version, payload);
     }
+
+    /**
+     * Creates an event with the given payload, encoded by the given codec.
+     */
+    public Event(String type, UUID aggregateId, long version, PayloadCodec codec, Object payload) {
+        this(type, UUID.randomUUID(), aggregateId, version, codec.id(), codec.encode(type, payload));
+    }
+
+    /**
+     * Returns the payload as JSON; payloads of other codecs are converted.
+     */
+    public String payload() {
+        if (codec == PayloadCodecs.JSON_ID) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+
+        return payload(JsonNode.class).toString();
+    }
+
+    /**
+     * Decodes the payload into the given type, e.g. {@code JsonNode}.
+     */
+    public <T> T payload(Class<T> type) {
+        return PayloadCodecs.forId(codec).decode(this.type, data, type);
+    }
+
+    public ByteBuffer dataBuffer() {
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Event other)) {
+            return false;
+        }
+        return version == other.version && codec == other.codec && type.equals(other.type) && id.equals(other.id) && aggregateId.equals(other.aggregateId)
+                && Arrays.equals(data, other.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id, aggregateId, version, codec) * 31 + Arrays.hashCode(data);
+    }
+
+    @Override
+    public String toString() {
+        return "Event[type=" + type + ", id=" + id + ", aggregateId=" + aggregateId + ", version=" + version + ", codec=" + codec + ", data=" + data.length + " bytes]";
+    }
 }
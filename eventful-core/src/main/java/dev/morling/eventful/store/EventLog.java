@@ -0,0 +1,23 @@
+package dev.morling.eventful.store;
+
+/**
+ * The log of all events of a store, across stream types and aggregates, in
+ * commit order. Each event has a unique position in the log; positions are
+ * assigned in increasing order when events are committed.
+ */
+public interface EventLog {
+
+    /**
+     * Subscribes to the events of the given stream type, starting at the given
+     * position (inclusive). The handler is invoked on a thread of its own, with
+     * batches of events in log order; it first receives the already persisted
+     * events and then the newly committed ones, as they are committed.
+     */
+    Subscription subscribe(String streamType, long fromPosition, SubscriptionHandler handler);
+
+    /**
+     * Subscribes to the events of all stream types, starting at the given
+     * position (inclusive).
+     */
+    Subscription subscribeAll(long fromPosition, SubscriptionHandler handler);
+}
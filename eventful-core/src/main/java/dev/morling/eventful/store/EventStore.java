@@ -1,8 +1,17 @@
 package dev.morling.eventful.store;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
 
 public interface EventStore {
 
@@ -12,5 +21,101 @@ public interface EventStore {
 
     Future<Void> persist(String streamType, Event event);
 
+    /**
+     * Persists the given events atomically: either all of them are persisted
+     * or, e.g. in case of a version conflict, none of them.
+     */
+    Future<Void> persistAll(String streamType, List<Event> events);
+
     List<Event> events(String streamType, UUID id);
+
+    /**
+     * Returns the events of the given aggregate with a version equal to or
+     * larger than the given version, e.g. to replay the events after a snapshot.
+     */
+    List<Event> events(String streamType, UUID id, long fromVersion);
+
+    /**
+     * Returns the events of all the given aggregates, e.g. for building list
+     * views, keyed by aggregate id in the order of the given ids. Aggregates
+     * without events are mapped to an empty list. By default, the events of
+     * each aggregate are read one after another.
+     */
+    default Map<UUID, List<Event>> events(String streamType, Collection<UUID> ids) {
+        Map<UUID, List<Event>> events = new LinkedHashMap<>();
+
+        for (UUID id : ids) {
+            events.computeIfAbsent(id, i -> events(streamType, i));
+        }
+
+        return events;
+    }
+
+    /**
+     * Passes the events of each aggregate of the given stream type to the
+     * given consumer, e.g. for warming caches or rebuilding projections. The
+     * events of one aggregate are passed in one invocation, ordered by version.
+     * Stores may split the aggregates into the given number of ranges and scan
+     * them concurrently, so the consumer must be thread-safe. The returned
+     * future completes once all aggregates have been passed, or fails with the
+     * first exception raised by the scan or the consumer, which stops the scan.
+     */
+    CompletableFuture<Void> scan(String streamType, int ranges, BiConsumer<UUID, List<Event>> consumer);
+
+    /**
+     * Returns the events of the given aggregate with a version equal to or
+     * larger than the given version as a stream which reads them lazily, so
+     * that large aggregates can be processed without materializing all their
+     * events at once. The stream must be closed after use.
+     */
+    default Stream<Event> eventStream(String streamType, UUID id, long fromVersion) {
+        return events(streamType, id, fromVersion).stream();
+    }
+
+    /**
+     * Persists the given event, returning a stage which completes once it
+     * has been committed. By default, this is the future returned by
+     * {@link #persist(String, Event)} if that is a {@link CompletableFuture}, e.g. for
+     * stores which persist synchronously; otherwise, a thread of the common
+     * pool waits for it.
+     */
+    default CompletionStage<Void> persistAsync(String streamType, Event event) {
+        Future<Void> result = persist(streamType, event);
+
+        if (result instanceof CompletableFuture<Void> stage) {
+            return stage;
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return result.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for commit", e);
+            }
+            catch (ExecutionException e) {
+                throw new CompletionException(e.getCause());
+            }
+        });
+    }
+
+    default CompletionStage<List<Event>> eventsAsync(String streamType, UUID id) {
+        return eventsAsync(streamType, id, Event.VERSION_INIT);
+    }
+
+    /**
+     * Returns the events of the given aggregate with a version equal to or
+     * larger than the given version asynchronously. By default, they are read
+     * on the calling thread, which suits stores whose reads don't block, e.g.
+     * as they read from memory-mapped files.
+     */
+    default CompletionStage<List<Event>> eventsAsync(String streamType, UUID id, long fromVersion) {
+        try {
+            return CompletableFuture.completedFuture(events(streamType, id, fromVersion));
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
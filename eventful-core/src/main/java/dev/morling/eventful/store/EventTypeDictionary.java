@@ -0,0 +1,122 @@
+package dev.morling.eventful.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the event type names of one stream type to integer ids, persisted in
+ * the {@code EVENT_TYPES} table. New types are registered by the writer
+ * thread, as part of the transaction of the event using them.
+ */
+class EventTypeDictionary {
+
+    private final String streamType;
+    private final Map<String, Integer> idsByName;
+    private final Map<Integer, String> namesById;
+
+    private EventTypeDictionary(String streamType) {
+        this.streamType = streamType;
+        this.idsByName = new ConcurrentHashMap<>();
+        this.namesById = new ConcurrentHashMap<>();
+    }
+
+    static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    CREATE TABLE IF NOT EXISTS EVENT_TYPES (
+                    ID          INTEGER PRIMARY KEY,
+                    STREAM_TYPE TEXT    NOT NULL,
+                    NAME        TEXT    NOT NULL,
+                    UNIQUE (STREAM_TYPE, NAME)
+                  )
+                  """);
+        }
+    }
+
+    static EventTypeDictionary load(Connection connection, String streamType) throws SQLException {
+        EventTypeDictionary dictionary = new EventTypeDictionary(streamType);
+        dictionary.reload(connection);
+        return dictionary;
+    }
+
+    /**
+     * Re-reads the dictionary after a rolled back transaction, which may have
+     * registered types which don't exist anymore. Must only be called by the
+     * writer thread.
+     */
+    void reset(Connection writeConnection) throws SQLException {
+        idsByName.clear();
+        namesById.clear();
+        reload(writeConnection);
+    }
+
+    private void reload(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT ID, NAME FROM EVENT_TYPES WHERE STREAM_TYPE = ?")) {
+            statement.setString(1, streamType);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    idsByName.put(rs.getString(2), rs.getInt(1));
+                    namesById.put(rs.getInt(1), rs.getString(2));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the id of the given type, registering it if needed. Must only be
+     * called by the writer thread.
+     */
+    int register(Connection writeConnection, String name) throws SQLException {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            return id;
+        }
+
+        try (PreparedStatement statement = writeConnection.prepareStatement("INSERT OR IGNORE INTO EVENT_TYPES (STREAM_TYPE, NAME) VALUES (?, ?)")) {
+            statement.setString(1, streamType);
+            statement.setString(2, name);
+            statement.executeUpdate();
+        }
+
+        try (PreparedStatement statement = writeConnection.prepareStatement("SELECT ID FROM EVENT_TYPES WHERE STREAM_TYPE = ? AND NAME = ?")) {
+            statement.setString(1, streamType);
+            statement.setString(2, name);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                id = rs.getInt(1);
+            }
+        }
+
+        namesById.put(id, name);
+        idsByName.put(name, id);
+        return id;
+    }
+
+    int idOf(String name) {
+        Integer id = idsByName.get(name);
+        if (id == null) {
+            throw new IllegalStateException("Event type '%s' of stream type '%s' hasn't been registered".formatted(name, streamType));
+        }
+        return id;
+    }
+
+    String nameOf(Connection connection, int id) throws SQLException {
+        String name = namesById.get(id);
+        if (name == null) {
+            reload(connection);
+            name = namesById.get(id);
+
+            if (name == null) {
+                throw new IllegalStateException("Unknown event type id %s of stream type '%s'".formatted(id, streamType));
+            }
+        }
+        return name;
+    }
+}
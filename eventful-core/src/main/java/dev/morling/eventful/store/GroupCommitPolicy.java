@@ -0,0 +1,45 @@
+package dev.morling.eventful.store;
+
+import java.time.Duration;
+
+/**
+ * Controls how many work items the writer commits in one transaction.
+ *
+ * @param minBatchSize the lower bound for the batch size in adaptive mode
+ * @param maxBatchSize the maximum number of work items per transaction
+ * @param maxLinger how long the writer may wait for more work to arrive once
+ *        it has got some, if the batch isn't full yet; zero to commit right away
+ * @param targetCommitTime in adaptive mode, the batch size is decreased when
+ *        writing and committing a batch takes longer than this, and increased
+ *        when full batches take less; {@code null} for a fixed batch size
+ */
+public record GroupCommitPolicy(int minBatchSize, int maxBatchSize, Duration maxLinger, Duration targetCommitTime) {
+
+    public GroupCommitPolicy {
+        if (minBatchSize < 1 || maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Batch sizes must be larger than 0, and the minimum must not exceed the maximum");
+        }
+        if (maxLinger.isNegative()) {
+            throw new IllegalArgumentException("Linger time must not be negative");
+        }
+    }
+
+    public static GroupCommitPolicy defaults() {
+        return fixed(8192, Duration.ZERO);
+    }
+
+    public static GroupCommitPolicy fixed(int maxBatchSize, Duration maxLinger) {
+        return new GroupCommitPolicy(maxBatchSize, maxBatchSize, maxLinger, null);
+    }
+
+    public static GroupCommitPolicy adaptive(int minBatchSize, int maxBatchSize, Duration maxLinger, Duration targetCommitTime) {
+        if (targetCommitTime == null) {
+            throw new IllegalArgumentException("Adaptive policy requires a target commit time");
+        }
+        return new GroupCommitPolicy(minBatchSize, maxBatchSize, maxLinger, targetCommitTime);
+    }
+
+    public boolean isAdaptive() {
+        return targetCommitTime != null;
+    }
+}
@@ -0,0 +1,163 @@
+package dev.morling.eventful.store;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free, allocation-free histogram of non-negative long values with
+ * log-linear buckets: each power of two is split into eight sub-buckets, so
+ * recorded values are reported with a relative error of at most 12.5%.
+ * Histograms recorded by many threads can be striped, with each thread
+ * picking a set of buckets by its id, so that the threads don't contend for
+ * the same counters.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts;
+    private final int stripeMask;
+
+    public Histogram() {
+        this(1);
+    }
+
+    /**
+     * Creates a histogram with the given number of stripes, rounded up to the
+     * next power of two; each stripe takes about 4 KB.
+     */
+    public Histogram(int stripes) {
+        if (stripes < 1 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Number of stripes must be between 1 and 2^16");
+        }
+
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.counts = new AtomicLongArray(BUCKETS * size);
+        this.stripeMask = size - 1;
+    }
+
+    public void record(long value) {
+        int stripe = stripeMask == 0 ? 0 : (int) Thread.currentThread().threadId() & stripeMask;
+        counts.incrementAndGet(stripe * BUCKETS + indexOf(Math.max(0, value)));
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < counts.length(); i++) {
+            copy[i % BUCKETS] += counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowerBound = (1L << exponent) + ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+
+            long count = 0;
+            for (long bucketCount : counts) {
+                count += bucketCount;
+            }
+            this.count = count;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        /**
+         * Returns the values recorded between the given, earlier snapshot of the
+         * same histogram and this one, e.g. for reporting percentiles per
+         * interval rather than since the start. Reset histograms must not be
+         * passed, as their counts went down in between.
+         */
+        public Snapshot minus(Snapshot earlier) {
+            long[] difference = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                difference[i] = counts[i] - earlier.counts[i];
+            }
+            return new Snapshot(difference);
+        }
+
+        /**
+         * Returns the (upper bound of the bucket of the) value at the given
+         * quantile, e.g. 0.99 for the 99th percentile.
+         */
+        public long valueAt(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBoundOf(i);
+                }
+            }
+
+            return max();
+        }
+
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return upperBoundOf(i);
+                }
+            }
+            return 0;
+        }
+
+        public double mean() {
+            if (count == 0) {
+                return 0;
+            }
+
+            double sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    sum += (double) counts[i] * upperBoundOf(i);
+                }
+            }
+            return sum / count;
+        }
+
+        @Override
+        public String toString() {
+            return "count=%s, mean=%.1f, p50=%s, p90=%s, p99=%s, p999=%s, max=%s".formatted(count, mean(), valueAt(0.5), valueAt(0.9), valueAt(0.99),
+                    valueAt(0.999), max());
+        }
+    }
+}
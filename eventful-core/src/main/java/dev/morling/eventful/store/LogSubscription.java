@@ -0,0 +1,177 @@
+package dev.morling.eventful.store;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A subscription to the log of a {@link SqliteEventStore}, delivering events
+ * on a thread of its own. Events are read from the database while catching up;
+ * once the subscription has caught up, the writer hands over the events of
+ * each committed batch directly. If the subscription falls behind so that its
+ * queue of committed batches overflows, it catches up from the database again.
+ */
+class LogSubscription implements Subscription {
+
+    private static Logger LOGGER = System.getLogger(LogSubscription.class.getName());
+
+    static final int CATCH_UP_BATCH_SIZE = 1_000;
+
+    private static final int MAX_QUEUED_BATCHES = 1_024;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SqliteEventStore eventStore;
+    private final String streamType;
+    private final SubscriptionHandler handler;
+    private final BlockingQueue<List<LoggedEvent>> committedBatches;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile boolean waiting;
+    private volatile long position;
+
+    /**
+     * @param streamType the stream type to subscribe to, or {@code null} for all
+     */
+    LogSubscription(SqliteEventStore eventStore, String streamType, long fromPosition, SubscriptionHandler handler) {
+        if (fromPosition < LoggedEvent.POSITION_INIT) {
+            throw new IllegalArgumentException("Position must be at least " + LoggedEvent.POSITION_INIT);
+        }
+
+        this.eventStore = eventStore;
+        this.streamType = streamType;
+        this.handler = handler;
+        this.position = fromPosition;
+        this.committedBatches = new ArrayBlockingQueue<>(MAX_QUEUED_BATCHES);
+        this.thread = eventStore.newThread(this::run, "eventful-subscription-" + (streamType != null ? streamType : "all"));
+    }
+
+    void start() {
+        running = true;
+        thread.start();
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        eventStore.unsubscribe(this);
+        LockSupport.unpark(thread);
+
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Invoked by the writer thread after committing the given events.
+     */
+    void onCommitted(List<LoggedEvent> events) {
+        // if the queue is full, the batch gets read from the database later on
+        committedBatches.offer(events);
+
+        if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                List<LoggedEvent> events = committedBatches.poll();
+
+                if (events == null) {
+                    if (eventStore.committedPosition() >= position) {
+                        catchUp(Long.MAX_VALUE);
+                    }
+                    else {
+                        awaitCommit();
+                    }
+                    continue;
+                }
+
+                // already read from the database
+                if (events.get(events.size() - 1).position() < position) {
+                    continue;
+                }
+
+                // a batch got dropped or was committed before subscribing
+                if (events.get(0).position() > position) {
+                    catchUp(events.get(0).position());
+                }
+
+                deliver(events);
+            }
+        }
+        catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Closing subscription after failure of handler", e);
+            running = false;
+            eventStore.unsubscribe(this);
+        }
+    }
+
+    private void awaitCommit() {
+        waiting = true;
+        // re-check after announcing the wait, so no wake-up can get lost
+        if (committedBatches.isEmpty() && eventStore.committedPosition() < position && running) {
+            LockSupport.parkNanos(this, MAX_PARK_NANOS);
+        }
+        waiting = false;
+    }
+
+    /**
+     * Reads the events before the given position from the database, up to the
+     * latest committed one.
+     */
+    private void catchUp(long toPosition) {
+        while (running) {
+            // all the events up to that position are visible to the following read
+            long end = Math.min(toPosition, eventStore.committedPosition() + 1);
+            if (position >= end) {
+                return;
+            }
+
+            List<LoggedEvent> events = eventStore.readLog(streamType, position, end, CATCH_UP_BATCH_SIZE);
+
+            if (!events.isEmpty()) {
+                handler.onEvents(events);
+            }
+
+            position = events.size() == CATCH_UP_BATCH_SIZE ? events.get(events.size() - 1).position() + 1 : end;
+        }
+    }
+
+    private void deliver(List<LoggedEvent> events) {
+        long next = position;
+        List<LoggedEvent> delivered = events;
+
+        if (streamType != null || events.get(0).position() < next) {
+            delivered = new ArrayList<>(events.size());
+
+            for (LoggedEvent event : events) {
+                if (event.position() >= next && (streamType == null || streamType.equals(event.streamType()))) {
+                    delivered.add(event);
+                }
+            }
+        }
+
+        if (!delivered.isEmpty()) {
+            handler.onEvents(delivered);
+        }
+
+        position = events.get(events.size() - 1).position() + 1;
+    }
+}
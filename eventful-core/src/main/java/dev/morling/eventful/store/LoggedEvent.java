@@ -0,0 +1,12 @@
+package dev.morling.eventful.store;
+
+/**
+ * An event together with its stream type and position in the global log.
+ */
+public record LoggedEvent(long position, String streamType, Event event) {
+
+    /**
+     * The position of the first event in the log.
+     */
+    public static final long POSITION_INIT = 1;
+}
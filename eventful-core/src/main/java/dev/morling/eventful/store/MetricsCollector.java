@@ -0,0 +1,35 @@
+package dev.morling.eventful.store;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Receives the metrics of an event store via {@link StoreMetrics#collect(MetricsCollector)},
+ * e.g. for registering them with a metrics library. The given suppliers
+ * return the current values whenever they are invoked; they may be invoked
+ * from any thread and neither block nor slow down the store.
+ */
+public interface MetricsCollector {
+
+    /**
+     * A value which can go up and down, e.g. the depth of a queue.
+     */
+    void gauge(String name, String description, Map<String, String> tags, DoubleSupplier value);
+
+    /**
+     * A monotonically increasing count.
+     */
+    void counter(String name, String description, Map<String, String> tags, LongSupplier count);
+
+    /**
+     * A distribution of durations, recorded in nanoseconds.
+     */
+    void timer(String name, String description, Map<String, String> tags, Supplier<Histogram.Snapshot> snapshot);
+
+    /**
+     * A distribution of values in the given unit, e.g. "events".
+     */
+    void distribution(String name, String description, String baseUnit, Map<String, String> tags, Supplier<Histogram.Snapshot> snapshot);
+}
@@ -0,0 +1,132 @@
+package dev.morling.eventful.store;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, preallocated multi-producer/single-consumer queue, based on
+ * Dmitry Vyukov's bounded MPMC queue. Each slot carries a sequence number
+ * which tells producers whether the slot is free and the consumer whether it
+ * has been published.
+ */
+class MpscRingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail;
+
+    // only accessed by the consumer thread, apart from size()
+    private volatile long head;
+
+    MpscRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, larger than 1");
+        }
+
+        elements = new Object[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+        tail = new AtomicLong();
+    }
+
+    boolean offer(E element) {
+        long position = tail.get();
+
+        while (true) {
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            }
+            else if (difference < 0) {
+                return false;
+            }
+            else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} published elements into the given list. Must only
+     * be called by the consumer thread.
+     */
+    @SuppressWarnings("unchecked")
+    int drainTo(List<? super E> target, int max) {
+        long position = head;
+        int drained = 0;
+
+        while (drained < max) {
+            int index = (int) (position & mask);
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+
+            target.add((E) elements[index]);
+            elements[index] = null;
+            sequences.set(index, position + mask + 1);
+            position++;
+            drained++;
+        }
+
+        head = position;
+        return drained;
+    }
+
+    /**
+     * Moves all the elements claimed so far into the given list, waiting for
+     * those not published yet, e.g. after the consumer has stopped polling.
+     * Must only be called by the consumer thread; elements claimed after this
+     * method has read the tail aren't moved.
+     */
+    @SuppressWarnings("unchecked")
+    int drainAll(List<? super E> target) {
+        long position = head;
+        long limit = tail.get();
+
+        while (position < limit) {
+            int index = (int) (position & mask);
+            // the producer has claimed the slot, but may not have published it yet
+            while (sequences.get(index) != position + 1) {
+                Thread.onSpinWait();
+            }
+
+            target.add((E) elements[index]);
+            elements[index] = null;
+            sequences.set(index, position + mask + 1);
+            position++;
+        }
+
+        int drained = (int) (position - head);
+        head = position;
+        return drained;
+    }
+
+    /**
+     * Whether the next element hasn't been published yet; a producer may have
+     * claimed its slot already, though.
+     */
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,20 @@
+package dev.morling.eventful.store;
+
+/**
+ * How {@link SqliteEventStore} treats the configured database file on start.
+ */
+public enum OpenMode {
+
+    /**
+     * Replaces an existing database with an empty one.
+     */
+    CREATE,
+
+    /**
+     * Opens an existing database, resuming its stream types with their
+     * layout, type dictionary and latest compression dictionary, and its log
+     * after the largest existing position. Creates an empty database if
+     * there is none yet.
+     */
+    OPEN;
+}
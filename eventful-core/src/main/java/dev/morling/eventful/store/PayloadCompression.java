@@ -0,0 +1,179 @@
+package dev.morling.eventful.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import dev.morling.eventful.codec.PayloadCompressor;
+import dev.morling.eventful.codec.PayloadCompressor.Compression;
+import dev.morling.eventful.codec.PayloadCompressors;
+
+/**
+ * Compresses and decompresses the payloads of one stream type. How a payload
+ * has been compressed is stored in the {@code COMPRESSION} column of each
+ * event: 0 if it hasn't been compressed, otherwise the id of the compressor in
+ * the lowest eight bits and the version of the dictionary, if any, in the bits
+ * above. Dictionaries are stored in the {@code COMPRESSION_DICTIONARIES}
+ * table, with their id as version; they are immutable, so events compressed
+ * with older dictionaries remain readable after training a new one.
+ */
+class PayloadCompression {
+
+    static final int NONE = 0;
+
+    private final String streamType;
+    private final PayloadCompressor compressor;
+    private final int threshold;
+    private final Map<Integer, Compression> compressions;
+    private volatile Active active;
+
+    /**
+     * The compression used for new events, along with the value stored for them.
+     */
+    record Active(int code, Compression compression) {
+    }
+
+    /**
+     * Creates a compression for the given stream type, compressing payloads of
+     * at least {@code threshold} bytes with the given compressor, or none if it
+     * is {@code null}; payloads are decompressed in any case.
+     */
+    PayloadCompression(String streamType, PayloadCompressor compressor, int threshold) {
+        this.streamType = streamType;
+        this.compressor = compressor;
+        this.threshold = threshold;
+        this.compressions = new ConcurrentHashMap<>();
+
+        if (compressor != null) {
+            int code = compressor.id();
+            active = new Active(code, compressor.withDictionary(null));
+            compressions.put(code, active.compression());
+        }
+    }
+
+    static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("""
+                    CREATE TABLE IF NOT EXISTS COMPRESSION_DICTIONARIES (
+                    ID          INTEGER PRIMARY KEY,
+                    STREAM_TYPE TEXT    NOT NULL,
+                    COMPRESSOR  INTEGER NOT NULL,
+                    DICTIONARY  BLOB    NOT NULL
+                  )
+                  """);
+        }
+    }
+
+    /**
+     * Stores the given dictionary and returns its version.
+     */
+    static int saveDictionary(Connection connection, String streamType, PayloadCompressor compressor, byte[] dictionary) throws SQLException {
+        createTable(connection);
+
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO COMPRESSION_DICTIONARIES (STREAM_TYPE, COMPRESSOR, DICTIONARY) VALUES (?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            statement.setString(1, streamType);
+            statement.setInt(2, compressor.id());
+            statement.setBytes(3, dictionary);
+            statement.executeUpdate();
+
+            try (ResultSet rs = statement.getGeneratedKeys()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    PayloadCompressor compressor() {
+        return compressor;
+    }
+
+    int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Returns the compression for payloads of the given size, or {@code null}
+     * if they should be stored as they are.
+     */
+    Active activeFor(int size) {
+        return size >= threshold ? active : null;
+    }
+
+    /**
+     * Compresses new events with the given dictionary from now on.
+     */
+    void activate(int version, byte[] dictionary) {
+        int code = compressor.id() | version << 8;
+        Compression compression = compressor.withDictionary(dictionary);
+
+        compressions.put(code, compression);
+        active = new Active(code, compression);
+    }
+
+    /**
+     * Compresses new events with the latest stored dictionary of this stream
+     * type and compressor, if there is any, e.g. after reopening a database.
+     */
+    void activateLatest(Connection connection) throws SQLException {
+        if (compressor == null) {
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT name FROM sqlite_master WHERE type = 'table' AND name = 'COMPRESSION_DICTIONARIES'");
+                ResultSet rs = statement.executeQuery()) {
+            if (!rs.next()) {
+                return;
+            }
+        }
+
+        try (PreparedStatement statement = connection
+                .prepareStatement("SELECT ID, DICTIONARY FROM COMPRESSION_DICTIONARIES WHERE STREAM_TYPE = ? AND COMPRESSOR = ? ORDER BY ID DESC LIMIT 1")) {
+            statement.setString(1, streamType);
+            statement.setInt(2, compressor.id());
+
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    activate(rs.getInt(1), rs.getBytes(2));
+                }
+            }
+        }
+    }
+
+    byte[] decompress(Connection connection, int code, byte[] data) throws SQLException {
+        Compression compression = compressions.get(code);
+
+        if (compression == null) {
+            compression = load(connection, code);
+        }
+
+        return compression.decompress(data);
+    }
+
+    private Compression load(Connection connection, int code) throws SQLException {
+        PayloadCompressor compressor = PayloadCompressors.forId(code & 0xFF);
+        int version = code >>> 8;
+        byte[] dictionary = null;
+
+        if (version != 0) {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT DICTIONARY FROM COMPRESSION_DICTIONARIES WHERE ID = ?")) {
+                statement.setInt(1, version);
+
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new IllegalStateException("Unknown compression dictionary %s of stream type '%s'".formatted(version, streamType));
+                    }
+                    dictionary = rs.getBytes(1);
+                }
+            }
+        }
+
+        Compression compression = compressor.withDictionary(dictionary);
+        compressions.putIfAbsent(code, compression);
+        return compression;
+    }
+}
@@ -0,0 +1,30 @@
+package dev.morling.eventful.store;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emitted by the writer thread for each work item taken from the queue, with
+ * the time the item has been waiting there.
+ */
+@Name("dev.morling.eventful.QueueWait")
+@Label("Queue Wait")
+@Category({ "Eventful", "Writer" })
+@Description("Time a work item has spent in the writer's queue")
+@StackTrace(false)
+class QueueWaitEvent extends jdk.jfr.Event {
+
+    @Label("Stream Type")
+    String streamType;
+
+    @Label("Events")
+    int events;
+
+    @Label("Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long waitTime;
+}
@@ -0,0 +1,231 @@
+package dev.morling.eventful.store;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * A fixed-size pool of read-only connections. In WAL mode, readers don't block
+ * each other nor the writer, so concurrent reads scale with the number of
+ * connections. The connections are in auto-commit mode, i.e. each query runs
+ * in its own read transaction and sees all the events committed before it.
+ * <p>
+ * Optionally, callers first wait for one of a fixed number of permits, which
+ * are granted in FIFO order; this keeps tail latencies in check when many
+ * (virtual) threads read concurrently, as the connection queue itself doesn't
+ * guarantee any ordering.
+ */
+class ReadConnectionPool {
+
+    private final String url;
+    private final SQLiteConfig config;
+    private final List<String> pragmas;
+    private final BlockingQueue<ReadConnection> idle;
+    private final List<ReadConnection> connections;
+    private final Semaphore permits;
+    private final Duration timeout;
+
+    /**
+     * @param permits the number of permits, or 0 for not using any
+     * @param timeout how long to wait for a permit and connection
+     */
+    ReadConnectionPool(String url, int size, int permits, Duration timeout, List<String> pragmas) throws SQLException {
+        this.url = url;
+        this.config = new SQLiteConfig();
+        this.config.setReadOnly(true);
+        this.pragmas = pragmas;
+
+        idle = new ArrayBlockingQueue<>(size);
+        connections = new ArrayList<>(size);
+        this.permits = permits > 0 ? new Semaphore(permits, true) : null;
+        this.timeout = timeout;
+
+        for (int i = 0; i < size; i++) {
+            ReadConnection connection = new ReadConnection(open());
+
+            connections.add(connection);
+            idle.add(connection);
+        }
+    }
+
+    /**
+     * Opens a read-only connection like the pooled ones but outside of the
+     * pool, e.g. for long-running scans which mustn't take away connections
+     * from other readers. The connection must be closed after use.
+     */
+    Connection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, config.toProperties());
+
+        try (Statement statement = connection.createStatement()) {
+            for (String pragma : pragmas) {
+                statement.execute(pragma);
+            }
+        }
+        catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+
+        return connection;
+    }
+
+    /**
+     * Takes a connection from the pool, waiting for one to be released if
+     * needed, but not longer than the configured timeout. The connection must
+     * be {@link #release(ReadConnection) released} after use.
+     */
+    ReadConnection acquire() {
+        long deadline = System.nanoTime() + timeout.toNanos();
+
+        try {
+            if (permits != null && !permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Timed out after %s waiting for a read permit".formatted(timeout));
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a read permit", e);
+        }
+
+        ReadConnection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+
+        try {
+            connection = idle.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            if (permits != null) {
+                permits.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a read connection", e);
+        }
+
+        if (connection == null) {
+            if (permits != null) {
+                permits.release();
+            }
+            throw new IllegalStateException(("Timed out after %s waiting for one of %s read connections; "
+                    + "the caller may hold on to another one itself, e.g. in an open event stream").formatted(timeout, connections.size()));
+        }
+
+        return connection;
+    }
+
+    void release(ReadConnection connection) {
+        idle.add(connection);
+
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    void close() throws SQLException {
+        for (ReadConnection connection : connections) {
+            connection.close();
+        }
+    }
+
+    /**
+     * A pooled connection, with the statements prepared on it; only used by
+     * one thread at a time.
+     */
+    static class ReadConnection {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> eventsStatements;
+        private final Map<String, PreparedStatement> multiEventsStatements;
+        private final Map<String, PreparedStatement> logStatements;
+
+        private ReadConnection(Connection connection) {
+            this.connection = connection;
+            this.eventsStatements = new HashMap<>();
+            this.multiEventsStatements = new HashMap<>();
+            this.logStatements = new HashMap<>();
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Returns the statement selecting the events of one aggregate, starting
+         * at a given version, with the columns of {@link StreamTable#EVENT_COLUMNS}.
+         */
+        PreparedStatement eventsStatement(String streamType) throws SQLException {
+            PreparedStatement statement = eventsStatements.get(streamType);
+
+            if (statement == null) {
+                statement = connection.prepareStatement("SELECT %s FROM %s WHERE AGGREGATE_ID = ? AND VERSION >= ? ORDER BY VERSION"
+                        .formatted(StreamTable.EVENT_COLUMNS, streamType));
+                eventsStatements.put(streamType, statement);
+            }
+
+            return statement;
+        }
+
+        /**
+         * Returns the statement selecting all the events of the given number of
+         * aggregates, ordered by aggregate id and version, with the columns of
+         * {@link StreamTable#EVENT_COLUMNS}.
+         */
+        PreparedStatement eventsStatement(String streamType, int ids) throws SQLException {
+            String key = streamType + "/" + ids;
+            PreparedStatement statement = multiEventsStatements.get(key);
+
+            if (statement == null) {
+                String parameters = String.join(", ", Collections.nCopies(ids, "?"));
+                statement = connection.prepareStatement("SELECT %s FROM %s WHERE AGGREGATE_ID IN (%s) ORDER BY AGGREGATE_ID, VERSION"
+                        .formatted(StreamTable.EVENT_COLUMNS, streamType, parameters));
+                multiEventsStatements.put(key, statement);
+            }
+
+            return statement;
+        }
+
+        /**
+         * Returns the statement selecting a range of positions of the log, with
+         * the columns of {@link StreamTable#LOG_COLUMNS}.
+         */
+        PreparedStatement logStatement(String streamType) throws SQLException {
+            PreparedStatement statement = logStatements.get(streamType);
+
+            if (statement == null) {
+                statement = connection.prepareStatement("SELECT %s FROM %s WHERE POSITION >= ? AND POSITION < ? ORDER BY POSITION LIMIT ?"
+                        .formatted(StreamTable.LOG_COLUMNS, streamType));
+                logStatements.put(streamType, statement);
+            }
+
+            return statement;
+        }
+
+        private void close() throws SQLException {
+            for (PreparedStatement statement : eventsStatements.values()) {
+                statement.close();
+            }
+            for (PreparedStatement statement : multiEventsStatements.values()) {
+                statement.close();
+            }
+            for (PreparedStatement statement : logStatements.values()) {
+                statement.close();
+            }
+            connection.close();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package dev.morling.eventful.store;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Emitted for each read of the events of an aggregate, spanning the query and
+ * the reading of all rows; for streams until they are closed or exhausted.
+ */
+@Name("dev.morling.eventful.Read")
+@Label("Read")
+@Category({ "Eventful", "Reader" })
+@Description("A read of the events of one aggregate")
+@StackTrace(false)
+class ReadEvent extends jdk.jfr.Event {
+
+    @Label("Stream Type")
+    String streamType;
+
+    @Label("Aggregate Id")
+    String aggregateId;
+
+    @Label("From Version")
+    long fromVersion;
+
+    @Label("Rows")
+    int rows;
+}
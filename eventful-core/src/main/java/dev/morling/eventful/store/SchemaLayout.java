@@ -0,0 +1,21 @@
+package dev.morling.eventful.store;
+
+/**
+ * The table layout used for storing the events of a stream type.
+ */
+public enum SchemaLayout {
+
+    /**
+     * UUIDs stored as 36 character strings, in a rowid table with a separate
+     * unique index on {@code (AGGREGATE_ID, VERSION)}.
+     */
+    TEXT,
+
+    /**
+     * UUIDs stored as 16 byte blobs, in a {@code WITHOUT ROWID} table clustered
+     * by its primary key {@code (AGGREGATE_ID, VERSION)}, so that the events of
+     * an aggregate are stored next to each other and reads don't need an
+     * additional lookup from the index to the table.
+     */
+    BINARY;
+}
@@ -0,0 +1,203 @@
+package dev.morling.eventful.store;
+
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.sqlite.SQLiteConfig;
+
+import dev.morling.eventful.codec.PayloadCodecs;
+
+/**
+ * Copies an existing event store database into a new one, converting all
+ * stream tables to the given {@link SchemaLayout}, with or without an event
+ * type dictionary. The layout of the source tables is detected from their
+ * definitions; all other tables (e.g. snapshots) are copied as they are.
+ * Log positions are retained; events of tables without positions are assigned
+ * new ones after the largest existing position, in insertion order. Compressed
+ * payloads are decompressed.
+ * <p>
+ * Usage: {@code SchemaMigration <source db> <target db> <TEXT|BINARY> [--event-type-dictionary]}
+ */
+public class SchemaMigration {
+
+    private static Logger LOGGER = System.getLogger(SchemaMigration.class.getName());
+
+    private static final int ROWS_PER_TRANSACTION = 10_000;
+
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4 || (args.length == 4 && !args[3].equals("--event-type-dictionary"))) {
+            System.err.println("Usage: SchemaMigration <source db> <target db> <TEXT|BINARY> [--event-type-dictionary]");
+            System.exit(1);
+        }
+
+        migrate(Path.of(args[0]), Path.of(args[1]), SchemaLayout.valueOf(args[2].toUpperCase()), args.length == 4);
+    }
+
+    public static void migrate(Path source, Path target, SchemaLayout layout, boolean eventTypeDictionary) {
+        if (!Files.exists(source)) {
+            throw new IllegalArgumentException("Source database '%s' doesn't exist".formatted(source));
+        }
+        if (Files.exists(target)) {
+            throw new IllegalArgumentException("Target database '%s' exists already".formatted(target));
+        }
+
+        SQLiteConfig sourceConfig = new SQLiteConfig();
+        sourceConfig.setReadOnly(true);
+
+        try (Connection sourceConn = DriverManager.getConnection("jdbc:sqlite:" + source, sourceConfig.toProperties());
+                Connection targetConn = DriverManager.getConnection("jdbc:sqlite:" + target)) {
+
+            try (Statement statement = targetConn.createStatement()) {
+                statement.executeUpdate("pragma journal_mode=wal");
+            }
+
+            targetConn.setAutoCommit(false);
+
+            List<String> tables = tables(sourceConn);
+            long[] nextPosition = { maxPosition(sourceConn, tables) + 1 };
+
+            for (String table : tables) {
+                if (StreamTable.isStreamTable(sourceConn, table)) {
+                    migrateStreamTable(sourceConn, targetConn, table, layout, eventTypeDictionary, nextPosition);
+                }
+                else {
+                    copyTable(sourceConn, targetConn, table);
+                }
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't migrate database", e);
+        }
+    }
+
+    private static List<String> tables(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%' AND name NOT IN ('EVENT_TYPES', 'COMPRESSION_DICTIONARIES')")) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+
+        return tables;
+    }
+
+    private static long maxPosition(Connection connection, List<String> tables) throws SQLException {
+        long maxPosition = 0;
+
+        for (String table : tables) {
+            if (StreamTable.isStreamTable(connection, table) && StreamTable.hasPosition(connection, table)) {
+                try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery("SELECT MAX(POSITION) FROM " + table)) {
+                    if (rs.next()) {
+                        maxPosition = Math.max(maxPosition, rs.getLong(1));
+                    }
+                }
+            }
+        }
+
+        return maxPosition;
+    }
+
+    private static void migrateStreamTable(Connection sourceConn, Connection targetConn, String streamType, SchemaLayout layout, boolean eventTypeDictionary,
+                                           long[] nextPosition)
+            throws SQLException {
+        SchemaLayout sourceLayout = StreamTable.detectLayout(sourceConn, streamType);
+        EventTypeDictionary sourceDictionary = StreamTable.detectTypeDictionary(sourceConn, streamType) ? EventTypeDictionary.load(sourceConn, streamType) : null;
+
+        LOGGER.log(Level.INFO, "Migrating stream type {0} from layout {1} to {2}", streamType, sourceLayout, layout);
+
+        StreamTable.createTable(targetConn, streamType, layout, eventTypeDictionary);
+        targetConn.commit();
+
+        EventTypeDictionary targetDictionary = eventTypeDictionary ? EventTypeDictionary.load(targetConn, streamType) : null;
+        StreamTable sourceTable = new StreamTable(sourceConn, streamType, sourceLayout, sourceDictionary, new PayloadCompression(streamType, null, 0), null);
+        StreamTable targetTable = new StreamTable(targetConn, streamType, layout, targetDictionary, new PayloadCompression(streamType, null, 0), null);
+        boolean hasPosition = StreamTable.hasPosition(sourceConn, streamType);
+        String columns = hasPosition ? StreamTable.LOG_COLUMNS : StreamTable.EVENT_COLUMNS;
+
+        // tables without codec only contain JSON
+        if (!StreamTable.hasCodec(sourceConn, streamType)) {
+            columns = columns.replace("CODEC", PayloadCodecs.JSON_ID + " AS CODEC");
+        }
+        if (!StreamTable.hasCompression(sourceConn, streamType)) {
+            columns = columns.replace("COMPRESSION", PayloadCompression.NONE + " AS COMPRESSION");
+        }
+
+        String query = hasPosition ? "SELECT %s FROM %s ORDER BY POSITION".formatted(columns, streamType)
+                : sourceLayout == SchemaLayout.TEXT ? "SELECT %s FROM %s ORDER BY rowid".formatted(columns, streamType)
+                        : "SELECT %s FROM %s ORDER BY AGGREGATE_ID, VERSION".formatted(columns, streamType);
+        long rows = 0;
+
+        try (Statement statement = sourceConn.createStatement(); ResultSet rs = statement.executeQuery(query)) {
+            while (rs.next()) {
+                Event event = sourceTable.readEvent(sourceConn, rs);
+                long position = hasPosition ? rs.getLong(8) : nextPosition[0]++;
+
+                if (targetDictionary != null) {
+                    targetDictionary.register(targetConn, event.type());
+                }
+                targetTable.insert(event, position);
+
+                if (++rows % ROWS_PER_TRANSACTION == 0) {
+                    targetConn.commit();
+                }
+            }
+        }
+        finally {
+            sourceTable.close();
+            targetTable.close();
+        }
+
+        targetConn.commit();
+
+        LOGGER.log(Level.INFO, "Migrated {0} events of stream type {1}", rows, streamType);
+    }
+
+    private static void copyTable(Connection sourceConn, Connection targetConn, String table) throws SQLException {
+        LOGGER.log(Level.INFO, "Copying table {0}", table);
+
+        try (PreparedStatement statement = sourceConn.prepareStatement("SELECT sql FROM sqlite_master WHERE tbl_name = ? AND sql IS NOT NULL ORDER BY type DESC")) {
+            statement.setString(1, table);
+
+            // the table ('table') is created before its indexes ('index')
+            try (ResultSet rs = statement.executeQuery(); Statement ddlStatement = targetConn.createStatement()) {
+                while (rs.next()) {
+                    ddlStatement.executeUpdate(rs.getString(1));
+                }
+            }
+        }
+
+        try (Statement statement = sourceConn.createStatement(); ResultSet rs = statement.executeQuery("SELECT * FROM " + table)) {
+            int columns = rs.getMetaData().getColumnCount();
+            String placeholders = String.join(", ", Collections.nCopies(columns, "?"));
+            long rows = 0;
+
+            try (PreparedStatement insertStatement = targetConn.prepareStatement("INSERT INTO %s VALUES (%s)".formatted(table, placeholders))) {
+                while (rs.next()) {
+                    for (int i = 1; i <= columns; i++) {
+                        insertStatement.setObject(i, rs.getObject(i));
+                    }
+                    insertStatement.executeUpdate();
+
+                    if (++rows % ROWS_PER_TRANSACTION == 0) {
+                        targetConn.commit();
+                    }
+                }
+            }
+        }
+
+        targetConn.commit();
+    }
+}
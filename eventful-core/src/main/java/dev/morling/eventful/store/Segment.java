@@ -0,0 +1,114 @@
+package dev.morling.eventful.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped file of a {@link SegmentEventStore}. Segments are
+ * preallocated to their full size; the unused remainder is zeroed, so a
+ * record length of 0 marks the end of the data. Reads use absolute accessors
+ * of the shared buffer and thus may happen concurrently with each other and
+ * with the single writer.
+ */
+class Segment {
+
+    static final int HEADER_SIZE = 8;
+
+    private static final int MAGIC = 0x45564C47;
+    private static final int FORMAT_VERSION = 1;
+    private static final byte[] ZEROS = new byte[8192];
+
+    private final int index;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private Segment(int index, FileChannel channel, MappedByteBuffer buffer) {
+        this.index = index;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    static Path path(Path directory, int index) {
+        return directory.resolve("%020d.segment".formatted(index));
+    }
+
+    static Segment create(Path directory, int index, int size) throws IOException {
+        Path path = path(directory, index);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, size);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, FORMAT_VERSION);
+        buffer.force(0, HEADER_SIZE);
+
+        return new Segment(index, channel, buffer);
+    }
+
+    /**
+     * Opens an existing segment; returns {@code null} if the file isn't a
+     * segment, e.g. because it got created but its header was never written.
+     */
+    static Segment open(Path path, int index) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+            channel.close();
+            return null;
+        }
+
+        MappedByteBuffer buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            channel.close();
+            return null;
+        }
+
+        return new Segment(index, channel, buffer);
+    }
+
+    int index() {
+        return index;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    int getInt(int offset) {
+        return buffer.getInt(offset);
+    }
+
+    byte[] read(int offset, int length) {
+        byte[] data = new byte[length];
+        buffer.get(offset, data);
+        return data;
+    }
+
+    void write(int offset, byte[] data) {
+        buffer.put(offset, data);
+    }
+
+    /**
+     * Zeroes everything from the given offset to the end of the segment.
+     */
+    void truncate(int offset) {
+        for (int position = offset; position < buffer.capacity(); position += ZEROS.length) {
+            buffer.put(position, ZEROS, 0, Math.min(ZEROS.length, buffer.capacity() - position));
+        }
+
+        buffer.force();
+    }
+
+    void force(int offset, int length) {
+        buffer.force(offset, length);
+    }
+
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,560 @@
+package dev.morling.eventful.store;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * An event store appending the events of all stream types to one log of
+ * memory-mapped segment files, without any SQL or JNI on the write and read
+ * paths. Events are located via an in-memory index of the record offsets and
+ * versions per aggregate, which is rebuilt from the log on open.
+ * <p>
+ * Each record is prefixed with the length of its body and a CRC32C checksum
+ * of it. The body holds the record kind (event or stream type), flags, the
+ * stream type and the event; the last record of each batch is flagged as
+ * such, and batches never span segments. On open, the log is scanned and
+ * everything after the last complete batch with valid checksums, e.g. a
+ * batch torn by a crash, is truncated.
+ * <p>
+ * Events are written by the persisting thread, under a lock; their futures
+ * are complete upon return.
+ */
+public class SegmentEventStore implements EventStore {
+
+    private static Logger LOGGER = System.getLogger(SegmentEventStore.class.getName());
+
+    // body length and checksum
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte KIND_EVENT = 1;
+    private static final byte KIND_STREAM_TYPE = 2;
+    private static final byte FLAG_END_OF_BATCH = 1;
+
+    private final SegmentEventStoreOptions options;
+    private final List<Segment> segments;
+    private final Map<String, Map<UUID, AggregateEntry>> streams;
+    private final ReentrantLock writeLock;
+    private volatile boolean running;
+
+    // guarded by the write lock
+    private Segment current;
+    private int writePosition;
+
+    public SegmentEventStore() {
+        this(SegmentEventStoreOptions.defaults());
+    }
+
+    public SegmentEventStore(SegmentEventStoreOptions options) {
+        this.options = options;
+        this.segments = new CopyOnWriteArrayList<>();
+        this.streams = new ConcurrentHashMap<>();
+        this.writeLock = new ReentrantLock();
+
+        try {
+            Files.createDirectories(options.directory());
+            recover();
+
+            if (current == null) {
+                current = Segment.create(options.directory(), 0, options.segmentSize());
+                segments.add(current);
+                writePosition = Segment.HEADER_SIZE;
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Couldn't open segments in " + options.directory(), e);
+        }
+
+        running = true;
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+
+        try {
+            running = false;
+
+            for (Segment segment : segments) {
+                segment.close();
+            }
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Couldn't close segments", e);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void initialize(String streamType) {
+        byte[] record = encodeStreamType(streamType);
+        writeLock.lock();
+
+        try {
+            if (streams.containsKey(streamType)) {
+                throw new IllegalArgumentException("Stream type '%s' already exists".formatted(streamType));
+            }
+
+            append(List.of(record), record.length);
+            streams.put(streamType, new ConcurrentHashMap<>());
+        }
+        catch (IOException e) {
+            throw new IllegalStateException("Couldn't initialize stream type " + streamType, e);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Future<Void> persist(String streamType, Event event) {
+        return persistAll(streamType, List.of(event));
+    }
+
+    /**
+     * Persists the given events atomically; if the version of any of the
+     * events conflicts, none of them is persisted. The versions of the events
+     * of one aggregate must be increasing.
+     */
+    @Override
+    public Future<Void> persistAll(String streamType, List<Event> events) {
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<UUID, AggregateEntry> stream = streams.get(streamType);
+
+        if (stream == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType)));
+        }
+
+        // encoded before taking the lock, so that only the copying is serialized
+        List<byte[]> records = new ArrayList<>(events.size());
+        int size = 0;
+
+        for (int i = 0; i < events.size(); i++) {
+            byte[] record = encodeEvent(streamType, events.get(i), i == events.size() - 1);
+            records.add(record);
+            size += record.length;
+        }
+
+        if (size > options.segmentSize() - Segment.HEADER_SIZE) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Batch of %s bytes exceeds the segment size".formatted(size)));
+        }
+
+        writeLock.lock();
+
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Store is stopped already"));
+            }
+
+            RuntimeException conflict = validateVersions(streamType, stream, events);
+            if (conflict != null) {
+                return CompletableFuture.failedFuture(conflict);
+            }
+
+            long[] locations = append(records, size);
+
+            for (int i = 0; i < events.size(); i++) {
+                Event event = events.get(i);
+                stream.computeIfAbsent(event.aggregateId(), id -> new AggregateEntry()).append(event.version(), locations[i]);
+            }
+
+            return CompletableFuture.completedFuture(null);
+        }
+        catch (IOException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Couldn't persist event", e));
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Checks that the events follow upon the latest persisted versions of
+     * their aggregates, or upon their predecessors in the batch; returns the
+     * exception describing the first conflict, if any.
+     */
+    private RuntimeException validateVersions(String streamType, Map<UUID, AggregateEntry> stream, List<Event> events) {
+        Map<UUID, Long> pendingVersions = events.size() > 1 ? new HashMap<>() : null;
+
+        for (Event event : events) {
+            Long pendingVersion = pendingVersions != null ? pendingVersions.get(event.aggregateId()) : null;
+            long maxVersion;
+
+            if (pendingVersion != null) {
+                maxVersion = pendingVersion;
+            }
+            else {
+                AggregateEntry entry = stream.get(event.aggregateId());
+                maxVersion = entry != null ? entry.latestVersion() : 0;
+            }
+
+            if (event.version() < maxVersion) {
+                return new InconsistentVersionException(streamType, event.aggregateId(), event.version());
+            }
+            else if (event.version() == maxVersion) {
+                return new DuplicateVersionException(streamType, event.aggregateId(), event.version());
+            }
+
+            if (pendingVersions != null) {
+                pendingVersions.put(event.aggregateId(), event.version());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Appends the given records to the current segment, rolling over to a new
+     * one if they don't fit. Returns the locations of the records, i.e. the
+     * segment index in the upper and the offset in the lower 32 bits.
+     */
+    private long[] append(List<byte[]> records, int size) throws IOException {
+        if (writePosition + size > current.capacity()) {
+            current = Segment.create(options.directory(), current.index() + 1, options.segmentSize());
+            segments.add(current);
+            writePosition = Segment.HEADER_SIZE;
+        }
+
+        long[] locations = new long[records.size()];
+        int position = writePosition;
+
+        for (int i = 0; i < records.size(); i++) {
+            locations[i] = (long) current.index() << 32 | position;
+            current.write(position, records.get(i));
+            position += records.get(i).length;
+        }
+
+        if (options.syncWrites()) {
+            current.force(writePosition, size);
+        }
+
+        writePosition = position;
+        return locations;
+    }
+
+    @Override
+    public List<Event> events(String streamType, UUID id) {
+        return events(streamType, id, Event.VERSION_INIT);
+    }
+
+    @Override
+    public List<Event> events(String streamType, UUID id, long fromVersion) {
+        Map<UUID, AggregateEntry> stream = streams.get(streamType);
+
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+
+        AggregateEntry entry = stream.get(id);
+        List<Event> events = new ArrayList<>();
+
+        if (entry == null) {
+            return events;
+        }
+
+        // the count is read first; the arrays hold at least that many entries
+        int count = entry.count;
+        long[] versions = entry.versions;
+        long[] locations = entry.locations;
+
+        int from = Arrays.binarySearch(versions, 0, count, fromVersion);
+        if (from < 0) {
+            from = -from - 1;
+        }
+
+        for (int i = from; i < count; i++) {
+            events.add(read(locations[i], id));
+        }
+
+        return events;
+    }
+
+    /**
+     * Returns a stream reading the events lazily from the segments.
+     */
+    @Override
+    public Stream<Event> eventStream(String streamType, UUID id, long fromVersion) {
+        Map<UUID, AggregateEntry> stream = streams.get(streamType);
+
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+
+        AggregateEntry entry = stream.get(id);
+
+        if (entry == null) {
+            return Stream.empty();
+        }
+
+        int count = entry.count;
+        long[] versions = entry.versions;
+        long[] locations = entry.locations;
+
+        int from = Arrays.binarySearch(versions, 0, count, fromVersion);
+        if (from < 0) {
+            from = -from - 1;
+        }
+
+        return Arrays.stream(locations, from, count).mapToObj(location -> read(location, id));
+    }
+
+    /**
+     * Passes the aggregates one after another on the calling thread, as the
+     * events are read from memory; the number of ranges is ignored.
+     */
+    @Override
+    public CompletableFuture<Void> scan(String streamType, int ranges, BiConsumer<UUID, List<Event>> consumer) {
+        Map<UUID, AggregateEntry> stream = streams.get(streamType);
+
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+
+        try {
+            for (UUID id : stream.keySet()) {
+                consumer.accept(id, events(streamType, id));
+            }
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private Event read(long location, UUID aggregateId) {
+        Segment segment = segments.get((int) (location >>> 32));
+        int offset = (int) location;
+        ByteBuffer body = ByteBuffer.wrap(segment.read(offset + RECORD_HEADER_SIZE, segment.getInt(offset)));
+
+        // skips kind, flags, stream type and aggregate id
+        int streamTypeLength = body.getShort(2);
+        body.position(4 + streamTypeLength + 16);
+
+        UUID id = new UUID(body.getLong(), body.getLong());
+        long version = body.getLong();
+        int codec = body.getInt();
+        String type = getString(body);
+        byte[] data = new byte[body.getInt()];
+        body.get(data);
+
+        return new Event(type, id, aggregateId, version, codec, data);
+    }
+
+    private static byte[] encodeEvent(String streamType, Event event, boolean endOfBatch) {
+        byte[] streamTypeBytes = streamType.getBytes(StandardCharsets.UTF_8);
+        byte[] typeBytes = event.type().getBytes(StandardCharsets.UTF_8);
+        int bodySize = 2 + 2 + streamTypeBytes.length + 16 + 16 + 8 + 4 + 2 + typeBytes.length + 4 + event.data().length;
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodySize);
+        record.position(RECORD_HEADER_SIZE);
+        record.put(KIND_EVENT);
+        record.put(endOfBatch ? FLAG_END_OF_BATCH : 0);
+        record.putShort((short) streamTypeBytes.length).put(streamTypeBytes);
+        record.putLong(event.aggregateId().getMostSignificantBits()).putLong(event.aggregateId().getLeastSignificantBits());
+        record.putLong(event.id().getMostSignificantBits()).putLong(event.id().getLeastSignificantBits());
+        record.putLong(event.version());
+        record.putInt(event.codec());
+        record.putShort((short) typeBytes.length).put(typeBytes);
+        record.putInt(event.data().length).put(event.data());
+
+        return seal(record);
+    }
+
+    private static byte[] encodeStreamType(String streamType) {
+        byte[] streamTypeBytes = streamType.getBytes(StandardCharsets.UTF_8);
+
+        if (streamTypeBytes.length == 0 || streamTypeBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid stream type name: " + streamType);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + 2 + 2 + streamTypeBytes.length);
+        record.position(RECORD_HEADER_SIZE);
+        record.put(KIND_STREAM_TYPE);
+        record.put(FLAG_END_OF_BATCH);
+        record.putShort((short) streamTypeBytes.length).put(streamTypeBytes);
+
+        return seal(record);
+    }
+
+    /**
+     * Writes the length and checksum of the body into the record header.
+     */
+    private static byte[] seal(ByteBuffer record) {
+        byte[] bytes = record.array();
+        int bodySize = bytes.length - RECORD_HEADER_SIZE;
+
+        record.putInt(0, bodySize);
+        record.putInt(4, checksum(bytes, RECORD_HEADER_SIZE, bodySize));
+
+        return bytes;
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Opens the existing segments and rebuilds the index from them. The log is
+     * truncated after the last complete batch with valid checksums; segments
+     * after that one are deleted.
+     */
+    private void recover() throws IOException {
+        List<Path> files;
+
+        try (Stream<Path> paths = Files.list(options.directory())) {
+            files = paths.filter(path -> path.getFileName().toString().endsWith(".segment"))
+                    .sorted()
+                    .toList();
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            Segment segment = files.get(i).equals(Segment.path(options.directory(), i)) ? Segment.open(files.get(i), i) : null;
+
+            if (segment == null) {
+                LOGGER.log(Level.WARNING, "Deleting invalid segment {0} and all later ones", files.get(i));
+                delete(files.subList(i, files.size()));
+                return;
+            }
+
+            segments.add(segment);
+            current = segment;
+
+            if (!scan(segment)) {
+                delete(files.subList(i + 1, files.size()));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Indexes the complete batches of the given segment and truncates it after
+     * the last one; returns {@code false} if anything got truncated.
+     */
+    private boolean scan(Segment segment) {
+        List<Runnable> pending = new ArrayList<>();
+        int position = Segment.HEADER_SIZE;
+        int committed = position;
+        int events = 0;
+
+        while (position + RECORD_HEADER_SIZE <= segment.capacity()) {
+            int length = segment.getInt(position);
+
+            if (length == 0) {
+                break;
+            }
+            if (length < 0 || length > segment.capacity() - position - RECORD_HEADER_SIZE) {
+                break;
+            }
+
+            byte[] body = segment.read(position + RECORD_HEADER_SIZE, length);
+            if (checksum(body, 0, length) != segment.getInt(position + 4)) {
+                break;
+            }
+
+            long location = (long) segment.index() << 32 | position;
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            byte kind = buffer.get();
+            byte flags = buffer.get();
+            String streamType = getString(buffer);
+
+            if (kind == KIND_STREAM_TYPE) {
+                pending.add(() -> streams.putIfAbsent(streamType, new ConcurrentHashMap<>()));
+            }
+            else {
+                UUID aggregateId = new UUID(buffer.getLong(), buffer.getLong());
+                buffer.position(buffer.position() + 16);
+                long version = buffer.getLong();
+
+                pending.add(() -> streams.get(streamType).computeIfAbsent(aggregateId, id -> new AggregateEntry()).append(version, location));
+                events++;
+            }
+
+            position += RECORD_HEADER_SIZE + length;
+
+            if ((flags & FLAG_END_OF_BATCH) != 0) {
+                pending.forEach(Runnable::run);
+                pending.clear();
+                committed = position;
+            }
+        }
+
+        writePosition = committed;
+
+        if (committed != position || (position + RECORD_HEADER_SIZE <= segment.capacity() && segment.getInt(position) != 0)) {
+            LOGGER.log(Level.WARNING, "Truncating segment {0} after offset {1}, dropping incomplete or corrupt records", segment.index(), committed);
+            segment.truncate(committed);
+            return false;
+        }
+
+        LOGGER.log(Level.DEBUG, "Recovered {0} events from segment {1}", events, segment.index());
+        return true;
+    }
+
+    private static void delete(List<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * The versions and record locations of the events of one aggregate, in
+     * version order. Only appended to by the writer; the arrays are replaced
+     * before the count is increased, so readers reading the count first always
+     * see at least that many entries.
+     */
+    private static class AggregateEntry {
+
+        private long[] versions = new long[4];
+        private long[] locations = new long[4];
+        private volatile int count;
+
+        long latestVersion() {
+            int count = this.count;
+            return count == 0 ? 0 : versions[count - 1];
+        }
+
+        void append(long version, long location) {
+            if (count == versions.length) {
+                versions = Arrays.copyOf(versions, count * 2);
+                locations = Arrays.copyOf(locations, count * 2);
+            }
+
+            versions[count] = version;
+            locations[count] = location;
+            count = count + 1;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package dev.morling.eventful.store;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+public class SegmentEventStoreOptions {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean syncWrites;
+
+    private SegmentEventStoreOptions(Builder builder) {
+        this.directory = builder.directory;
+        this.segmentSize = builder.segmentSize;
+        this.syncWrites = builder.syncWrites;
+    }
+
+    public static SegmentEventStoreOptions defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    public boolean syncWrites() {
+        return syncWrites;
+    }
+
+    public static class Builder {
+
+        private Path directory = Path.of("segments");
+        private int segmentSize = 64 * 1024 * 1024;
+        private boolean syncWrites = false;
+
+        private Builder() {
+        }
+
+        /**
+         * The directory of the segment files; created if it doesn't exist.
+         */
+        public Builder directory(Path directory) {
+            this.directory = Objects.requireNonNull(directory);
+            return this;
+        }
+
+        /**
+         * The size of each segment file; a batch of events must fit into one
+         * segment.
+         */
+        public Builder segmentSize(int segmentSize) {
+            if (segmentSize < 4096) {
+                throw new IllegalArgumentException("Segment size must be at least 4096 bytes");
+            }
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        /**
+         * Whether to flush each batch of events to disk before completing its
+         * future. Otherwise, written events survive a crash of the process,
+         * but not one of the operating system.
+         */
+        public Builder syncWrites(boolean syncWrites) {
+            this.syncWrites = syncWrites;
+            return this;
+        }
+
+        public SegmentEventStoreOptions build() {
+            return new SegmentEventStoreOptions(this);
+        }
+    }
+}
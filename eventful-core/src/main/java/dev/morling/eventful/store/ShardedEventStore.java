@@ -0,0 +1,226 @@
+package dev.morling.eventful.store;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * An event store partitioning the aggregates across several SQLite databases
+ * ("shards"), each with its own writer thread, work queue and read
+ * connections, so that writes to different shards don't contend for the
+ * single writer of one database. Each aggregate is routed to one shard by the
+ * hash of its id; as all the events of an aggregate are stored in the same
+ * shard, their ordering and version checks are the same as with one
+ * {@link SqliteEventStore}. Reads go directly to the shard of the aggregate.
+ * <p>
+ * The database of each shard is derived from the configured database path,
+ * e.g. {@code test-0.db}, {@code test-1.db} etc. for {@code test.db}. Log
+ * positions are assigned per shard, so there is no global log across all
+ * shards. {@link #persistAll(String, List)} is atomic only within one shard
+ * and hence rejects events of aggregates in different shards.
+ */
+public class ShardedEventStore implements EventStore {
+
+    private final SqliteEventStore[] shards;
+
+    public ShardedEventStore(int shards) {
+        this(shards, SqliteEventStoreOptions.defaults());
+    }
+
+    public ShardedEventStore(int shards, SqliteEventStoreOptions options) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least 1");
+        }
+
+        this.shards = new SqliteEventStore[shards];
+
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new SqliteEventStore(options.toBuilder()
+                    .databasePath(shardPath(options.databasePath(), i))
+                    .build());
+        }
+    }
+
+    /**
+     * Returns the database file of the given shard.
+     */
+    public static Path shardPath(Path databasePath, int shard) {
+        String fileName = databasePath.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String shardFileName = extension > 0 ? fileName.substring(0, extension) + "-" + shard + fileName.substring(extension)
+                : fileName + "-" + shard;
+
+        return databasePath.resolveSibling(shardFileName);
+    }
+
+    public int shards() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the shard storing the events of the given aggregate.
+     */
+    public int shardOf(UUID aggregateId) {
+        long hash = aggregateId.getMostSignificantBits() ^ aggregateId.getLeastSignificantBits();
+
+        // murmur3 finalizer, spreading ids which only differ in few bits
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+
+        return (int) Math.floorMod(hash, (long) shards.length);
+    }
+
+    @Override
+    public void close() {
+        for (SqliteEventStore shard : shards) {
+            shard.close();
+        }
+    }
+
+    @Override
+    public void initialize(String streamType) {
+        for (SqliteEventStore shard : shards) {
+            shard.initialize(streamType);
+        }
+    }
+
+    @Override
+    public Future<Void> persist(String streamType, Event event) {
+        return shards[shardOf(event.aggregateId())].persist(streamType, event);
+    }
+
+    /**
+     * Persists the given events atomically; all of them must belong to
+     * aggregates of the same shard.
+     */
+    @Override
+    public Future<Void> persistAll(String streamType, List<Event> events) {
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int shard = shardOf(events.get(0).aggregateId());
+
+        for (Event event : events) {
+            if (shardOf(event.aggregateId()) != shard) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Events of aggregates in different shards can't be persisted atomically"));
+            }
+        }
+
+        return shards[shard].persistAll(streamType, events);
+    }
+
+    @Override
+    public List<Event> events(String streamType, UUID id) {
+        return shards[shardOf(id)].events(streamType, id);
+    }
+
+    @Override
+    public List<Event> events(String streamType, UUID id, long fromVersion) {
+        return shards[shardOf(id)].events(streamType, id, fromVersion);
+    }
+
+    @Override
+    public CompletionStage<Void> persistAsync(String streamType, Event event) {
+        return shards[shardOf(event.aggregateId())].persistAsync(streamType, event);
+    }
+
+    /**
+     * Reads the events of the given aggregates with one multi-aggregate read
+     * per shard.
+     */
+    @Override
+    public Map<UUID, List<Event>> events(String streamType, Collection<UUID> ids) {
+        List<List<UUID>> idsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            idsByShard.add(new ArrayList<>());
+        }
+
+        for (UUID id : ids) {
+            idsByShard.get(shardOf(id)).add(id);
+        }
+
+        Map<UUID, List<Event>> eventsByShard = new HashMap<>();
+        for (int i = 0; i < shards.length; i++) {
+            if (!idsByShard.get(i).isEmpty()) {
+                eventsByShard.putAll(shards[i].events(streamType, idsByShard.get(i)));
+            }
+        }
+
+        Map<UUID, List<Event>> events = new LinkedHashMap<>();
+        for (UUID id : ids) {
+            events.put(id, eventsByShard.get(id));
+        }
+
+        return events;
+    }
+
+    /**
+     * Scans all shards concurrently, splitting the given number of ranges
+     * evenly across them, so that there are at most as many ranges per shard
+     * as one store allows in total. The first failure stops the scans of all
+     * shards and fails the returned future right away.
+     */
+    @Override
+    public CompletableFuture<Void> scan(String streamType, int ranges, BiConsumer<UUID, List<Event>> consumer) {
+        if (ranges < 1 || ranges > SqliteEventStore.MAX_SCAN_RANGES) {
+            throw new IllegalArgumentException("Number of ranges must be between 1 and " + SqliteEventStore.MAX_SCAN_RANGES);
+        }
+
+        int rangesPerShard = Math.max(1, (ranges + shards.length - 1) / shards.length);
+        AtomicBoolean stopped = new AtomicBoolean();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<?>[] results = new CompletableFuture<?>[shards.length];
+
+        // a shard stops its scan once its consumer fails
+        BiConsumer<UUID, List<Event>> stoppable = (aggregateId, events) -> {
+            if (stopped.get()) {
+                throw new CancellationException("Scan of another shard has failed");
+            }
+            consumer.accept(aggregateId, events);
+        };
+
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                results[i] = shards[i].scan(streamType, rangesPerShard, stoppable).whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        stopped.set(true);
+                        result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+                    }
+                });
+            }
+        }
+        catch (RuntimeException e) {
+            stopped.set(true);
+            throw e;
+        }
+
+        CompletableFuture.allOf(results).thenRun(() -> result.complete(null));
+
+        return result;
+    }
+
+    @Override
+    public CompletionStage<List<Event>> eventsAsync(String streamType, UUID id, long fromVersion) {
+        return shards[shardOf(id)].eventsAsync(streamType, id, fromVersion);
+    }
+
+    @Override
+    public Stream<Event> eventStream(String streamType, UUID id, long fromVersion) {
+        return shards[shardOf(id)].eventStream(streamType, id, fromVersion);
+    }
+}
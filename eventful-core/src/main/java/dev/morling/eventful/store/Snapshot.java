@@ -0,0 +1,36 @@
+package dev.morling.eventful.store;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+
+public record Snapshot(UUID aggregateId, long version, byte[] state) {
+
+    public Snapshot {
+        if (version < Event.VERSION_INIT) {
+            throw new IllegalArgumentException("Version must be larger than 0");
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Snapshot other)) {
+            return false;
+        }
+
+        return version == other.version && aggregateId.equals(other.aggregateId) && Arrays.equals(state, other.state);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(aggregateId, version) * 31 + Arrays.hashCode(state);
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot [aggregateId=" + aggregateId + ", version=" + version + ", state=" + state.length + " bytes]";
+    }
+}
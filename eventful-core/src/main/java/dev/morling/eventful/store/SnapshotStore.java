@@ -0,0 +1,34 @@
+package dev.morling.eventful.store;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+public interface SnapshotStore {
+
+    void close();
+
+    void initialize(String streamType);
+
+    /**
+     * Saves the given snapshot, unless a snapshot with the same or a higher
+     * version exists already for that aggregate.
+     */
+    void save(String streamType, Snapshot snapshot);
+
+    Optional<Snapshot> latest(String streamType, UUID aggregateId);
+
+    /**
+     * Returns the latest snapshot of the given aggregate asynchronously; by
+     * default, it is read on the calling thread.
+     */
+    default CompletionStage<Optional<Snapshot>> latestAsync(String streamType, UUID aggregateId) {
+        try {
+            return CompletableFuture.completedFuture(latest(streamType, aggregateId));
+        }
+        catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -11,71 +11,159 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteErrorCode;
 import org.sqlite.SQLiteException;
 
-public class SqliteEventStore implements EventStore {
+import dev.morling.eventful.store.ReadConnectionPool.ReadConnection;
 
-    private static final int QUEUE_SIZE = 16384 * 2;
+public class SqliteEventStore implements EventStore, EventLog {
 
     private static Logger LOGGER = System.getLogger(SqliteEventStore.class.getName());
 
-    private final Connection conn;
+    private static final int SPIN_TRIES = 100;
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // stays below SQLite's historic default limit of 999 parameters per statement
+    private static final int MAX_IDS_PER_QUERY = 512;
+    // each range of a scan has a thread and a read connection of its own
+    static final int MAX_SCAN_RANGES = 64;
+
+    private final String url;
+    private final ReadConnectionPool readConnections;
     private final Connection writeConn;
-    private final Map<String, PreparedStatement> insertStatements;
-    private final Map<String, PreparedStatement> maxVersionStatements;
-    private final BlockingQueue<Work> workQueue;
+    private final Map<String, StreamTable> streamTables;
+    private final List<LogSubscription> subscriptions;
+    private final Set<Scan> scans;
+    private final PreparedStatement savepointStatement;
+    private final PreparedStatement releaseStatement;
+    private final PreparedStatement rollbackToStatement;
+    private final SqliteEventStoreOptions options;
+    private final MpscRingBuffer<Work> workQueue;
+    private final ConcurrentLinkedQueue<Thread> waitingProducers;
     private final ExecutorService executorService;
+    private final ExecutorService asyncExecutor;
     private volatile boolean running;
+    // set by close() once the work left behind by the writer has been failed
+    private volatile boolean drained;
+    private volatile Thread writerThread;
+    private volatile boolean writerWaiting;
+
+    // only written by the writer thread
+    private volatile int batchLimit;
+    private final StoreMetrics metrics;
+    private long nextPosition;
+    private Durability connectionDurability;
+    private final List<LoggedEvent> committedEvents;
+    private boolean collectCommittedEvents;
 
-    private static record Work(String streamType, Event event, CompletableFuture<Void> future, PreparedStatement insertStatement, PreparedStatement maxVersionStatement) {
+    // the position of the latest committed event
+    private volatile long committedPosition;
+
+    /**
+     * A unit of work for the writer; {@code durability} is the minimum
+     * durability requested for its events, or {@code null} for the store's.
+     * {@code enqueuedAt} is the {@link System#nanoTime() time} of enqueueing
+     * the item.
+     */
+    private static record Work(StreamTable table, List<Event> events, Durability durability, CompletableFuture<Void> future, long enqueuedAt) {
     }
 
     public SqliteEventStore() {
+        this(SqliteEventStoreOptions.defaults());
+    }
+
+    public SqliteEventStore(SqliteEventStoreOptions options) {
+        this.options = options;
+        this.url = "jdbc:sqlite:" + options.databasePath();
+
+        if (options.threadingModel() == ThreadingModel.VIRTUAL && !VirtualThreads.isAvailable()) {
+            throw new IllegalStateException("Virtual threads aren't available; on Java 19 and 20, they require --enable-preview");
+        }
+
         try {
-            if (Files.exists(Path.of("test.db"))) {
-                Files.delete(Path.of("test.db"));
+            if (options.openMode() == OpenMode.CREATE) {
+                Files.deleteIfExists(options.databasePath());
+                Files.deleteIfExists(Path.of(options.databasePath() + "-wal"));
+                Files.deleteIfExists(Path.of(options.databasePath() + "-shm"));
             }
 
-            writeConn = DriverManager.getConnection("jdbc:sqlite:test.db");
+            writeConn = DriverManager.getConnection(url);
 
             try(Statement statement = writeConn.createStatement()) {
+                // must be set before switching to WAL mode, after which the page size is fixed
+                statement.executeUpdate("pragma page_size=" + options.pageSize());
                 statement.executeUpdate("pragma journal_mode=wal");
+                statement.executeUpdate("pragma synchronous=" + options.durability().synchronous());
+                statement.executeUpdate("pragma wal_autocheckpoint=" + options.walAutoCheckpoint());
+
+                for (String pragma : connectionPragmas(options)) {
+                    statement.executeUpdate(pragma);
+                }
             }
 
             writeConn.setAutoCommit(false);
 
-            SQLiteConfig config = new SQLiteConfig();
-            config.setReadOnly(true);
-            conn = DriverManager.getConnection("jdbc:sqlite:test.db", config.toProperties());
+            savepointStatement = writeConn.prepareStatement("SAVEPOINT work_item");
+            releaseStatement = writeConn.prepareStatement("RELEASE work_item");
+            rollbackToStatement = writeConn.prepareStatement("ROLLBACK TO work_item");
 
-            try(Statement statement = conn.createStatement()) {
-                statement.executeUpdate("pragma journal_mode=wal");
-            }
-
-            conn.setAutoCommit(false);
+            readConnections = new ReadConnectionPool(url, options.readConnections(), readPermits(options), options.readTimeout(), connectionPragmas(options));
         }
         catch (SQLException | IOException e) {
             throw new IllegalStateException("Couldn't open database", e);
         }
 
-        insertStatements = new HashMap<>();
-        maxVersionStatements = new HashMap<>();
-        workQueue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        streamTables = new ConcurrentHashMap<>();
+        subscriptions = new CopyOnWriteArrayList<>();
+        scans = ConcurrentHashMap.newKeySet();
+        nextPosition = LoggedEvent.POSITION_INIT;
+        committedPosition = LoggedEvent.POSITION_INIT - 1;
+        committedEvents = new ArrayList<>();
+        workQueue = new MpscRingBuffer<>(options.queueSize());
+        waitingProducers = new ConcurrentLinkedQueue<>();
+        batchLimit = options.groupCommitPolicy().maxBatchSize();
+        metrics = new StoreMetrics(workQueue::size, workQueue.capacity());
+
+        connectionDurability = options.durability();
+
+        if (options.openMode() == OpenMode.OPEN) {
+            openStreamTables();
+        }
+
+        asyncExecutor = newAsyncExecutor(options);
 
         running = true;
         executorService = Executors.newFixedThreadPool(1);
@@ -84,29 +172,173 @@ public class SqliteEventStore implements EventStore {
         });
     }
 
+    /**
+     * The executor for asynchronous reads and for completing asynchronous
+     * writes, so that callbacks don't run on the writer thread: a new virtual
+     * thread per task with {@link ThreadingModel#VIRTUAL}, otherwise one
+     * thread per read connection.
+     */
+    private static ExecutorService newAsyncExecutor(SqliteEventStoreOptions options) {
+        if (options.threadingModel() == ThreadingModel.VIRTUAL) {
+            return VirtualThreads.newThreadPerTaskExecutor("eventful-async-");
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(options.readConnections(), task -> {
+            Thread thread = new Thread(task, "eventful-async-" + threads.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static int readPermits(SqliteEventStoreOptions options) {
+        if (options.threadingModel() != ThreadingModel.VIRTUAL) {
+            return 0;
+        }
+
+        return options.readPermits() > 0 ? options.readPermits() : options.readConnections();
+    }
+
+    /**
+     * Creates a thread for running the given task, a virtual one with
+     * {@link ThreadingModel#VIRTUAL}.
+     */
+    Thread newThread(Runnable task, String name) {
+        if (options.threadingModel() == ThreadingModel.VIRTUAL) {
+            Thread thread = VirtualThreads.factory(name).newThread(task);
+            thread.setName(name);
+            return thread;
+        }
+
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * The pragmas applying to each connection, writer as well as readers.
+     */
+    private static List<String> connectionPragmas(SqliteEventStoreOptions options) {
+        return List.of(
+                "pragma cache_size=-" + options.cacheSize(),
+                "pragma mmap_size=" + options.mmapSize(),
+                "pragma temp_store=" + options.tempStore().name());
+    }
+
+    /**
+     * Resumes the stream types of an existing database, detecting their
+     * layout, type dictionary and latest compression dictionary, and
+     * continues the log after the largest existing position.
+     */
+    private void openStreamTables() {
+        long maxPosition = LoggedEvent.POSITION_INIT - 1;
+
+        try {
+            for (String streamType : StreamTable.streamTables(writeConn)) {
+                if (!StreamTable.hasPosition(writeConn, streamType) || !StreamTable.hasCodec(writeConn, streamType)
+                        || !StreamTable.hasCompression(writeConn, streamType)) {
+                    throw new IllegalStateException("Stream type '%s' has an outdated schema; it must be migrated using SchemaMigration".formatted(streamType));
+                }
+
+                SchemaLayout layout = StreamTable.detectLayout(writeConn, streamType);
+                EventTypeDictionary typeDictionary = StreamTable.detectTypeDictionary(writeConn, streamType) ? EventTypeDictionary.load(writeConn, streamType) : null;
+                PayloadCompression compression = new PayloadCompression(streamType, options.compressor(), options.compressionThreshold());
+                compression.activateLatest(writeConn);
+
+                // the index doesn't know the existing aggregates, so misses fall back to the table
+                AggregateVersionIndex versionIndex = options.versionIndexSize() > 0 ? new AggregateVersionIndex(options.versionIndexSize(), false) : null;
+
+                streamTables.put(streamType, new StreamTable(writeConn, streamType, layout, typeDictionary, compression, versionIndex));
+
+                try (Statement statement = writeConn.createStatement(); ResultSet rs = statement.executeQuery("SELECT MAX(POSITION) FROM " + streamType)) {
+                    if (rs.next() && rs.getObject(1) != null) {
+                        maxPosition = Math.max(maxPosition, rs.getLong(1));
+                    }
+                }
+
+                LOGGER.log(Level.INFO, "Opened stream type {0} with layout {1}", streamType, layout);
+            }
+
+            // ends the read transaction implicitly started by the queries
+            writeConn.commit();
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't open stream types", e);
+        }
+
+        nextPosition = maxPosition + 1;
+        committedPosition = maxPosition;
+    }
+
     @Override
     public void close() {
+        subscriptions.forEach(LogSubscription::close);
+
         running = false;
+        LockSupport.unpark(writerThread);
+        waitingProducers.forEach(LockSupport::unpark);
 
         executorService.shutdown();
+        boolean writerStopped = false;
         try {
-            executorService.awaitTermination(5_000, TimeUnit.SECONDS);
+            writerStopped = executorService.awaitTermination(5_000, TimeUnit.SECONDS);
         }
         catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             LOGGER.log(Level.WARNING, "Failed to await termination of executor service");
         }
 
+        // the writer stops once the queue looks empty, which it also does while
+        // a producer has claimed a slot without having published it yet
+        if (writerStopped) {
+            List<Work> abandoned = new ArrayList<>();
+            workQueue.drainAll(abandoned);
+            for (Work work : abandoned) {
+                fail(work, new IllegalStateException("Store is stopped already"));
+            }
+        }
+        drained = true;
+
+        asyncExecutor.shutdown();
         try {
-            for (PreparedStatement statement : insertStatements.values()) {
-                statement.close();
+            if (!asyncExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.log(Level.WARNING, "Asynchronous reads didn't complete in time");
             }
-            for (PreparedStatement statement : maxVersionStatements.values()) {
-                statement.close();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.WARNING, "Failed to await termination of async executor");
+        }
+
+        // running scans fail once they notice that they have been stopped
+        for (Scan scan : scans) {
+            scan.stopped().set(true);
+        }
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            for (Scan scan : scans) {
+                for (Thread thread : scan.threads()) {
+                    if (!thread.join(Duration.ofNanos(Math.max(deadline - System.nanoTime(), 1)))) {
+                        LOGGER.log(Level.WARNING, "Scans didn't complete in time");
+                    }
+                }
             }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.log(Level.WARNING, "Failed to await termination of scans");
+        }
+
+        try {
+            for (StreamTable table : streamTables.values()) {
+                table.close();
+            }
+            savepointStatement.close();
+            releaseStatement.close();
+            rollbackToStatement.close();
 
             writeConn.close();
-            conn.close();
+            readConnections.close();
         }
         catch (SQLException e) {
             throw new IllegalStateException("Couldn't close database", e);
@@ -125,51 +357,16 @@ public class SqliteEventStore implements EventStore {
             rs.close();
             statement.close();
 
-            Statement tableStatement = writeConn.createStatement();
-            tableStatement.executeUpdate("""
-                    CREATE TABLE %s (
-                    ID           TEXT PRIMARY KEY NOT NULL,
-                    TYPE         TEXT             NOT NULL,
-                    AGGREGATE_ID TEXT             NOT NULL,
-                    VERSION      BIGINT           NOT NULL,
-                    PAYLOAD      TEXT             NOT NULL
-                  )
-                  """.formatted(streamType));
-
-            tableStatement.executeUpdate("CREATE UNIQUE INDEX %s_idx ON %s (AGGREGATE_ID, VERSION)".formatted(streamType, streamType));
-
-//            Statement tableStatement = writeConn.createStatement();
-//            tableStatement.executeUpdate("""
-//                    CREATE TABLE %s (
-//                    AGGREGATE_ID TEXT   NOT NULL,
-//                    VERSION      BIGINT NOT NULL,
-//                    ID           TEXT   NOT NULL,
-//                    TYPE         TEXT   NOT NULL,
-//                    PAYLOAD      TEXT   NOT NULL,
-//                    PRIMARY KEY (AGGREGATE_ID, VERSION)
-//                  ) WITHOUT ROWID;
-//                  """.formatted(streamType));
-
+            StreamTable.createTable(writeConn, streamType, options.schemaLayout(), options.eventTypeDictionary());
             writeConn.commit();
-            tableStatement.close();
-
-//            awaitTable(streamType, conn);
 
-            PreparedStatement insertStatement = writeConn.prepareStatement("""
-                    INSERT INTO %s
-                      (ID, TYPE, AGGREGATE_ID, VERSION, PAYLOAD)
-                      VALUES (?, ?, ?, ?, ?)
-                    """.formatted(streamType));
+            EventTypeDictionary typeDictionary = options.eventTypeDictionary() ? EventTypeDictionary.load(writeConn, streamType) : null;
+            PayloadCompression compression = new PayloadCompression(streamType, options.compressor(), options.compressionThreshold());
 
-            insertStatements.put(streamType, insertStatement);
+            // the table has just been created, so the index knows all its aggregates
+            AggregateVersionIndex versionIndex = options.versionIndexSize() > 0 ? new AggregateVersionIndex(options.versionIndexSize(), true) : null;
 
-            PreparedStatement maxVersionStatement = writeConn.prepareStatement("""
-                    SELECT MAX(VERSION) as MAX_VERSION
-                    FROM %s
-                    WHERE AGGREGATE_ID = ?
-                    """.formatted(streamType));
-
-            maxVersionStatements.put(streamType, maxVersionStatement);
+            streamTables.put(streamType, new StreamTable(writeConn, streamType, options.schemaLayout(), typeDictionary, compression, versionIndex));
         }
         catch (SQLException e) {
             throw new IllegalStateException("Couldn't query database", e);
@@ -191,165 +388,1089 @@ public class SqliteEventStore implements EventStore {
 
     @Override
     public Future<Void> persist(String streamType, Event event) {
+        return enqueue(streamType, List.of(event), null);
+    }
+
+    /**
+     * Persists the given event, committing it with at least the given
+     * durability; e.g. {@link Durability#FULL} makes sure that an event is
+     * synced to disk before its future completes, also if the store is
+     * configured with a weaker durability for all the other events.
+     */
+    public Future<Void> persist(String streamType, Event event, Durability durability) {
+        return enqueue(streamType, List.of(event), Objects.requireNonNull(durability));
+    }
+
+    /**
+     * Persists the given events in one transaction; if the version of any of
+     * the events conflicts, none of them is persisted. The versions of the
+     * events of one aggregate must be increasing.
+     */
+    @Override
+    public Future<Void> persistAll(String streamType, List<Event> events) {
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return enqueue(streamType, List.copyOf(events), null);
+    }
+
+    /**
+     * Persists the given events atomically, committing them with at least the
+     * given durability.
+     */
+    public Future<Void> persistAll(String streamType, List<Event> events, Durability durability) {
+        Objects.requireNonNull(durability);
+
+        if (events.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return enqueue(streamType, List.copyOf(events), durability);
+    }
+
+    /**
+     * Persists the given event; the returned stage completes, successfully or
+     * exceptionally, on a thread of the store's async executor rather than on
+     * the writer thread, so that dependent actions don't delay the commits of
+     * other events.
+     */
+    @Override
+    public CompletionStage<Void> persistAsync(String streamType, Event event) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        enqueue(streamType, List.of(event), null).whenCompleteAsync((ignored, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+            else {
+                result.complete(null);
+            }
+        }, asyncExecutor).exceptionally(e -> {
+            // the executor has been shut down in the meantime
+            result.completeExceptionally(new IllegalStateException("Store is stopped already", e));
+            return null;
+        });
+
+        return result;
+    }
+
+    private CompletableFuture<Void> enqueue(String streamType, List<Event> events, Durability durability) {
         if (!running) {
             return CompletableFuture.failedFuture(new IllegalStateException("Store is stopped already"));
         }
 
-        PreparedStatement insertStatement = insertStatements.get(streamType);
+        StreamTable table = streamTables.get(streamType);
 
-        if (insertStatement == null) {
+        if (table == null) {
             return CompletableFuture.failedFuture(new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType)));
         }
 
-        PreparedStatement maxVersionStatement = maxVersionStatements.get(streamType);
-
         CompletableFuture<Void> future = new CompletableFuture<>();
+        Work work = new Work(table, events, durability, future, System.nanoTime());
 
-        boolean enqueued = false;
-        while (!enqueued) {
-            enqueued = workQueue.offer(new Work(streamType, event, future, insertStatement, maxVersionStatement));
+        if (!workQueue.offer(work) && !enqueueSlow(work)) {
+            return future;
+        }
+
+        if (!running) {
+            failIfAbandoned(work);
+            return future;
+        }
+
+        if (writerWaiting) {
+            LockSupport.unpark(writerThread);
         }
 
         return future;
     }
 
+    /**
+     * Fails the given work, enqueued while the store was stopping, unless the
+     * writer or close() has taken care of it. Waits for close() to drain the
+     * queue, after which nobody else takes work from it.
+     */
+    private void failIfAbandoned(Work work) {
+        while (!drained) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        if (!work.future().isDone()) {
+            fail(work, new IllegalStateException("Store is stopped already"));
+        }
+    }
+
+    /**
+     * Applies the configured backpressure strategy when the work queue is full.
+     * Returns {@code true} if the work item could be enqueued eventually, or
+     * {@code false} if it got rejected, in which case its future has been failed.
+     */
+    private boolean enqueueSlow(Work work) {
+        BackpressureStrategy strategy = options.backpressureStrategy();
+
+        if (strategy == BackpressureStrategy.FAIL_FAST) {
+            fail(work, new RejectedExecutionException("Work queue is full"));
+            return false;
+        }
+
+        long deadline = System.nanoTime() + options.enqueueTimeout().toNanos();
+        Thread current = Thread.currentThread();
+        waitingProducers.add(current);
+
+        try {
+            while (true) {
+                if (workQueue.offer(work)) {
+                    return true;
+                }
+                if (!running) {
+                    fail(work, new IllegalStateException("Store is stopped already"));
+                    return false;
+                }
+                if (Thread.interrupted()) {
+                    current.interrupt();
+                    fail(work, new IllegalStateException("Interrupted while waiting for space in the work queue"));
+                    return false;
+                }
+
+                if (strategy == BackpressureStrategy.TIMEOUT) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        fail(work, new RejectedExecutionException("Work queue is full; timed out after " + options.enqueueTimeout()));
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+                }
+                else {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+            }
+        }
+        finally {
+            waitingProducers.remove(current);
+        }
+    }
+
     @Override
     public List<Event> events(String streamType, UUID aggregateId) {
-        try {
-            conn.commit();
+        return events(streamType, aggregateId, Event.VERSION_INIT);
+    }
 
-            PreparedStatement statement = conn.prepareStatement("SELECT * FROM %s WHERE AGGREGATE_ID = ? ORDER BY VERSION".formatted(streamType));
-            statement.setString(1, aggregateId.toString());
+    @Override
+    public List<Event> events(String streamType, UUID aggregateId, long fromVersion) {
+        StreamTable table = streamTables.get(streamType);
+
+        if (table == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+
+        long start = System.nanoTime();
+        ReadEvent readEvent = new ReadEvent();
+        readEvent.begin();
+
+        ReadConnection connection = readConnections.acquire();
+
+        try {
+            PreparedStatement statement = connection.eventsStatement(streamType);
+            table.setId(statement, 1, aggregateId);
+            statement.setLong(2, fromVersion);
 
-            ResultSet rs = statement.executeQuery();
             List<Event> events = new ArrayList<>();
 
-            while ( rs.next() ) {
-                String id = rs.getString("id");
-                String type = rs.getString("type");
-                long version = rs.getLong("version");
-                String payload = rs.getString("payload");
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    events.add(table.readEvent(connection.connection(), rs, aggregateId));
+                }
+            }
+
+            recordRead(start, readEvent, streamType, aggregateId, fromVersion, events.size());
+
+            return events;
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't query database", e);
+        }
+        finally {
+            readConnections.release(connection);
+        }
+    }
+
+    /**
+     * Reads the events of the given aggregates with one query per chunk of up
+     * to 512 ids, all on the same read connection. To keep the number of
+     * prepared statements small, chunks are padded to the next power of two
+     * by repeating their last id.
+     */
+    @Override
+    public Map<UUID, List<Event>> events(String streamType, Collection<UUID> ids) {
+        StreamTable table = streamTables.get(streamType);
+
+        if (table == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+
+        Map<UUID, List<Event>> events = new LinkedHashMap<>();
+        for (UUID id : ids) {
+            events.put(id, new ArrayList<>());
+        }
 
-                events.add(new Event(type, UUID.fromString(id), aggregateId, version, payload));
+        if (events.isEmpty()) {
+            return events;
+        }
+
+        long start = System.nanoTime();
+        ReadEvent readEvent = new ReadEvent();
+        readEvent.begin();
+
+        List<UUID> distinctIds = new ArrayList<>(events.keySet());
+        int rows = 0;
+
+        ReadConnection connection = readConnections.acquire();
+
+        try {
+            for (int from = 0; from < distinctIds.size(); from += MAX_IDS_PER_QUERY) {
+                List<UUID> chunk = distinctIds.subList(from, Math.min(from + MAX_IDS_PER_QUERY, distinctIds.size()));
+                int parameters = Math.min(Integer.highestOneBit(chunk.size() * 2 - 1), MAX_IDS_PER_QUERY);
+
+                PreparedStatement statement = connection.eventsStatement(streamType, parameters);
+                for (int i = 0; i < parameters; i++) {
+                    table.setId(statement, i + 1, chunk.get(Math.min(i, chunk.size() - 1)));
+                }
+
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        Event event = table.readEvent(connection.connection(), rs);
+                        events.get(event.aggregateId()).add(event);
+                        rows++;
+                    }
+                }
             }
-            rs.close();
-            statement.close();
 
-            conn.commit();
+            recordRead(start, readEvent, streamType, null, Event.VERSION_INIT, rows);
 
             return events;
         }
         catch (SQLException e) {
             throw new IllegalStateException("Couldn't query database", e);
         }
+        finally {
+            readConnections.release(connection);
+        }
     }
 
-    private void pollWork() {
-        while(running || !workQueue.isEmpty()) {
-            List<Work> workItems = new ArrayList<>();
-            int transferred = workQueue.drainTo(workItems);
-            if (transferred == 0) {
+    /**
+     * Splits the aggregate id space into ranges of equal size, which suits
+     * random ids, and reads each range on a thread of its own with a read
+     * connection of its own, grouping the rows ordered by aggregate id and
+     * version. Scans neither use the async executor nor the pooled read
+     * connections, so they don't hold up other reads, also not those issued
+     * by the consumer itself; hence the number of ranges is limited to
+     * {@value #MAX_SCAN_RANGES}. As each range is read in one read
+     * transaction, WAL checkpoints can't complete until it is done. Closing
+     * the store stops running scans, failing them.
+     */
+    @Override
+    public CompletableFuture<Void> scan(String streamType, int ranges, BiConsumer<UUID, List<Event>> consumer) {
+        StreamTable table = streamTables.get(streamType);
+
+        if (table == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+        if (ranges < 1 || ranges > MAX_SCAN_RANGES) {
+            throw new IllegalArgumentException("Number of ranges must be between 1 and " + MAX_SCAN_RANGES);
+        }
+
+        AtomicBoolean stopped = new AtomicBoolean();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        CompletableFuture<?>[] results = new CompletableFuture<?>[ranges];
+        List<Thread> threads = new ArrayList<>(ranges);
+
+        for (int i = 0; i < ranges; i++) {
+            UUID from = i > 0 ? rangeStart(i, ranges) : null;
+            UUID to = i < ranges - 1 ? rangeStart(i + 1, ranges) : null;
+            CompletableFuture<Void> rangeResult = new CompletableFuture<>();
+            results[i] = rangeResult;
+
+            threads.add(newThread(() -> {
                 try {
-                    Thread.sleep(10);
-                    continue;
+                    scanRange(table, from, to, consumer, stopped);
+                    rangeResult.complete(null);
                 }
-                catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    LOGGER.log(Level.WARNING, "Interrupted while sleeping");
+                catch (Throwable e) {
+                    // stopping the other ranges and failing right away
+                    stopped.set(true);
+                    result.completeExceptionally(e);
+                    rangeResult.completeExceptionally(e);
                 }
+            }, "eventful-scan-" + streamType + "-" + i));
+        }
+
+        // registering before checking the flag, so that close() either sees the scan or the scan sees close()
+        Scan scan = new Scan(stopped, threads);
+        scans.add(scan);
+        if (!running) {
+            scans.remove(scan);
+            return CompletableFuture.failedFuture(new IllegalStateException("Store is stopped already"));
+        }
+
+        CompletableFuture.allOf(results).whenComplete((ignored, e) -> {
+            scans.remove(scan);
+            result.complete(null);
+        });
+        threads.forEach(Thread::start);
+
+        return result;
+    }
+
+    /**
+     * A running scan, with the flag stopping its ranges and their threads.
+     */
+    private record Scan(AtomicBoolean stopped, List<Thread> threads) {
+    }
+
+    /**
+     * Returns the smallest id of the given range, comparing ids as unsigned
+     * numbers like the database does with their binary as well as their text
+     * representation.
+     */
+    private static UUID rangeStart(int range, int ranges) {
+        return new UUID(Long.divideUnsigned(-1L, ranges) * range, 0);
+    }
+
+    private void scanRange(StreamTable table, UUID from, UUID to, BiConsumer<UUID, List<Event>> consumer, AtomicBoolean stopped) {
+        List<String> conditions = new ArrayList<>(2);
+        if (from != null) {
+            conditions.add("AGGREGATE_ID >= ?");
+        }
+        if (to != null) {
+            conditions.add("AGGREGATE_ID < ?");
+        }
+
+        String sql = "SELECT %s FROM %s%s ORDER BY AGGREGATE_ID, VERSION".formatted(StreamTable.EVENT_COLUMNS, table.streamType(),
+                conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions));
+
+        try (Connection connection = readConnections.open();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (from != null) {
+                table.setId(statement, index++, from);
             }
-            else {
-                execute(workItems);
+            if (to != null) {
+                table.setId(statement, index, to);
+            }
+
+            try (ResultSet rs = statement.executeQuery()) {
+                UUID aggregateId = null;
+                List<Event> events = new ArrayList<>();
+
+                while (!stopped.get() && rs.next()) {
+                    Event event = table.readEvent(connection, rs);
+
+                    if (!event.aggregateId().equals(aggregateId)) {
+                        if (aggregateId != null) {
+                            consumer.accept(aggregateId, events);
+                            events = new ArrayList<>();
+                        }
+                        aggregateId = event.aggregateId();
+                    }
+
+                    events.add(event);
+                }
+
+                if (!running) {
+                    throw new IllegalStateException("Store is stopped already");
+                }
+                if (aggregateId != null && !stopped.get()) {
+                    consumer.accept(aggregateId, events);
+                }
             }
         }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't query database", e);
+        }
     }
 
-    private void execute(List<Work> workItems) {
-        LOGGER.log(Level.INFO, "Processing " + workItems.size() + " work items");
-        boolean allSuccessful = true;
-        Work failed = null;
+    /**
+     * Reads the events of the given aggregate on a thread of the store's async
+     * executor.
+     */
+    @Override
+    public CompletionStage<List<Event>> eventsAsync(String streamType, UUID aggregateId, long fromVersion) {
+        try {
+            return CompletableFuture.supplyAsync(() -> events(streamType, aggregateId, fromVersion), asyncExecutor);
+        }
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Store is stopped already", e));
+        }
+    }
 
-        for (Work work : workItems) {
-            allSuccessful &= execute(work);
+    /**
+     * Returns a stream backed by the database cursor; only the current event
+     * is kept in memory. The stream holds on to a read connection until it is
+     * closed or has been fully consumed.
+     */
+    @Override
+    public Stream<Event> eventStream(String streamType, UUID aggregateId, long fromVersion) {
+        StreamTable table = streamTables.get(streamType);
 
-            if (!allSuccessful) {
-                failed = work;
-                break;
+        if (table == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+
+        long start = System.nanoTime();
+        ReadEvent readEvent = new ReadEvent();
+        readEvent.begin();
+
+        ReadConnection connection = readConnections.acquire();
+
+        try {
+            PreparedStatement statement = connection.eventsStatement(streamType);
+            table.setId(statement, 1, aggregateId);
+            statement.setLong(2, fromVersion);
+
+            EventCursor cursor = new EventCursor(table, connection, statement.executeQuery(), aggregateId, fromVersion, start, readEvent);
+            return StreamSupport.stream(cursor, false).onClose(cursor::close);
+        }
+        catch (SQLException e) {
+            readConnections.release(connection);
+            throw new IllegalStateException("Couldn't query database", e);
+        }
+    }
+
+    private void recordRead(long start, ReadEvent readEvent, String streamType, UUID aggregateId, long fromVersion, int rows) {
+        metrics.recordRead(System.nanoTime() - start, rows);
+        readEvent.end();
+
+        if (readEvent.shouldCommit()) {
+            readEvent.streamType = streamType;
+            readEvent.aggregateId = aggregateId != null ? aggregateId.toString() : null;
+            readEvent.fromVersion = fromVersion;
+            readEvent.rows = rows;
+            readEvent.commit();
+        }
+    }
+
+    /**
+     * Trains a compression dictionary of up to {@code dictionarySize} bytes from
+     * the payloads of the latest {@code samples} events of the given stream
+     * type, stores it and compresses all subsequently persisted events of that
+     * stream type with it. Returns the version of the new dictionary.
+     */
+    public int trainCompressionDictionary(String streamType, int samples, int dictionarySize) {
+        StreamTable table = streamTables.get(streamType);
+
+        if (table == null) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
+        }
+
+        PayloadCompression compression = table.compression();
+
+        if (compression.compressor() == null) {
+            throw new IllegalStateException("Compression isn't enabled");
+        }
+
+        List<byte[]> payloads = samplePayloads(table, samples);
+        byte[] dictionary = compression.compressor().trainDictionary(payloads, dictionarySize);
+
+        // the write connection is reserved for the writer thread
+        try (Connection connection = DriverManager.getConnection(url)) {
+            int version = PayloadCompression.saveDictionary(connection, streamType, compression.compressor(), dictionary);
+            compression.activate(version, dictionary);
+
+            LOGGER.log(Level.INFO, "Trained compression dictionary {0} of stream type {1} with {2} bytes from {3} samples", version, streamType,
+                    dictionary.length, payloads.size());
+
+            return version;
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't store compression dictionary", e);
+        }
+    }
+
+    private List<byte[]> samplePayloads(StreamTable table, int samples) {
+        ReadConnection connection = readConnections.acquire();
+
+        try (PreparedStatement statement = connection.connection()
+                .prepareStatement("SELECT %s FROM %s ORDER BY POSITION DESC LIMIT ?".formatted(StreamTable.EVENT_COLUMNS, table.streamType()))) {
+            statement.setInt(1, samples);
+
+            List<byte[]> payloads = new ArrayList<>();
+
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    payloads.add(table.readEvent(connection.connection(), rs).data());
+                }
             }
+
+            // oldest first
+            Collections.reverse(payloads);
+            return payloads;
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't query database", e);
+        }
+        finally {
+            readConnections.release(connection);
+        }
+    }
+
+    @Override
+    public Subscription subscribe(String streamType, long fromPosition, SubscriptionHandler handler) {
+        if (!streamTables.containsKey(streamType)) {
+            throw new IllegalArgumentException("Stream type '%s' doesn't exist".formatted(streamType));
         }
 
-        if (allSuccessful) {
+        return subscribe(new LogSubscription(this, streamType, fromPosition, handler));
+    }
+
+    @Override
+    public Subscription subscribeAll(long fromPosition, SubscriptionHandler handler) {
+        return subscribe(new LogSubscription(this, null, fromPosition, handler));
+    }
+
+    private Subscription subscribe(LogSubscription subscription) {
+        if (!running) {
+            throw new IllegalStateException("Store is stopped already");
+        }
+
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    void unsubscribe(LogSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    long committedPosition() {
+        return committedPosition;
+    }
+
+    /**
+     * Reads up to {@code limit} events of the log in the given range of
+     * positions, of the given stream type or of all stream types if it is
+     * {@code null}.
+     */
+    List<LoggedEvent> readLog(String streamType, long fromPosition, long toPosition, int limit) {
+        ReadConnection connection = readConnections.acquire();
+
+        try {
+            List<LoggedEvent> events = new ArrayList<>();
+
+            if (streamType != null) {
+                readLog(connection, streamTables.get(streamType), fromPosition, toPosition, limit, events);
+                return events;
+            }
+
+            for (StreamTable table : streamTables.values()) {
+                readLog(connection, table, fromPosition, toPosition, limit, events);
+            }
+
+            events.sort(Comparator.comparingLong(LoggedEvent::position));
+            return events.size() > limit ? new ArrayList<>(events.subList(0, limit)) : events;
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't query database", e);
+        }
+        finally {
+            readConnections.release(connection);
+        }
+    }
+
+    private void readLog(ReadConnection connection, StreamTable table, long fromPosition, long toPosition, int limit, List<LoggedEvent> events) throws SQLException {
+        PreparedStatement statement = connection.logStatement(table.streamType());
+        statement.setLong(1, fromPosition);
+        statement.setLong(2, toPosition);
+        statement.setInt(3, limit);
+
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                events.add(table.readLoggedEvent(connection.connection(), rs));
+            }
+        }
+    }
+
+    public WriterStatistics writerStatistics() {
+        return new WriterStatistics(metrics.batchSizes().snapshot(), metrics.batchDurations().snapshot(), batchLimit);
+    }
+
+    Executor asyncExecutor() {
+        return asyncExecutor;
+    }
+
+    public StoreMetrics metrics() {
+        return metrics;
+    }
+
+    String url() {
+        return url;
+    }
+
+    private class EventCursor extends Spliterators.AbstractSpliterator<Event> {
+
+        private final StreamTable table;
+        private final ReadConnection connection;
+        private final ResultSet rs;
+        private final UUID aggregateId;
+        private final long fromVersion;
+        private final long start;
+        private final ReadEvent readEvent;
+        private int rows;
+        private boolean closed;
+
+        EventCursor(StreamTable table, ReadConnection connection, ResultSet rs, UUID aggregateId, long fromVersion, long start, ReadEvent readEvent) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+            this.table = table;
+            this.connection = connection;
+            this.rs = rs;
+            this.aggregateId = aggregateId;
+            this.fromVersion = fromVersion;
+            this.start = start;
+            this.readEvent = readEvent;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Event> action) {
+            if (closed) {
+                return false;
+            }
+
             try {
-                writeConn.commit();
+                if (!rs.next()) {
+                    // releases the connection early, also if the stream isn't closed
+                    close();
+                    return false;
+                }
+
+                rows++;
+                action.accept(table.readEvent(connection.connection(), rs, aggregateId));
+                return true;
             }
             catch (SQLException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                close();
+                throw new IllegalStateException("Couldn't query database", e);
             }
+        }
 
-            for (Work work : workItems) {
-                work.future().complete(null);
+        void close() {
+            if (closed) {
+                return;
             }
-        }
-        else {
+            closed = true;
+
             try {
-                writeConn.rollback();
+                rs.close();
             }
             catch (SQLException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                throw new IllegalStateException("Couldn't close cursor", e);
+            }
+            finally {
+                readConnections.release(connection);
+                recordRead(start, readEvent, table.streamType(), aggregateId, fromVersion, rows);
             }
+        }
+    }
 
-            for (Work work : workItems) {
-                if (work != failed) {
-                    work.future().completeExceptionally(new RuntimeException("Other item in batch failed; try again"));
+    private void pollWork() {
+        writerThread = Thread.currentThread();
+        List<Work> workItems = new ArrayList<>();
+        int idleCount = 0;
+
+        GroupCommitPolicy policy = options.groupCommitPolicy();
+        long lingerNanos = policy.maxLinger().toNanos();
+
+        while(running || !workQueue.isEmpty()) {
+            int transferred = drain(workItems, batchLimit);
+
+            if (transferred == 0) {
+                awaitWork(idleCount++);
+            }
+            else {
+                idleCount = 0;
+
+                if (transferred < batchLimit && lingerNanos > 0) {
+                    linger(workItems, lingerNanos);
                 }
+
+                recordQueueWait(workItems);
+
+                long start = System.nanoTime();
+                execute(workItems);
+                long duration = System.nanoTime() - start;
+
+                if (policy.isAdaptive()) {
+                    adaptBatchLimit(policy, workItems.size(), duration);
+                }
+
+                workItems.clear();
             }
         }
     }
 
-    private boolean execute(Work workItem) {
-        String streamType = workItem.streamType();
-        Event event = workItem.event();
+    private void recordQueueWait(List<Work> workItems) {
+        long now = 0;
+
+        for (Work work : workItems) {
+            QueueWaitEvent event = new QueueWaitEvent();
+
+            if (event.shouldCommit()) {
+                if (now == 0) {
+                    now = System.nanoTime();
+                }
+
+                event.streamType = work.table().streamType();
+                event.events = work.events().size();
+                event.waitTime = now - work.enqueuedAt();
+                event.commit();
+            }
+        }
+    }
+
+    private int drain(List<Work> workItems, int max) {
+        int transferred = workQueue.drainTo(workItems, max);
+
+        if (transferred > 0 && !waitingProducers.isEmpty()) {
+            waitingProducers.forEach(LockSupport::unpark);
+        }
+
+        return transferred;
+    }
+
+    /**
+     * Waits for more work to arrive until the batch is full or the linger time
+     * has elapsed, so that one commit covers more work items.
+     */
+    private void linger(List<Work> workItems, long lingerNanos) {
+        long deadline = System.nanoTime() + lingerNanos;
+
+        while (workItems.size() < batchLimit && running) {
+            if (drain(workItems, batchLimit - workItems.size()) > 0) {
+                continue;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+
+            writerWaiting = true;
+            if (workQueue.isEmpty()) {
+                LockSupport.parkNanos(this, remaining);
+            }
+            writerWaiting = false;
+        }
+    }
+
+    /**
+     * Halves the batch limit if a batch took longer than the target commit
+     * time, and grows it by half if a full batch took less than that.
+     */
+    private void adaptBatchLimit(GroupCommitPolicy policy, int batchSize, long duration) {
+        long target = policy.targetCommitTime().toNanos();
+
+        if (duration > target) {
+            batchLimit = Math.max(policy.minBatchSize(), batchLimit / 2);
+        }
+        else if (batchSize >= batchLimit) {
+            batchLimit = Math.min(policy.maxBatchSize(), batchLimit + Math.max(1, batchLimit / 2));
+        }
+    }
+
+    private void awaitWork(int idleCount) {
+        switch (options.waitStrategy()) {
+            case BUSY_SPIN -> Thread.onSpinWait();
+            case YIELDING -> {
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                }
+                else {
+                    Thread.yield();
+                }
+            }
+            case BLOCKING -> {
+                if (idleCount < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                    return;
+                }
+
+                writerWaiting = true;
+                // re-check after announcing the wait, so no wake-up can get lost
+                if (workQueue.isEmpty() && running) {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+                writerWaiting = false;
+            }
+        }
+    }
+
+    /**
+     * Executes the given work items in one transaction. Each item is wrapped in
+     * a savepoint, so that a failing item (e.g. due to a version conflict) is
+     * rolled back on its own, while all the other items of the batch get
+     * committed. Only the futures of successful items are still incomplete
+     * after executing them; they get completed once the commit is done.
+     */
+    private void execute(List<Work> workItems) {
+        BatchEvent batchEvent = new BatchEvent();
+        batchEvent.begin();
+        long start = System.nanoTime();
+        long commitStart;
+
+        long batchStartPosition = nextPosition;
+        collectCommittedEvents = !subscriptions.isEmpty();
+        Durability durability = requiredDurability(workItems);
 
         try {
-            PreparedStatement maxVersionStatement = workItem.maxVersionStatement();
-            PreparedStatement insertStatement = workItem.insertStatement();
+            // raised for the work items requiring a stronger durability than configured, reset lazily
+            setDurability(durability);
 
-            maxVersionStatement.setString(1, event.aggregateId().toString());
-            ResultSet rs = maxVersionStatement.executeQuery();
-            if (rs.next()) {
-                long maxVersion = rs.getLong("MAX_VERSION");
+            for (Work work : workItems) {
+                EventTypeDictionary typeDictionary = work.table().typeDictionary();
 
-                if (event.version() < maxVersion) {
-                    workItem.future().completeExceptionally(new InconsistentVersionException(streamType, event.aggregateId(), event.version()));
-                    return false;
+                // registered outside of the savepoint, so that the type sticks
+                // with its id, also if the work item gets rolled back
+                if (typeDictionary != null) {
+                    for (Event event : work.events()) {
+                        typeDictionary.register(writeConn, event.type());
+                    }
+                }
+
+                savepointStatement.executeUpdate();
+
+                if (!execute(work)) {
+                    rollbackToStatement.executeUpdate();
+                }
+
+                releaseStatement.executeUpdate();
+            }
+
+            commitStart = batchEvent.isEnabled() ? System.nanoTime() : 0;
+            writeConn.commit();
+        }
+        catch (SQLException e) {
+            nextPosition = batchStartPosition;
+            committedEvents.clear();
+            failBatch(workItems, e);
+            return;
+        }
+
+        long committedAt = System.nanoTime();
+        committedPosition = nextPosition - 1;
+        int committed = (int) (nextPosition - batchStartPosition);
+
+        // recorded before completing the futures, so that callers see the metrics of their events
+        metrics.recordCommit(workItems.size(), committed, committedAt - start);
+
+        batchEvent.end();
+        if (batchEvent.shouldCommit()) {
+            batchEvent.workItems = workItems.size();
+            batchEvent.events = committed;
+            batchEvent.durability = durability.name();
+            batchEvent.sqlTime = commitStart - start;
+            batchEvent.commitTime = committedAt - commitStart;
+            batchEvent.commit();
+        }
+
+        for (Work work : workItems) {
+            if (!work.future().isDone()) {
+                metrics.recordPersist(committedAt - work.enqueuedAt());
+                work.future().complete(null);
+            }
+        }
+
+        if (!committedEvents.isEmpty()) {
+            List<LoggedEvent> events = List.copyOf(committedEvents);
+            committedEvents.clear();
+
+            for (LogSubscription subscription : subscriptions) {
+                subscription.onCommitted(events);
+            }
+        }
+    }
+
+    /**
+     * Fails the given work item, counting the failure before completing its future.
+     */
+    private void fail(Work work, Exception failure) {
+        metrics.recordFailure(failure);
+        work.future().completeExceptionally(failure);
+    }
+
+    private Durability requiredDurability(List<Work> workItems) {
+        Durability durability = options.durability();
+
+        for (Work work : workItems) {
+            if (work.durability() != null && work.durability().compareTo(durability) > 0) {
+                durability = work.durability();
+            }
+        }
+
+        return durability;
+    }
+
+    /**
+     * Sets the durability with which the write connection commits. As SQLite
+     * doesn't allow to change it within a transaction, the (empty) transaction
+     * of the writer is ended for that.
+     */
+    private void setDurability(Durability durability) throws SQLException {
+        if (durability == connectionDurability) {
+            return;
+        }
+
+        writeConn.setAutoCommit(true);
+
+        try (Statement statement = writeConn.createStatement()) {
+            statement.executeUpdate("pragma synchronous=" + durability.synchronous());
+        }
+        finally {
+            writeConn.setAutoCommit(false);
+        }
+
+        connectionDurability = durability;
+    }
+
+    private void failBatch(List<Work> workItems, SQLException e) {
+        LOGGER.log(Level.WARNING, "Couldn't write batch of work items", e);
+
+        try {
+            writeConn.rollback();
+        }
+        catch (SQLException rollbackException) {
+            e.addSuppressed(rollbackException);
+        }
+
+        // the indexes may contain versions and the dictionaries types which
+        // just have been rolled back
+        for (StreamTable table : streamTables.values()) {
+            if (table.versionIndex() != null) {
+                table.versionIndex().invalidate();
+            }
+            if (table.typeDictionary() != null) {
+                try {
+                    table.typeDictionary().reset(writeConn);
+                }
+                catch (SQLException resetException) {
+                    e.addSuppressed(resetException);
                 }
             }
+        }
+
+        for (Work work : workItems) {
+            if (!work.future().isDone()) {
+                fail(work, new IllegalStateException("Couldn't persist event", e));
+            }
+        }
+    }
 
-            insertStatement.setString(1, event.id().toString());
-            insertStatement.setString(2, event.type());
-            insertStatement.setString(3, event.aggregateId().toString());
-            insertStatement.setLong(4, event.version());
-            insertStatement.setString(5, event.payload());
+    /**
+     * Executes the given work item, validating the versions of its events once
+     * per run of events of the same aggregate and inserting them with multi-row
+     * inserts. Either all events of the item are inserted or none.
+     */
+    private boolean execute(Work workItem) {
+        StreamTable table = workItem.table();
+        String streamType = table.streamType();
+        List<Event> events = workItem.events();
+        long firstPosition = nextPosition;
+        int firstCommittedEvent = committedEvents.size();
 
-            insertStatement.executeUpdate();
+        try {
+            if (!validateVersions(workItem)) {
+                return false;
+            }
 
-            return true;
+            table.insertAll(events, firstPosition);
         }
         catch(SQLiteException e) {
-            if (e.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE) {
-                workItem.future().completeExceptionally(new DuplicateVersionException(streamType, event.aggregateId(), event.version()));
+            // the primary key of WITHOUT ROWID tables is the unique key
+            if (e.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE || e.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY) {
+                fail(workItem, new DuplicateVersionException(streamType, events.get(0).aggregateId(), events.get(0).version()));
             }
             else {
-                workItem.future().completeExceptionally(new IllegalStateException("Couldn't persist event", e));
+                fail(workItem, new IllegalStateException("Couldn't persist event", e));
             }
 
             return false;
         }
         catch (SQLException e) {
-            workItem.future().completeExceptionally(new IllegalStateException("Couldn't persist event", e));
+            fail(workItem, new IllegalStateException("Couldn't persist event", e));
             return false;
         }
+
+        AggregateVersionIndex versionIndex = table.versionIndex();
+
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+
+            // the last event of a run has the highest version
+            if (versionIndex != null && (i == events.size() - 1 || !events.get(i + 1).aggregateId().equals(event.aggregateId()))) {
+                versionIndex.put(event.aggregateId(), event.version());
+            }
+            if (collectCommittedEvents) {
+                committedEvents.add(new LoggedEvent(firstPosition + i, streamType, event));
+            }
+        }
+
+        nextPosition = firstPosition + events.size();
+
+        return true;
+    }
+
+    /**
+     * Checks that the events of the given work item follow upon the latest
+     * persisted versions of their aggregates. The latest version is looked up
+     * once per run of subsequent events of the same aggregate; within a run,
+     * the versions must be increasing.
+     */
+    private boolean validateVersions(Work workItem) throws SQLException {
+        StreamTable table = workItem.table();
+        String streamType = table.streamType();
+        List<Event> events = workItem.events();
+        AggregateVersionIndex versionIndex = table.versionIndex();
+
+        // versions of aggregates with more than one run in this work item
+        Map<UUID, Long> pendingVersions = null;
+        long maxVersion = 0;
+
+        for (int i = 0; i < events.size(); i++) {
+            Event event = events.get(i);
+            boolean runStart = i == 0 || !events.get(i - 1).aggregateId().equals(event.aggregateId());
+
+            if (runStart) {
+                Long pendingVersion = pendingVersions != null ? pendingVersions.get(event.aggregateId()) : null;
+
+                if (pendingVersion != null) {
+                    maxVersion = pendingVersion;
+                }
+                else {
+                    maxVersion = versionIndex != null ? versionIndex.get(event.aggregateId()) : AggregateVersionIndex.UNKNOWN;
+                    if (maxVersion == AggregateVersionIndex.UNKNOWN) {
+                        maxVersion = table.maxVersion(event.aggregateId());
+                    }
+                }
+            }
+
+            if (event.version() < maxVersion) {
+                fail(workItem, new InconsistentVersionException(streamType, event.aggregateId(), event.version()));
+                return false;
+            }
+            // the latest version is known, so the unique index doesn't need to be hit for detecting duplicates
+            else if (event.version() == maxVersion) {
+                fail(workItem, new DuplicateVersionException(streamType, event.aggregateId(), event.version()));
+                return false;
+            }
+
+            maxVersion = event.version();
+
+            // another run of the same aggregate may follow
+            if (i < events.size() - 1 && !events.get(i + 1).aggregateId().equals(event.aggregateId())) {
+                if (pendingVersions == null) {
+                    pendingVersions = new HashMap<>();
+                }
+                pendingVersions.put(event.aggregateId(), maxVersion);
+            }
+        }
+
+        return true;
     }
 }
@@ -0,0 +1,431 @@
+package dev.morling.eventful.store;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Objects;
+
+import dev.morling.eventful.codec.PayloadCompressor;
+
+public class SqliteEventStoreOptions {
+
+    private final Path databasePath;
+    private final OpenMode openMode;
+    private final Durability durability;
+    private final int pageSize;
+    private final int cacheSize;
+    private final long mmapSize;
+    private final TempStore tempStore;
+    private final int walAutoCheckpoint;
+    private final int queueSize;
+    private final WaitStrategy waitStrategy;
+    private final BackpressureStrategy backpressureStrategy;
+    private final Duration enqueueTimeout;
+    private final GroupCommitPolicy groupCommitPolicy;
+    private final int versionIndexSize;
+    private final SchemaLayout schemaLayout;
+    private final boolean eventTypeDictionary;
+    private final int readConnections;
+    private final ThreadingModel threadingModel;
+    private final int readPermits;
+    private final Duration readTimeout;
+    private final PayloadCompressor compressor;
+    private final int compressionThreshold;
+
+    private SqliteEventStoreOptions(Builder builder) {
+        this.databasePath = builder.databasePath;
+        this.openMode = builder.openMode;
+        this.durability = builder.durability;
+        this.pageSize = builder.pageSize;
+        this.cacheSize = builder.cacheSize;
+        this.mmapSize = builder.mmapSize;
+        this.tempStore = builder.tempStore;
+        this.walAutoCheckpoint = builder.walAutoCheckpoint;
+        this.queueSize = builder.queueSize;
+        this.waitStrategy = builder.waitStrategy;
+        this.backpressureStrategy = builder.backpressureStrategy;
+        this.enqueueTimeout = builder.enqueueTimeout;
+        this.groupCommitPolicy = builder.groupCommitPolicy;
+        this.versionIndexSize = builder.versionIndexSize;
+        this.schemaLayout = builder.schemaLayout;
+        this.eventTypeDictionary = builder.eventTypeDictionary;
+        this.readConnections = builder.readConnections;
+        this.threadingModel = builder.threadingModel;
+        this.readPermits = builder.readPermits;
+        this.readTimeout = builder.readTimeout;
+        this.compressor = builder.compressor;
+        this.compressionThreshold = builder.compressionThreshold;
+    }
+
+    public static SqliteEventStoreOptions defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a builder initialized with these options.
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+
+        builder.databasePath = databasePath;
+        builder.openMode = openMode;
+        builder.durability = durability;
+        builder.pageSize = pageSize;
+        builder.cacheSize = cacheSize;
+        builder.mmapSize = mmapSize;
+        builder.tempStore = tempStore;
+        builder.walAutoCheckpoint = walAutoCheckpoint;
+        builder.queueSize = queueSize;
+        builder.waitStrategy = waitStrategy;
+        builder.backpressureStrategy = backpressureStrategy;
+        builder.enqueueTimeout = enqueueTimeout;
+        builder.groupCommitPolicy = groupCommitPolicy;
+        builder.versionIndexSize = versionIndexSize;
+        builder.schemaLayout = schemaLayout;
+        builder.eventTypeDictionary = eventTypeDictionary;
+        builder.readConnections = readConnections;
+        builder.threadingModel = threadingModel;
+        builder.readPermits = readPermits;
+        builder.readTimeout = readTimeout;
+        builder.compressor = compressor;
+        builder.compressionThreshold = compressionThreshold;
+
+        return builder;
+    }
+
+    public Path databasePath() {
+        return databasePath;
+    }
+
+    public OpenMode openMode() {
+        return openMode;
+    }
+
+    public Durability durability() {
+        return durability;
+    }
+
+    public int pageSize() {
+        return pageSize;
+    }
+
+    public int cacheSize() {
+        return cacheSize;
+    }
+
+    public long mmapSize() {
+        return mmapSize;
+    }
+
+    public TempStore tempStore() {
+        return tempStore;
+    }
+
+    public int walAutoCheckpoint() {
+        return walAutoCheckpoint;
+    }
+
+    public int queueSize() {
+        return queueSize;
+    }
+
+    public WaitStrategy waitStrategy() {
+        return waitStrategy;
+    }
+
+    public BackpressureStrategy backpressureStrategy() {
+        return backpressureStrategy;
+    }
+
+    public Duration enqueueTimeout() {
+        return enqueueTimeout;
+    }
+
+    public GroupCommitPolicy groupCommitPolicy() {
+        return groupCommitPolicy;
+    }
+
+    public int versionIndexSize() {
+        return versionIndexSize;
+    }
+
+    public SchemaLayout schemaLayout() {
+        return schemaLayout;
+    }
+
+    public boolean eventTypeDictionary() {
+        return eventTypeDictionary;
+    }
+
+    public int readConnections() {
+        return readConnections;
+    }
+
+    public ThreadingModel threadingModel() {
+        return threadingModel;
+    }
+
+    public int readPermits() {
+        return readPermits;
+    }
+
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    public PayloadCompressor compressor() {
+        return compressor;
+    }
+
+    public int compressionThreshold() {
+        return compressionThreshold;
+    }
+
+    public static class Builder {
+
+        private Path databasePath = Path.of("test.db");
+        private OpenMode openMode = OpenMode.CREATE;
+        private Durability durability = Durability.FULL;
+        private int pageSize = 4096;
+        private int cacheSize = 2000;
+        private long mmapSize = 0;
+        private TempStore tempStore = TempStore.DEFAULT;
+        private int walAutoCheckpoint = 1000;
+        private int queueSize = 16384 * 2;
+        private WaitStrategy waitStrategy = WaitStrategy.BLOCKING;
+        private BackpressureStrategy backpressureStrategy = BackpressureStrategy.BLOCK;
+        private Duration enqueueTimeout = Duration.ofSeconds(1);
+        private GroupCommitPolicy groupCommitPolicy = GroupCommitPolicy.defaults();
+        private int versionIndexSize = 0;
+        private SchemaLayout schemaLayout = SchemaLayout.TEXT;
+        private boolean eventTypeDictionary = false;
+        private int readConnections = Runtime.getRuntime().availableProcessors();
+        private ThreadingModel threadingModel = ThreadingModel.PLATFORM;
+        private int readPermits = 0;
+        private Duration readTimeout = Duration.ofSeconds(30);
+        private PayloadCompressor compressor = null;
+        private int compressionThreshold = 0;
+
+        private Builder() {
+        }
+
+        /**
+         * The database file; whether an existing file is opened or replaced
+         * depends on the {@link #openMode(OpenMode) open mode}.
+         */
+        public Builder databasePath(Path databasePath) {
+            this.databasePath = Objects.requireNonNull(databasePath);
+            return this;
+        }
+
+        /**
+         * Whether to replace (the default) or open an existing database.
+         */
+        public Builder openMode(OpenMode openMode) {
+            this.openMode = Objects.requireNonNull(openMode);
+            return this;
+        }
+
+        /**
+         * The durability of commits; {@link Durability#FULL} by default.
+         * Individual events can require a stronger durability when persisting
+         * them.
+         */
+        public Builder durability(Durability durability) {
+            this.durability = Objects.requireNonNull(durability);
+            return this;
+        }
+
+        /**
+         * The page size in bytes, a power of two between 512 and 65536; only
+         * applies to newly created databases. Defaults to 4096.
+         */
+        public Builder pageSize(int pageSize) {
+            if (pageSize < 512 || pageSize > 65536 || Integer.bitCount(pageSize) != 1) {
+                throw new IllegalArgumentException("Page size must be a power of two between 512 and 65536");
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * The page cache size per connection in KiB; defaults to 2000.
+         */
+        public Builder cacheSize(int cacheSize) {
+            if (cacheSize < 0) {
+                throw new IllegalArgumentException("Cache size must not be negative");
+            }
+            this.cacheSize = cacheSize;
+            return this;
+        }
+
+        /**
+         * The number of bytes of the database to access via memory-mapped I/O
+         * per connection; 0 (the default) disables memory-mapping.
+         */
+        public Builder mmapSize(long mmapSize) {
+            if (mmapSize < 0) {
+                throw new IllegalArgumentException("Memory-mapped size must not be negative");
+            }
+            this.mmapSize = mmapSize;
+            return this;
+        }
+
+        public Builder tempStore(TempStore tempStore) {
+            this.tempStore = Objects.requireNonNull(tempStore);
+            return this;
+        }
+
+        /**
+         * The number of pages in the WAL after which it is checkpointed into
+         * the database; defaults to 1000, 0 disables automatic checkpoints.
+         */
+        public Builder walAutoCheckpoint(int walAutoCheckpoint) {
+            if (walAutoCheckpoint < 0) {
+                throw new IllegalArgumentException("WAL auto-checkpoint must not be negative");
+            }
+            this.walAutoCheckpoint = walAutoCheckpoint;
+            return this;
+        }
+
+        /**
+         * The capacity of the writer's work queue; must be a power of two.
+         */
+        public Builder queueSize(int queueSize) {
+            if (queueSize < 2 || Integer.bitCount(queueSize) != 1) {
+                throw new IllegalArgumentException("Queue size must be a power of two, larger than 1");
+            }
+            this.queueSize = queueSize;
+            return this;
+        }
+
+        public Builder waitStrategy(WaitStrategy waitStrategy) {
+            this.waitStrategy = Objects.requireNonNull(waitStrategy);
+            return this;
+        }
+
+        public Builder backpressureStrategy(BackpressureStrategy backpressureStrategy) {
+            this.backpressureStrategy = Objects.requireNonNull(backpressureStrategy);
+            return this;
+        }
+
+        /**
+         * How long to wait for space in the work queue with {@link BackpressureStrategy#TIMEOUT}.
+         */
+        public Builder enqueueTimeout(Duration enqueueTimeout) {
+            if (enqueueTimeout.isNegative()) {
+                throw new IllegalArgumentException("Enqueue timeout must not be negative");
+            }
+            this.enqueueTimeout = enqueueTimeout;
+            return this;
+        }
+
+        public Builder groupCommitPolicy(GroupCommitPolicy groupCommitPolicy) {
+            this.groupCommitPolicy = Objects.requireNonNull(groupCommitPolicy);
+            return this;
+        }
+
+        /**
+         * Enables an in-memory index of the latest version per aggregate for
+         * up to the given number of aggregates per stream type, which avoids
+         * querying the version before each insert; takes 48 to 96 bytes per
+         * entry, depending on the load of the underlying hash table. 0 (the
+         * default) disables the index.
+         */
+        public Builder versionIndexSize(int versionIndexSize) {
+            if (versionIndexSize < 0 || versionIndexSize > 1 << 28) {
+                throw new IllegalArgumentException("Version index size must be between 0 and 2^28");
+            }
+            this.versionIndexSize = versionIndexSize;
+            return this;
+        }
+
+        /**
+         * The layout of the tables of newly initialized stream types.
+         */
+        public Builder schemaLayout(SchemaLayout schemaLayout) {
+            this.schemaLayout = Objects.requireNonNull(schemaLayout);
+            return this;
+        }
+
+        /**
+         * Whether to store event types as integer ids, mapped to their names
+         * in the {@code EVENT_TYPES} table, instead of repeating the names with
+         * each event.
+         */
+        public Builder eventTypeDictionary(boolean eventTypeDictionary) {
+            this.eventTypeDictionary = eventTypeDictionary;
+            return this;
+        }
+
+        /**
+         * The number of read-only connections used for concurrent reads;
+         * defaults to the number of available processors.
+         */
+        public Builder readConnections(int readConnections) {
+            if (readConnections < 1) {
+                throw new IllegalArgumentException("Number of read connections must be larger than 0");
+            }
+            this.readConnections = readConnections;
+            return this;
+        }
+
+        /**
+         * The kind of threads used by the store; {@link ThreadingModel#PLATFORM}
+         * by default.
+         */
+        public Builder threadingModel(ThreadingModel threadingModel) {
+            this.threadingModel = Objects.requireNonNull(threadingModel);
+            return this;
+        }
+
+        /**
+         * The maximum number of concurrent reads with
+         * {@link ThreadingModel#VIRTUAL}, granted in the order of requesting
+         * them; 0 (the default) allows one read per read connection.
+         */
+        public Builder readPermits(int readPermits) {
+            if (readPermits < 0) {
+                throw new IllegalArgumentException("Number of read permits must not be negative");
+            }
+            this.readPermits = readPermits;
+            return this;
+        }
+
+        /**
+         * How long a read waits for a read permit and connection before failing
+         * with an {@link IllegalStateException}, e.g. when the caller holds on to
+         * another connection of an exhausted pool itself.
+         */
+        public Builder readTimeout(Duration readTimeout) {
+            if (readTimeout.isNegative()) {
+                throw new IllegalArgumentException("Read timeout must not be negative");
+            }
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Compresses payloads of at least {@code threshold} bytes with the given
+         * compressor; payloads which don't get any smaller are stored as they
+         * are. {@code null} (the default) disables compression. Compressed
+         * payloads can be read regardless of this setting, as long as their
+         * compressor is registered.
+         */
+        public Builder compression(PayloadCompressor compressor, int threshold) {
+            if (threshold < 0) {
+                throw new IllegalArgumentException("Compression threshold must not be negative");
+            }
+            this.compressor = compressor;
+            this.compressionThreshold = threshold;
+            return this;
+        }
+
+        public SqliteEventStoreOptions build() {
+            return new SqliteEventStoreOptions(this);
+        }
+    }
+}
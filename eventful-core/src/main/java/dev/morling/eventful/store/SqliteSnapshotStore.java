@@ -0,0 +1,166 @@
+package dev.morling.eventful.store;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Stores the latest snapshot per aggregate in a {@code <stream type>_SNAPSHOT}
+ * table, in the same database file as the events of the given store.
+ * <p>
+ * The connections are guarded by locks rather than monitors, as the driver
+ * synchronizes on the connection itself; threads contending for it would
+ * otherwise block in a monitor, pinning the carrier of virtual threads.
+ */
+public class SqliteSnapshotStore implements SnapshotStore {
+
+    private static final int BUSY_TIMEOUT_MS = 5_000;
+
+    private final Connection conn;
+    private final Connection writeConn;
+    private final Map<String, PreparedStatement> upsertStatements;
+    private final ReentrantLock readLock;
+    private final ReentrantLock writeLock;
+    private final Executor asyncExecutor;
+
+    public SqliteSnapshotStore(SqliteEventStore eventStore) {
+        try {
+            SQLiteConfig writeConfig = new SQLiteConfig();
+            writeConfig.setBusyTimeout(BUSY_TIMEOUT_MS);
+            writeConn = DriverManager.getConnection(eventStore.url(), writeConfig.toProperties());
+
+            SQLiteConfig config = new SQLiteConfig();
+            config.setReadOnly(true);
+            config.setBusyTimeout(BUSY_TIMEOUT_MS);
+            conn = DriverManager.getConnection(eventStore.url(), config.toProperties());
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't open database", e);
+        }
+
+        upsertStatements = new ConcurrentHashMap<>();
+        readLock = new ReentrantLock();
+        writeLock = new ReentrantLock();
+        asyncExecutor = eventStore.asyncExecutor();
+    }
+
+    @Override
+    public void close() {
+        try {
+            for (PreparedStatement statement : upsertStatements.values()) {
+                statement.close();
+            }
+
+            writeConn.close();
+            conn.close();
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't close database", e);
+        }
+    }
+
+    @Override
+    public synchronized void initialize(String streamType) {
+        if (upsertStatements.containsKey(streamType)) {
+            return;
+        }
+
+        try {
+            try (Statement tableStatement = writeConn.createStatement()) {
+                tableStatement.executeUpdate("""
+                        CREATE TABLE IF NOT EXISTS %s_SNAPSHOT (
+                        AGGREGATE_ID TEXT   PRIMARY KEY NOT NULL,
+                        VERSION      BIGINT             NOT NULL,
+                        STATE        BLOB               NOT NULL
+                      )
+                      """.formatted(streamType));
+            }
+
+            PreparedStatement upsertStatement = writeConn.prepareStatement("""
+                    INSERT INTO %1$s_SNAPSHOT
+                      (AGGREGATE_ID, VERSION, STATE)
+                      VALUES (?, ?, ?)
+                    ON CONFLICT (AGGREGATE_ID) DO UPDATE
+                      SET VERSION = excluded.VERSION, STATE = excluded.STATE
+                      WHERE excluded.VERSION > %1$s_SNAPSHOT.VERSION
+                    """.formatted(streamType));
+
+            upsertStatements.put(streamType, upsertStatement);
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't query database", e);
+        }
+    }
+
+    @Override
+    public void save(String streamType, Snapshot snapshot) {
+        PreparedStatement upsertStatement = upsertStatements.get(streamType);
+
+        if (upsertStatement == null) {
+            throw new IllegalArgumentException("Snapshots for stream type '%s' haven't been initialized".formatted(streamType));
+        }
+
+        writeLock.lock();
+        try {
+            upsertStatement.setString(1, snapshot.aggregateId().toString());
+            upsertStatement.setLong(2, snapshot.version());
+            upsertStatement.setBytes(3, snapshot.state());
+            upsertStatement.executeUpdate();
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't persist snapshot", e);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Snapshot> latest(String streamType, UUID aggregateId) {
+        readLock.lock();
+        try (PreparedStatement statement = conn.prepareStatement("SELECT VERSION, STATE FROM %s_SNAPSHOT WHERE AGGREGATE_ID = ?".formatted(streamType))) {
+            statement.setString(1, aggregateId.toString());
+
+            try (ResultSet rs = statement.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(new Snapshot(aggregateId, rs.getLong(1), rs.getBytes(2)));
+                }
+                return Optional.empty();
+            }
+        }
+        catch (SQLException e) {
+            throw new IllegalStateException("Couldn't query database", e);
+        }
+        finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the latest snapshot on a thread of the event store's async
+     * executor.
+     */
+    @Override
+    public CompletionStage<Optional<Snapshot>> latestAsync(String streamType, UUID aggregateId) {
+        try {
+            return CompletableFuture.supplyAsync(() -> latest(streamType, aggregateId), asyncExecutor);
+        }
+        catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Store is stopped already", e));
+        }
+    }
+}
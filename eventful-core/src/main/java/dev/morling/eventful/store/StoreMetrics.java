@@ -0,0 +1,123 @@
+package dev.morling.eventful.store;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * The metrics of a {@link SqliteEventStore}. Counters are striped and
+ * histograms recorded by several threads are striped by thread, so that
+ * recording neither locks nor allocates, and doesn't contend on the hot
+ * paths. Metrics are exposed to monitoring systems through
+ * {@link #collect(MetricsCollector)}.
+ */
+public class StoreMetrics {
+
+    /**
+     * The failure types counted separately; all others are counted as "other".
+     */
+    private static final List<Class<? extends Exception>> FAILURE_TYPES = List.of(DuplicateVersionException.class, InconsistentVersionException.class,
+            RejectedExecutionException.class, IllegalStateException.class);
+
+    private static final int READ_STRIPES = Runtime.getRuntime().availableProcessors();
+
+    private final IntSupplier queueDepth;
+    private final int queueCapacity;
+
+    // recorded by the writer thread only
+    private final Histogram persistLatencies;
+    private final Histogram batchSizes;
+    private final Histogram batchDurations;
+    private final LongAdder commits;
+    private final LongAdder committedEvents;
+
+    private final LongAdder[] failures;
+    private final Histogram readLatencies;
+    private final Histogram readRows;
+
+    StoreMetrics(IntSupplier queueDepth, int queueCapacity) {
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.persistLatencies = new Histogram();
+        this.batchSizes = new Histogram();
+        this.batchDurations = new Histogram();
+        this.commits = new LongAdder();
+        this.committedEvents = new LongAdder();
+        this.failures = new LongAdder[FAILURE_TYPES.size() + 1];
+        for (int i = 0; i < failures.length; i++) {
+            failures[i] = new LongAdder();
+        }
+        this.readLatencies = new Histogram(READ_STRIPES);
+        this.readRows = new Histogram(READ_STRIPES);
+    }
+
+    /**
+     * Records the time from enqueueing a work item until its successful commit.
+     */
+    void recordPersist(long latency) {
+        persistLatencies.record(latency);
+    }
+
+    void recordCommit(int workItems, int events, long duration) {
+        batchSizes.record(workItems);
+        batchDurations.record(duration);
+        commits.increment();
+        committedEvents.add(events);
+    }
+
+    void recordFailure(Throwable failure) {
+        failures[failureIndex(failure)].increment();
+    }
+
+    void recordRead(long latency, int rows) {
+        readLatencies.record(latency);
+        readRows.record(rows);
+    }
+
+    private static int failureIndex(Throwable failure) {
+        for (int i = 0; i < FAILURE_TYPES.size(); i++) {
+            if (FAILURE_TYPES.get(i).isInstance(failure)) {
+                return i;
+            }
+        }
+
+        return FAILURE_TYPES.size();
+    }
+
+    Histogram batchSizes() {
+        return batchSizes;
+    }
+
+    Histogram batchDurations() {
+        return batchDurations;
+    }
+
+    /**
+     * Passes all metrics to the given collector.
+     */
+    public void collect(MetricsCollector collector) {
+        Map<String, String> noTags = Map.of();
+
+        collector.gauge("eventful.queue.depth", "Work items waiting in the writer's queue", noTags, queueDepth::getAsInt);
+        collector.gauge("eventful.queue.remaining", "Remaining capacity of the writer's queue", noTags, () -> queueCapacity - queueDepth.getAsInt());
+
+        collector.timer("eventful.persist.latency", "Time from enqueueing events until their commit", noTags, persistLatencies::snapshot);
+        collector.counter("eventful.commits", "Committed batches", noTags, commits::sum);
+        collector.counter("eventful.committed.events", "Committed events", noTags, committedEvents::sum);
+        collector.distribution("eventful.batch.size", "Work items per batch", "work items", noTags, batchSizes::snapshot);
+        collector.timer("eventful.batch.duration", "Time for executing and committing a batch", noTags, batchDurations::snapshot);
+
+        for (int i = 0; i <= FAILURE_TYPES.size(); i++) {
+            LongAdder count = failures[i];
+            String type = i < FAILURE_TYPES.size() ? FAILURE_TYPES.get(i).getSimpleName() : "other";
+
+            collector.counter("eventful.persist.failures", "Work items which couldn't be persisted, e.g. due to version conflicts", Map.of("exception", type),
+                    count::sum);
+        }
+
+        collector.timer("eventful.read.latency", "Time for reading the events of an aggregate", noTags, readLatencies::snapshot);
+        collector.distribution("eventful.read.rows", "Events per read", "events", noTags, readRows::snapshot);
+    }
+}
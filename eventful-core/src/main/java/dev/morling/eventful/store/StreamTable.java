@@ -0,0 +1,415 @@
+package dev.morling.eventful.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import dev.morling.eventful.codec.PayloadCodecs;
+
+/**
+ * The table of one stream type, encapsulating how events are mapped to its
+ * columns under the different schema layouts. The insert and max version
+ * statements are bound to the connection passed upon creation and must only
+ * be used by one thread at a time.
+ */
+class StreamTable {
+
+    /**
+     * The columns of {@link #readEvent(Connection, ResultSet)}, in that order.
+     */
+    static final String EVENT_COLUMNS = "ID, TYPE, VERSION, PAYLOAD, CODEC, COMPRESSION, AGGREGATE_ID";
+
+    /**
+     * The columns of {@link #readLoggedEvent(Connection, ResultSet)}, in that order.
+     */
+    static final String LOG_COLUMNS = EVENT_COLUMNS + ", POSITION";
+
+    // 8 parameters per row, staying well below SQLite's limit of variables per statement
+    private static final int MAX_ROWS_PER_INSERT = 256;
+
+    private final String streamType;
+    private final SchemaLayout layout;
+    private final EventTypeDictionary typeDictionary;
+    private final PayloadCompression compression;
+    private final AggregateVersionIndex versionIndex;
+    private final PreparedStatement insertStatement;
+    private final PreparedStatement maxVersionStatement;
+    private final Connection connection;
+    // indexed by the log2 of the number of rows
+    private final PreparedStatement[] multiInsertStatements;
+
+    StreamTable(Connection connection, String streamType, SchemaLayout layout, EventTypeDictionary typeDictionary, PayloadCompression compression,
+                AggregateVersionIndex versionIndex) throws SQLException {
+        this.streamType = streamType;
+        this.layout = layout;
+        this.typeDictionary = typeDictionary;
+        this.compression = compression;
+        this.versionIndex = versionIndex;
+        this.connection = connection;
+        this.multiInsertStatements = new PreparedStatement[Integer.numberOfTrailingZeros(MAX_ROWS_PER_INSERT) + 1];
+
+        this.insertStatement = connection.prepareStatement("""
+                INSERT INTO %s
+                  (ID, TYPE, AGGREGATE_ID, VERSION, PAYLOAD, CODEC, COMPRESSION, POSITION)
+                  VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """.formatted(streamType));
+
+        this.maxVersionStatement = connection.prepareStatement("""
+                SELECT MAX(VERSION) as MAX_VERSION
+                FROM %s
+                WHERE AGGREGATE_ID = ?
+                """.formatted(streamType));
+    }
+
+    static void createTable(Connection connection, String streamType, SchemaLayout layout, boolean typeDictionary) throws SQLException {
+        String typeColumn = typeDictionary ? "INTEGER" : "TEXT   ";
+
+        try (Statement statement = connection.createStatement()) {
+            switch (layout) {
+                case TEXT -> {
+                    statement.executeUpdate("""
+                            CREATE TABLE %s (
+                            ID           TEXT PRIMARY KEY NOT NULL,
+                            TYPE         %s          NOT NULL,
+                            AGGREGATE_ID TEXT             NOT NULL,
+                            VERSION      BIGINT           NOT NULL,
+                            PAYLOAD      TEXT             NOT NULL,
+                            CODEC        INTEGER          NOT NULL DEFAULT 0,
+                            COMPRESSION  INTEGER          NOT NULL DEFAULT 0,
+                            POSITION     BIGINT           NOT NULL
+                          )
+                          """.formatted(streamType, typeColumn));
+
+                    statement.executeUpdate("CREATE UNIQUE INDEX %s_idx ON %s (AGGREGATE_ID, VERSION)".formatted(streamType, streamType));
+                }
+                case BINARY -> {
+                    statement.executeUpdate("""
+                            CREATE TABLE %s (
+                            AGGREGATE_ID BLOB    NOT NULL,
+                            VERSION      BIGINT  NOT NULL,
+                            ID           BLOB    NOT NULL,
+                            TYPE         %s NOT NULL,
+                            PAYLOAD      TEXT    NOT NULL,
+                            CODEC        INTEGER NOT NULL DEFAULT 0,
+                            COMPRESSION  INTEGER NOT NULL DEFAULT 0,
+                            POSITION     BIGINT  NOT NULL,
+                            PRIMARY KEY (AGGREGATE_ID, VERSION)
+                          ) WITHOUT ROWID
+                          """.formatted(streamType, typeColumn));
+                }
+            }
+
+            statement.executeUpdate("CREATE UNIQUE INDEX %s_position_idx ON %s (POSITION)".formatted(streamType, streamType));
+        }
+
+        if (typeDictionary) {
+            EventTypeDictionary.createTable(connection);
+        }
+    }
+
+    /**
+     * Returns the names of all stream tables of the given database.
+     */
+    static List<String> streamTables(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%' ORDER BY name")) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+
+        List<String> streamTables = new ArrayList<>();
+
+        for (String table : tables) {
+            if (isStreamTable(connection, table)) {
+                streamTables.add(table);
+            }
+        }
+
+        return streamTables;
+    }
+
+    /**
+     * Whether the given table is a stream table.
+     */
+    static boolean isStreamTable(Connection connection, String table) throws SQLException {
+        int matches = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT name FROM pragma_table_info(?)")) {
+            statement.setString(1, table);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    switch (rs.getString(1).toUpperCase()) {
+                        case "ID", "TYPE", "AGGREGATE_ID", "VERSION", "PAYLOAD" -> matches++;
+                        default -> {
+                        }
+                    }
+                }
+            }
+        }
+
+        return matches == 5;
+    }
+
+    /**
+     * Whether the given stream table has a log position column; tables created
+     * by earlier versions don't.
+     */
+    static boolean hasPosition(Connection connection, String table) throws SQLException {
+        return hasColumn(connection, table, "POSITION");
+    }
+
+    static SchemaLayout detectLayout(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT sql FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            statement.setString(1, table);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next()) {
+                    throw new IllegalArgumentException("Table '%s' doesn't exist".formatted(table));
+                }
+
+                return rs.getString(1).toUpperCase().contains("WITHOUT ROWID") ? SchemaLayout.BINARY : SchemaLayout.TEXT;
+            }
+        }
+    }
+
+    static boolean detectTypeDictionary(Connection connection, String table) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT type FROM pragma_table_info(?) WHERE upper(name) = 'TYPE'")) {
+            statement.setString(1, table);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getString(1).equalsIgnoreCase("INTEGER");
+            }
+        }
+    }
+
+    String streamType() {
+        return streamType;
+    }
+
+    SchemaLayout layout() {
+        return layout;
+    }
+
+    EventTypeDictionary typeDictionary() {
+        return typeDictionary;
+    }
+
+    PayloadCompression compression() {
+        return compression;
+    }
+
+    AggregateVersionIndex versionIndex() {
+        return versionIndex;
+    }
+
+    /**
+     * Inserts the given events with consecutive positions, using multi-row
+     * inserts of up to {@link #MAX_ROWS_PER_INSERT} rows. Chunks smaller than
+     * that are split into powers of two, so that only a few statements need
+     * to be prepared.
+     */
+    void insertAll(List<Event> events, long firstPosition) throws SQLException {
+        if (events.size() == 1) {
+            insert(events.get(0), firstPosition);
+            return;
+        }
+
+        int offset = 0;
+
+        while (offset < events.size()) {
+            int rows = Math.min(MAX_ROWS_PER_INSERT, Integer.highestOneBit(events.size() - offset));
+            PreparedStatement statement = multiInsertStatement(rows);
+            int index = 1;
+
+            for (int i = offset; i < offset + rows; i++) {
+                Event event = events.get(i);
+
+                setId(statement, index++, event.id());
+                if (typeDictionary != null) {
+                    statement.setInt(index++, typeDictionary.idOf(event.type()));
+                }
+                else {
+                    statement.setString(index++, event.type());
+                }
+                setId(statement, index++, event.aggregateId());
+                statement.setLong(index++, event.version());
+                int payloadIndex = index++;
+                statement.setInt(index++, event.codec());
+                setPayload(statement, payloadIndex, index++, event);
+                statement.setLong(index++, firstPosition + i);
+            }
+
+            statement.executeUpdate();
+            offset += rows;
+        }
+    }
+
+    private PreparedStatement multiInsertStatement(int rows) throws SQLException {
+        int slot = Integer.numberOfTrailingZeros(rows);
+        PreparedStatement statement = multiInsertStatements[slot];
+
+        if (statement == null) {
+            statement = connection.prepareStatement("""
+                    INSERT INTO %s
+                      (ID, TYPE, AGGREGATE_ID, VERSION, PAYLOAD, CODEC, COMPRESSION, POSITION)
+                      VALUES %s
+                    """.formatted(streamType, String.join(", ", Collections.nCopies(rows, "(?, ?, ?, ?, ?, ?, ?, ?)"))));
+            multiInsertStatements[slot] = statement;
+        }
+
+        return statement;
+    }
+
+    void insert(Event event, long position) throws SQLException {
+        setId(insertStatement, 1, event.id());
+        if (typeDictionary != null) {
+            insertStatement.setInt(2, typeDictionary.idOf(event.type()));
+        }
+        else {
+            insertStatement.setString(2, event.type());
+        }
+        setId(insertStatement, 3, event.aggregateId());
+        insertStatement.setLong(4, event.version());
+        setPayload(insertStatement, 5, 7, event);
+        insertStatement.setInt(6, event.codec());
+        insertStatement.setLong(8, position);
+
+        insertStatement.executeUpdate();
+    }
+
+    long maxVersion(UUID aggregateId) throws SQLException {
+        setId(maxVersionStatement, 1, aggregateId);
+
+        try (ResultSet rs = maxVersionStatement.executeQuery()) {
+            return rs.next() ? rs.getLong("MAX_VERSION") : 0;
+        }
+    }
+
+    void setId(PreparedStatement statement, int index, UUID id) throws SQLException {
+        if (layout == SchemaLayout.BINARY) {
+            statement.setBytes(index, Uuids.toBytes(id));
+        }
+        else {
+            statement.setString(index, id.toString());
+        }
+    }
+
+    /**
+     * Reads an event from a row selected with {@link #EVENT_COLUMNS}.
+     */
+    Event readEvent(Connection connection, ResultSet rs) throws SQLException {
+        return readEvent(connection, rs, getId(rs, 7));
+    }
+
+    /**
+     * Reads an event of the given aggregate from a row selected with
+     * {@link #EVENT_COLUMNS} or at least its first six columns.
+     */
+    Event readEvent(Connection connection, ResultSet rs, UUID aggregateId) throws SQLException {
+        UUID id = getId(rs, 1);
+        String type = typeDictionary != null ? typeDictionary.nameOf(connection, rs.getInt(2)) : rs.getString(2);
+        long version = rs.getLong(3);
+        byte[] data = rs.getBytes(4);
+        int codec = rs.getInt(5);
+        int compressionCode = rs.getInt(6);
+
+        if (compressionCode != PayloadCompression.NONE) {
+            data = compression.decompress(connection, compressionCode, data);
+        }
+
+        return new Event(type, id, aggregateId, version, codec, data);
+    }
+
+    /**
+     * Reads a logged event from a row selected with {@link #LOG_COLUMNS}.
+     */
+    LoggedEvent readLoggedEvent(Connection connection, ResultSet rs) throws SQLException {
+        return new LoggedEvent(rs.getLong(8), streamType, readEvent(connection, rs));
+    }
+
+    /**
+     * Binds the payload and how it has been compressed. Payloads above the
+     * compression threshold are compressed, unless that doesn't make them any
+     * smaller. Uncompressed JSON payloads are bound as text, so that they remain
+     * readable with any SQLite client, and all others as blob.
+     */
+    private void setPayload(PreparedStatement statement, int index, int compressionIndex, Event event) throws SQLException {
+        byte[] data = event.data();
+        PayloadCompression.Active active = compression.activeFor(data.length);
+
+        if (active != null) {
+            byte[] compressed = active.compression().compress(data);
+
+            if (compressed.length < data.length) {
+                statement.setBytes(index, compressed);
+                statement.setInt(compressionIndex, active.code());
+                return;
+            }
+        }
+
+        if (event.codec() == PayloadCodecs.JSON_ID) {
+            statement.setString(index, event.payload());
+        }
+        else {
+            statement.setBytes(index, data);
+        }
+        statement.setInt(compressionIndex, PayloadCompression.NONE);
+    }
+
+    /**
+     * Whether the given stream table has a codec column; tables created by
+     * earlier versions don't, they only contain JSON payloads.
+     */
+    static boolean hasCodec(Connection connection, String table) throws SQLException {
+        return hasColumn(connection, table, "CODEC");
+    }
+
+    /**
+     * Whether the given stream table has a compression column; tables created
+     * by earlier versions don't, they only contain uncompressed payloads.
+     */
+    static boolean hasCompression(Connection connection, String table) throws SQLException {
+        return hasColumn(connection, table, "COMPRESSION");
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT name FROM pragma_table_info(?) WHERE upper(name) = ?")) {
+            statement.setString(1, table);
+            statement.setString(2, column);
+
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private UUID getId(ResultSet rs, int index) throws SQLException {
+        if (layout == SchemaLayout.BINARY) {
+            return Uuids.fromBytes(rs.getBytes(index));
+        }
+        else {
+            return UUID.fromString(rs.getString(index));
+        }
+    }
+
+    void close() throws SQLException {
+        insertStatement.close();
+        maxVersionStatement.close();
+
+        for (PreparedStatement statement : multiInsertStatements) {
+            if (statement != null) {
+                statement.close();
+            }
+        }
+    }
+}
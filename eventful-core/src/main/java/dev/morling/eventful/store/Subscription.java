@@ -0,0 +1,19 @@
+package dev.morling.eventful.store;
+
+/**
+ * A subscription to the {@link EventLog}.
+ */
+public interface Subscription extends AutoCloseable {
+
+    /**
+     * The position of the next event to be delivered to the handler.
+     */
+    long position();
+
+    /**
+     * Stops the delivery of events and waits for a currently running handler
+     * invocation to complete.
+     */
+    @Override
+    void close();
+}
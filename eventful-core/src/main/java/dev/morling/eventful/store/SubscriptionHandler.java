@@ -0,0 +1,13 @@
+package dev.morling.eventful.store;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface SubscriptionHandler {
+
+    /**
+     * Handles a batch of events, in log order. If an exception is raised, the
+     * subscription is closed.
+     */
+    void onEvents(List<LoggedEvent> events);
+}
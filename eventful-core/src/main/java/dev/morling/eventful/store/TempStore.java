@@ -0,0 +1,17 @@
+package dev.morling.eventful.store;
+
+/**
+ * Where SQLite keeps temporary tables and indexes, e.g. for sorting; see the
+ * {@code temp_store} pragma.
+ */
+public enum TempStore {
+
+    /**
+     * As determined by SQLite's compile-time options, usually in files.
+     */
+    DEFAULT,
+
+    FILE,
+
+    MEMORY;
+}
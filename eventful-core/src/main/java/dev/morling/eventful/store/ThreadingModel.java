@@ -0,0 +1,27 @@
+package dev.morling.eventful.store;
+
+/**
+ * The kind of threads the store uses for the work it runs on behalf of its
+ * callers, and how it expects to be called.
+ */
+public enum ThreadingModel {
+
+    /**
+     * Platform threads; concurrent reads are bounded by the number of read
+     * connections only.
+     */
+    PLATFORM,
+
+    /**
+     * Virtual threads, for callers running on virtual threads, too; needs
+     * Java 21, or Java 19 with {@code --enable-preview}. Subscriptions are
+     * dispatched on virtual threads, and concurrent reads wait in a fair queue
+     * for one of the {@link SqliteEventStoreOptions.Builder#readPermits(int)
+     * read permits}, so that thousands of callers don't pile up on the read
+     * connections. The writer remains a platform thread, as it spends most of
+     * its time in native SQLite calls, which would pin a carrier thread; it
+     * completes futures without holding any monitor, so that waiting virtual
+     * threads unmount from their carriers.
+     */
+    VIRTUAL;
+}
@@ -0,0 +1,38 @@
+package dev.morling.eventful.store;
+
+import java.util.UUID;
+
+class Uuids {
+
+    private Uuids() {
+    }
+
+    static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (56 - i * 8));
+            bytes[i + 8] = (byte) (lsb >>> (56 - i * 8));
+        }
+
+        return bytes;
+    }
+
+    static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Expected 16 bytes but got " + bytes.length);
+        }
+
+        long msb = 0;
+        long lsb = 0;
+
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xFF);
+            lsb = (lsb << 8) | (bytes[i + 8] & 0xFF);
+        }
+
+        return new UUID(msb, lsb);
+    }
+}
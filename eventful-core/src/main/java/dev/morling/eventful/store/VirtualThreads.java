@@ -0,0 +1,84 @@
+package dev.morling.eventful.store;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads via reflection, as they are a preview API on Java
+ * 19, which this code base is compiled for.
+ */
+final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL;
+    private static final Method NAME;
+    private static final Method FACTORY;
+    private static final boolean AVAILABLE;
+
+    static {
+        Method ofVirtual = null;
+        Method name = null;
+        Method factory = null;
+        boolean available = false;
+
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+
+            // fails on Java 19 and 20 unless preview features are enabled
+            ofVirtual.invoke(null);
+            available = true;
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            // not available
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        AVAILABLE = available;
+    }
+
+    private VirtualThreads() {
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Returns a factory for virtual threads named {@code <prefix>0},
+     * {@code <prefix>1} etc.
+     */
+    static ThreadFactory factory(String prefix) {
+        if (!AVAILABLE) {
+            throw new IllegalStateException("Virtual threads aren't available; on Java 19 and 20, they require --enable-preview");
+        }
+
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+            return (ThreadFactory) FACTORY.invoke(builder);
+        }
+        catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Couldn't create virtual thread factory", e);
+        }
+    }
+
+    /**
+     * Returns an executor starting a new virtual thread for each task.
+     */
+    static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        ThreadFactory factory = factory(prefix);
+
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Couldn't create virtual thread executor", e);
+        }
+    }
+}
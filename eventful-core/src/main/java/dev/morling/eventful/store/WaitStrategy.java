@@ -0,0 +1,22 @@
+package dev.morling.eventful.store;
+
+/**
+ * How the writer thread waits for new work when the work queue is empty.
+ */
+public enum WaitStrategy {
+
+    /**
+     * Parks the writer until a producer enqueues work; lowest CPU usage.
+     */
+    BLOCKING,
+
+    /**
+     * Spins for a short while, then yields the CPU between checks.
+     */
+    YIELDING,
+
+    /**
+     * Spins continuously; lowest latency, but occupies one core.
+     */
+    BUSY_SPIN;
+}
@@ -0,0 +1,11 @@
+package dev.morling.eventful.store;
+
+/**
+ * Statistics of the writer thread of a {@link SqliteEventStore}.
+ *
+ * @param batchSizes the number of work items per committed batch
+ * @param commitDurations the time in nanoseconds for writing and committing a batch
+ * @param batchLimit the current batch size limit, as determined by the group commit policy
+ */
+public record WriterStatistics(Histogram.Snapshot batchSizes, Histogram.Snapshot commitDurations, int batchLimit) {
+}
@@ -0,0 +1,88 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.morling.eventful.client.CacheStats;
+import dev.morling.eventful.client.CachingAggregateRepository;
+import dev.morling.eventful.client.CommandResult;
+import dev.morling.eventful.store.EventStore;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.test.handler.CustomerEventHandler;
+import dev.morling.eventful.test.model.ContactPerson;
+import dev.morling.eventful.test.model.Customer;
+import dev.morling.eventful.test.model.Customer.AddContactPersonCommand;
+import dev.morling.eventful.test.model.Customer.CreateCustomerCommand;
+
+public class CachingAggregateRepositoryTest {
+
+    private EventStore eventStore;
+
+    @BeforeEach
+    public void setupStore() {
+        eventStore = new SqliteEventStore();
+        eventStore.initialize("customer");
+    }
+
+    @AfterEach
+    public void closeStore() {
+        eventStore.close();
+    }
+
+    @Test
+    public void shouldAdvanceCachedAggregateOnPersist() throws Exception {
+        CachingAggregateRepository<Customer> repository = new CachingAggregateRepository<>(eventStore, "customer", new CustomerEventHandler(), Customer::copy, 10);
+
+        CommandResult result = Customer.handle(new CreateCustomerCommand("ACME, Inc."));
+        repository.persist(result.event()).get();
+
+        Customer customer = repository.load(result.event().aggregateId());
+        assertThat(customer.getName()).isEqualTo("ACME, Inc.");
+
+        repository.persist(customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event()).get();
+
+        Customer loaded = repository.load(customer.getId());
+        assertThat(loaded).isNotSameAs(customer);
+        assertThat(loaded.getVersion()).isEqualTo(2);
+        assertThat(loaded.getContactPersons()).containsExactly(new ContactPerson("bob@acme.com", "Bob"));
+
+        CacheStats stats = repository.stats();
+        assertThat(stats.misses()).isEqualTo(1);
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedAggregates() throws Exception {
+        CachingAggregateRepository<Customer> repository = new CachingAggregateRepository<>(eventStore, "customer", new CustomerEventHandler(), Customer::copy,
+                customer -> customer.getContactPersons().size() + 1, 2, 100);
+
+        Customer first = createCustomer(repository, "first");
+        Customer second = createCustomer(repository, "second");
+        Customer third = createCustomer(repository, "third");
+
+        repository.load(first.getId());
+        repository.load(second.getId());
+        repository.load(first.getId());
+        repository.load(third.getId());
+
+        assertThat(repository.stats().evictions()).isEqualTo(1);
+
+        repository.load(first.getId());
+        repository.load(second.getId());
+
+        CacheStats stats = repository.stats();
+        assertThat(stats.hits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(4);
+        assertThat(stats.size()).isEqualTo(2);
+    }
+
+    private Customer createCustomer(CachingAggregateRepository<Customer> repository, String name) throws Exception {
+        CommandResult result = Customer.handle(new CreateCustomerCommand(name));
+        repository.persist(result.event()).get();
+        return new CustomerEventHandler().apply(null, result.event());
+    }
+}
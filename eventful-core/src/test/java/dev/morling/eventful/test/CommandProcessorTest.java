@@ -0,0 +1,237 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import dev.morling.eventful.client.CommandProcessor;
+import dev.morling.eventful.client.CommandProcessorStats;
+import dev.morling.eventful.client.CommandResult;
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.store.DuplicateVersionException;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.EventStore;
+import dev.morling.eventful.store.InvalidCommandException;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.test.handler.CustomerEventHandler;
+import dev.morling.eventful.test.model.Customer;
+import dev.morling.eventful.test.model.Customer.AddContactPersonCommand;
+import dev.morling.eventful.test.model.Customer.CreateCustomerCommand;
+
+public class CommandProcessorTest {
+
+    private EventStore eventStore;
+    private CommandProcessor<Customer> processor;
+
+    @BeforeEach
+    public void setupStore() {
+        eventStore = new SqliteEventStore();
+        eventStore.initialize("customer");
+        processor = new CommandProcessor<>(eventStore, "customer", new CustomerEventHandler(), Customer::copy, 4, 100);
+    }
+
+    @AfterEach
+    public void closeStore() {
+        processor.close();
+        eventStore.close();
+    }
+
+    @Test
+    public void shouldHandleConcurrentCommandsForOneAggregateWithoutConflicts() throws Exception {
+        Event created = Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event();
+        UUID id = created.aggregateId();
+
+        Customer customer = processor.submit(id, aggregate -> new CommandResult(created)).get(5, TimeUnit.SECONDS);
+        assertThat(customer.getVersion()).isEqualTo(1);
+
+        List<Thread> clients = new ArrayList<>();
+        List<CompletableFuture<Customer>> results = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            AddContactPersonCommand command = new AddContactPersonCommand("contact-%s@acme.com".formatted(i), "Contact " + i);
+            Thread client = new Thread(() -> {
+                CompletableFuture<Customer> result = processor.submit(id, aggregate -> aggregate.handle(command));
+                synchronized (results) {
+                    results.add(result);
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        for (CompletableFuture<Customer> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+
+        Customer restored = new Projector().restore(eventStore, "customer", id, new CustomerEventHandler());
+        assertThat(restored.getVersion()).isEqualTo(10);
+        assertThat(restored.getContactPersons()).hasSize(9);
+        assertThat(eventStore.events("customer", id)).extracting(Event::version).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L);
+
+        // the next command is rejected by the aggregate, leaving it unchanged
+        Customer tenth = processor.submit(id, aggregate -> aggregate.handle(new AddContactPersonCommand("joe@acme.com", "Joe"))).get(5, TimeUnit.SECONDS);
+        assertThat(tenth.getContactPersons()).hasSize(10);
+        assertThatThrownBy(() -> processor.submit(id, aggregate -> aggregate.handle(new AddContactPersonCommand("jim@acme.com", "Jim"))).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(InvalidCommandException.class);
+        assertThat(eventStore.events("customer", id)).hasSize(11);
+
+        CommandProcessorStats stats = processor.stats();
+        assertThat(stats.commands()).isEqualTo(12);
+        assertThat(stats.loads()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLoadExistingAggregatesFromStore() throws Exception {
+        Event created = Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event();
+        eventStore.persist("customer", created).get();
+
+        Customer customer = processor.submit(created.aggregateId(), aggregate -> aggregate.handle(new AddContactPersonCommand("bob@acme.com", "Bob")))
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(customer.getName()).isEqualTo("ACME, Inc.");
+        assertThat(customer.getVersion()).isEqualTo(2);
+        assertThat(eventStore.events("customer", created.aggregateId())).hasSize(2);
+        assertThat(processor.stats().loads()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldOnlyFailCommandsOfConflictingAggregate() throws Exception {
+        processor.close();
+        processor = new CommandProcessor<>(eventStore, "customer", new CustomerEventHandler(), Customer::copy, 1, 100);
+
+        Event created = Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event();
+        UUID poisoned = created.aggregateId();
+        Customer customer = processor.submit(poisoned, aggregate -> new CommandResult(created)).get(5, TimeUnit.SECONDS);
+
+        // a write bypassing the processor makes its live state of the aggregate stale
+        eventStore.persist("customer", customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event()).get();
+
+        // keeps the mailbox busy until all the following commands are queued up
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Event blockerCreated = Customer.handle(new CreateCustomerCommand("Blocker, Inc.")).event();
+        CompletableFuture<Customer> blocker = processor.submit(blockerCreated.aggregateId(), aggregate -> {
+            handling.countDown();
+            await(release);
+            return new CommandResult(blockerCreated);
+        });
+        assertThat(handling.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<Event> others = new ArrayList<>();
+        List<CompletableFuture<Customer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Event otherCreated = Customer.handle(new CreateCustomerCommand("Customer " + i)).event();
+            others.add(otherCreated);
+            results.add(processor.submit(otherCreated.aggregateId(), aggregate -> new CommandResult(otherCreated)));
+        }
+        CompletableFuture<Customer> conflicting = processor.submit(poisoned, aggregate -> aggregate.handle(new AddContactPersonCommand("joe@acme.com", "Joe")));
+        release.countDown();
+
+        blocker.get(5, TimeUnit.SECONDS);
+        assertThatThrownBy(() -> conflicting.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(DuplicateVersionException.class);
+
+        // the other commands of the batch aren't affected
+        for (int i = 0; i < others.size(); i++) {
+            assertThat(results.get(i).get(5, TimeUnit.SECONDS).getVersion()).isEqualTo(1);
+            assertThat(eventStore.events("customer", others.get(i).aggregateId())).containsExactly(others.get(i));
+        }
+
+        // the conflicting aggregate is reloaded for its next command
+        Customer reloaded = processor.submit(poisoned, aggregate -> aggregate.handle(new AddContactPersonCommand("joe@acme.com", "Joe")))
+                .get(5, TimeUnit.SECONDS);
+        assertThat(reloaded.getVersion()).isEqualTo(3);
+        assertThat(reloaded.getContactPersons()).hasSize(2);
+    }
+
+    @Test
+    public void shouldCompleteCommandsOffTheMailboxThread() throws Exception {
+        Event created = Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event();
+        UUID id = created.aggregateId();
+
+        // the commands wait until the callbacks have been added
+        CountDownLatch callbacksAdded = new CountDownLatch(1);
+        CompletableFuture<String> createdThread = processor.submit(id, aggregate -> {
+            await(callbacksAdded);
+            return new CommandResult(created);
+        }).thenApply(customer -> Thread.currentThread().getName());
+        CompletableFuture<String> failedThread = processor.submit(id, aggregate -> {
+            await(callbacksAdded);
+            throw new InvalidCommandException("Rejected");
+        }).handle((customer, e) -> Thread.currentThread().getName());
+        callbacksAdded.countDown();
+
+        assertThat(createdThread.get(5, TimeUnit.SECONDS)).doesNotStartWith("eventful-mailbox-");
+        assertThat(failedThread.get(5, TimeUnit.SECONDS)).doesNotStartWith("eventful-mailbox-");
+    }
+
+    @Test
+    public void shouldCompleteAllCommandsWhenClosing() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        List<CompletableFuture<Customer>> results = new ArrayList<>();
+
+        // clients racing with close()
+        List<Thread> clients = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread client = new Thread(() -> {
+                while (true) {
+                    Event created = Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event();
+                    CompletableFuture<Customer> result = processor.submit(created.aggregateId(), aggregate -> new CommandResult(created));
+                    synchronized (results) {
+                        ids.add(created.aggregateId());
+                        results.add(result);
+                    }
+                    if (result.isCompletedExceptionally()) {
+                        return;
+                    }
+                }
+            });
+            clients.add(client);
+            client.start();
+        }
+
+        Thread.sleep(200);
+        processor.close();
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        int committed = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get(5, TimeUnit.SECONDS);
+                assertThat(eventStore.events("customer", ids.get(i))).hasSize(1);
+                committed++;
+            }
+            catch (ExecutionException e) {
+                // no failures due to interrupting a mailbox waiting for its batch to be committed
+                assertThat(e.getCause()).isInstanceOf(IllegalStateException.class).hasMessage("Command processor is stopped already");
+                assertThat(eventStore.events("customer", ids.get(i))).isEmpty();
+            }
+        }
+
+        assertThat(committed).isPositive();
+        assertThatThrownBy(() -> processor.submit(UUID.randomUUID(), aggregate -> null).get()).hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
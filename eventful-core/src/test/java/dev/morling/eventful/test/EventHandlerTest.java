@@ -0,0 +1,83 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import dev.morling.eventful.client.DispatchingEventHandler;
+import dev.morling.eventful.client.EventHandler;
+import dev.morling.eventful.client.FieldBinder;
+import dev.morling.eventful.codec.PayloadCodecs;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.test.model.ContactPerson;
+
+public class EventHandlerTest {
+
+    private static final FieldBinder<ContactPerson> CONTACT_PERSON = FieldBinder.fields("email", "name")
+            .to(values -> new ContactPerson(values.string(0), values.string(1)));
+
+    @Test
+    public void shouldBindDeclaredFieldsOnly() {
+        Event event = new Event("contact-person-added", UUID.randomUUID(), 1,
+                "{ \"id\" : 42, \"address\" : { \"name\" : \"Main Street\", \"tags\" : [ 1, 2 ] }, \"name\" : \"Bob\", \"email\" : \"bob@example.com\", \"age\" : 36 }");
+
+        assertThat(CONTACT_PERSON.bind(event)).isEqualTo(new ContactPerson("bob@example.com", "Bob"));
+
+        FieldBinder<String> missing = FieldBinder.fields("name", "nickname")
+                .to(values -> values.isNull(1) ? values.string(0) : values.string(1));
+        assertThat(missing.bind(event)).isEqualTo("Bob");
+
+        FieldBinder<Long> age = FieldBinder.fields("age").to(values -> values.longValue(0));
+        assertThat(age.bind(event)).isEqualTo(36L);
+
+        FieldBinder<String> address = FieldBinder.fields("address").to(values -> values.string(0));
+        assertThatThrownBy(() -> address.bind(event)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldBindPayloadsOfAllCodecs() {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("email", "bob@example.com");
+        payload.put("name", "Bob");
+        payload.put("phone", "555-1234");
+
+        for (var codec : List.of(PayloadCodecs.JSON, PayloadCodecs.CBOR, PayloadCodecs.SMILE)) {
+            Event event = new Event("contact-person-added", UUID.randomUUID(), 1, codec, payload);
+            assertThat(CONTACT_PERSON.bind(event)).isEqualTo(new ContactPerson("bob@example.com", "Bob"));
+        }
+    }
+
+    @Test
+    public void shouldDispatchByEventType() {
+        EventHandler<List<ContactPerson>> handler = DispatchingEventHandler.<List<ContactPerson>> builder("customer")
+                .on("created", (contactPersons, event) -> new ArrayList<>())
+                .on("contact-person-added", CONTACT_PERSON, (contactPersons, event, contactPerson) -> {
+                    contactPersons.add(contactPerson);
+                    return contactPersons;
+                })
+                .on("contact-person-replaced", ContactPerson.class, (contactPersons, event, contactPerson) -> {
+                    contactPersons.set(0, contactPerson);
+                    return contactPersons;
+                })
+                .build();
+
+        UUID id = UUID.randomUUID();
+        List<ContactPerson> contactPersons = handler.apply(null, new Event("created", id, 1, "{}"));
+        contactPersons = handler.apply(contactPersons, new Event("contact-person-added", id, 2, "{ \"email\" : \"bob@example.com\", \"name\" : \"Bob\" }"));
+        contactPersons = handler.apply(contactPersons,
+                new Event("contact-person-replaced", id, 3, "{ \"email\" : \"alice@example.com\", \"name\" : \"Alice\", \"since\" : 2022 }"));
+
+        assertThat(contactPersons).containsExactly(new ContactPerson("alice@example.com", "Alice"));
+
+        assertThatThrownBy(() -> handler.apply(List.of(), new Event("deleted", id, 4, "{}")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("deleted");
+    }
+}
@@ -1,15 +1,63 @@
 package dev.morling.eventful.test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import dev.morling.eventful.client.CommandResult;
+import dev.morling.eventful.client.JacksonSnapshotSerializer;
 import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.client.Snapshotter;
+import dev.morling.eventful.codec.PayloadCompressor;
+import dev.morling.eventful.codec.PayloadCompressors;
+import dev.morling.eventful.store.BackpressureStrategy;
+import dev.morling.eventful.store.DuplicateVersionException;
+import dev.morling.eventful.store.Durability;
+import dev.morling.eventful.store.Event;
 import dev.morling.eventful.store.EventStore;
+import dev.morling.eventful.store.Histogram;
+import dev.morling.eventful.store.InconsistentVersionException;
+import dev.morling.eventful.store.LoggedEvent;
+import dev.morling.eventful.store.MetricsCollector;
+import dev.morling.eventful.store.OpenMode;
+import dev.morling.eventful.store.SchemaLayout;
 import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+import dev.morling.eventful.store.SqliteSnapshotStore;
+import dev.morling.eventful.store.Subscription;
+import dev.morling.eventful.store.ThreadingModel;
 import dev.morling.eventful.test.handler.CustomerEventHandler;
 import dev.morling.eventful.test.model.ContactPerson;
 import dev.morling.eventful.test.model.Customer;
@@ -22,7 +70,19 @@ public class EventStoreTest {
 
     @BeforeEach
     public void setupStore() {
-        eventStore = new SqliteEventStore();
+        eventStore = createEventStore();
+    }
+
+    /**
+     * Creates the store under test; overridden by the tests of other store
+     * implementations, which skip the tests specific to {@link SqliteEventStore}.
+     */
+    protected EventStore createEventStore() {
+        return new SqliteEventStore();
+    }
+
+    private void assumeSqliteEventStore() {
+        assumeTrue(eventStore instanceof SqliteEventStore, "Specific to SqliteEventStore");
     }
 
     @AfterEach
@@ -54,4 +114,659 @@ public class EventStoreTest {
         assertThat(restored.getVersion()).isEqualTo(3);
         assertThat(restored.getContactPersons()).containsExactly(new ContactPerson("bob@acme.com", "Bob"), new ContactPerson("sarah@acme.com", "Sarah"));
     }
+
+    @Test
+    public void shouldOnlyFailConflictingEventOfBatch() throws Exception {
+        eventStore.initialize("customer");
+
+        Event first = Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event();
+        Event duplicate = new Event("created", first.aggregateId(), 1, "{ \"name\" : \"Other, Inc.\" }");
+        Event second = Customer.handle(new CreateCustomerCommand("Globex")).event();
+
+        Future<Void> firstResult = eventStore.persist("customer", first);
+        Future<Void> duplicateResult = eventStore.persist("customer", duplicate);
+        Future<Void> secondResult = eventStore.persist("customer", second);
+
+        firstResult.get();
+        secondResult.get();
+        assertThatThrownBy(() -> duplicateResult.get()).hasCauseInstanceOf(DuplicateVersionException.class);
+
+        assertThat(eventStore.events("customer", first.aggregateId())).containsExactly(first);
+        assertThat(eventStore.events("customer", second.aggregateId())).containsExactly(second);
+    }
+
+    @Test
+    public void shouldDetectVersionConflictsWithVersionIndex() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.close();
+        eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder().versionIndexSize(16).build());
+        eventStore.initialize("customer");
+
+        Customer customer = new CustomerEventHandler().apply(null, persist(Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event()));
+        persist(customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event());
+        persist(customer.handle(new AddContactPersonCommand("sarah@acme.com", "Sarah")).event());
+
+        Event duplicate = new Event("contact-person-added", customer.getId(), 3, "{ \"email\" : \"jim@acme.com\", \"name\" : \"Jim\" }");
+        assertThatThrownBy(() -> eventStore.persist("customer", duplicate).get()).hasCauseInstanceOf(DuplicateVersionException.class);
+
+        Event inconsistent = new Event("contact-person-added", customer.getId(), 2, "{ \"email\" : \"jim@acme.com\", \"name\" : \"Jim\" }");
+        assertThatThrownBy(() -> eventStore.persist("customer", inconsistent).get()).hasCauseInstanceOf(InconsistentVersionException.class);
+
+        assertThat(eventStore.events("customer", customer.getId())).hasSize(3);
+    }
+
+    @Test
+    public void shouldPersistAndPlaybackEventsWithBinaryLayoutAndTypeDictionary() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.close();
+        eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder().schemaLayout(SchemaLayout.BINARY).eventTypeDictionary(true).build());
+        eventStore.initialize("customer");
+
+        Event created = persist(Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event());
+        Customer customer = new CustomerEventHandler().apply(null, created);
+        Event bobAdded = persist(customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event());
+        Event sarahAdded = persist(customer.handle(new AddContactPersonCommand("sarah@acme.com", "Sarah")).event());
+
+        Event duplicate = new Event("contact-person-added", customer.getId(), 3, "{ \"email\" : \"jim@acme.com\", \"name\" : \"Jim\" }");
+        assertThatThrownBy(() -> eventStore.persist("customer", duplicate).get()).hasCauseInstanceOf(DuplicateVersionException.class);
+
+        assertThat(eventStore.events("customer", customer.getId())).containsExactly(created, bobAdded, sarahAdded);
+        assertThat(eventStore.events("customer", customer.getId(), 3)).containsExactly(sarahAdded);
+
+        Map<UUID, List<Event>> scanned = new ConcurrentHashMap<>();
+        eventStore.scan("customer", 4, scanned::put).get();
+        assertThat(scanned).containsExactly(Map.entry(customer.getId(), List.of(created, bobAdded, sarahAdded)));
+    }
+
+    @Test
+    public void shouldCompressPayloadsWithTrainedDictionaries() throws Exception {
+        assumeSqliteEventStore();
+        for (PayloadCompressor compressor : List.of(PayloadCompressors.DEFLATE, PayloadCompressors.forName("zstd"))) {
+            eventStore.close();
+            SqliteEventStore sqliteEventStore = new SqliteEventStore(SqliteEventStoreOptions.builder().compression(compressor, 64).build());
+            eventStore = sqliteEventStore;
+            eventStore.initialize("customer");
+
+            UUID id = UUID.randomUUID();
+            List<Event> events = new ArrayList<>();
+            events.add(new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"));
+            for (int i = 2; i <= 200; i++) {
+                events.add(new Event("contact-person-added", id, i, "{ \"email\" : \"bob%s@acme.com\", \"name\" : \"Bob %s\", \"notes\" : \"%s\" }"
+                        .formatted(i, i, "Bob %s is in charge of events. ".formatted(i).repeat(4))));
+            }
+
+            eventStore.persistAll("customer", events.subList(0, 100)).get();
+            int version = sqliteEventStore.trainCompressionDictionary("customer", 100, 1024);
+            eventStore.persistAll("customer", events.subList(100, 200)).get();
+
+            assertThat(eventStore.events("customer", id)).containsExactlyElementsOf(events);
+
+            List<Integer> compressions = new ArrayList<>();
+            try (Connection connection = DriverManager.getConnection("jdbc:sqlite:test.db");
+                    ResultSet rs = connection.createStatement().executeQuery("SELECT COMPRESSION FROM customer ORDER BY POSITION")) {
+                while (rs.next()) {
+                    compressions.add(rs.getInt(1));
+                }
+            }
+
+            // below the threshold
+            assertThat(compressions.get(0)).isEqualTo(0);
+            assertThat(compressions.subList(1, 100)).containsOnly(compressor.id());
+            assertThat(compressions.subList(100, 200)).containsOnly(compressor.id() | version << 8);
+        }
+    }
+
+    @Test
+    public void shouldResumeExistingDatabaseWhenOpening() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.close();
+
+        SqliteEventStoreOptions.Builder options = SqliteEventStoreOptions.builder()
+                .schemaLayout(SchemaLayout.BINARY)
+                .eventTypeDictionary(true)
+                .versionIndexSize(1_000)
+                .compression(PayloadCompressors.DEFLATE, 64);
+
+        SqliteEventStore created = new SqliteEventStore(options.build());
+        eventStore = created;
+        eventStore.initialize("customer");
+        eventStore.initialize("purchase");
+
+        UUID id = UUID.randomUUID();
+        List<Event> events = new ArrayList<>();
+        events.add(new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"));
+        for (int i = 2; i <= 100; i++) {
+            events.add(new Event("contact-person-added", id, i, "{ \"email\" : \"bob%s@acme.com\", \"name\" : \"Bob %s\", \"notes\" : \"%s\" }"
+                    .formatted(i, i, "Bob %s is in charge of events. ".formatted(i).repeat(4))));
+        }
+
+        eventStore.persistAll("customer", events).get();
+        eventStore.persist("purchase", new Event("created", UUID.randomUUID(), 1, "{ \"total\" : 42 }")).get();
+        int version = created.trainCompressionDictionary("customer", 100, 1024);
+        eventStore.close();
+
+        SqliteEventStore opened = new SqliteEventStore(options.openMode(OpenMode.OPEN).durability(Durability.NONE).build());
+        eventStore = opened;
+
+        assertThat(eventStore.events("customer", id)).containsExactlyElementsOf(events);
+        assertThatThrownBy(() -> eventStore.initialize("customer")).isInstanceOf(IllegalArgumentException.class);
+
+        Event duplicate = new Event("contact-person-added", id, 100, "{ \"email\" : \"joe@acme.com\", \"name\" : \"Joe\" }");
+        assertThatThrownBy(() -> eventStore.persist("customer", duplicate).get()).hasCauseInstanceOf(DuplicateVersionException.class);
+
+        Event next = new Event("contact-person-added", id, 101, "{ \"email\" : \"joe@acme.com\", \"name\" : \"Joe\", \"notes\" : \"%s\" }"
+                .formatted("Joe is in charge of events. ".repeat(4)));
+        opened.persist("customer", next, Durability.FULL).get();
+        assertThat(eventStore.events("customer", id, 101)).containsExactly(next);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:test.db");
+                ResultSet rs = connection.createStatement().executeQuery("SELECT POSITION, COMPRESSION FROM customer WHERE VERSION = 101")) {
+            assertThat(rs.next()).isTrue();
+            // after the 100 customer events and the purchase event
+            assertThat(rs.getLong(1)).isEqualTo(102);
+            assertThat(rs.getInt(2)).isEqualTo(PayloadCompressors.DEFLATE.id() | version << 8);
+        }
+    }
+
+    @Test
+    public void shouldRecordMetrics() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.initialize("customer");
+
+        Event created = persist(Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event());
+        Event duplicate = new Event("created", created.aggregateId(), 1, "{ \"name\" : \"Globex\" }");
+        assertThatThrownBy(() -> eventStore.persist("customer", duplicate).get()).hasCauseInstanceOf(DuplicateVersionException.class);
+        eventStore.events("customer", created.aggregateId());
+
+        Map<String, Long> counters = new HashMap<>();
+        Map<String, Histogram.Snapshot> histograms = new HashMap<>();
+        Map<String, Double> gauges = new HashMap<>();
+
+        ((SqliteEventStore) eventStore).metrics().collect(new MetricsCollector() {
+
+            @Override
+            public void gauge(String name, String description, Map<String, String> tags, DoubleSupplier value) {
+                gauges.put(name, value.getAsDouble());
+            }
+
+            @Override
+            public void counter(String name, String description, Map<String, String> tags, LongSupplier count) {
+                counters.put(name + tags, count.getAsLong());
+            }
+
+            @Override
+            public void timer(String name, String description, Map<String, String> tags, Supplier<Histogram.Snapshot> snapshot) {
+                histograms.put(name, snapshot.get());
+            }
+
+            @Override
+            public void distribution(String name, String description, String baseUnit, Map<String, String> tags, Supplier<Histogram.Snapshot> snapshot) {
+                histograms.put(name, snapshot.get());
+            }
+        });
+
+        assertThat(gauges).containsEntry("eventful.queue.depth", 0.0).containsEntry("eventful.queue.remaining", (double) SqliteEventStoreOptions.defaults().queueSize());
+        assertThat(counters).containsEntry("eventful.committed.events{}", 1L)
+                .containsEntry("eventful.persist.failures{exception=DuplicateVersionException}", 1L)
+                .containsEntry("eventful.persist.failures{exception=InconsistentVersionException}", 0L);
+        assertThat(counters.get("eventful.commits{}")).isGreaterThanOrEqualTo(1L);
+        assertThat(histograms.get("eventful.persist.latency").count()).isEqualTo(1L);
+        assertThat(histograms.get("eventful.read.latency").count()).isEqualTo(1L);
+        assertThat(histograms.get("eventful.read.rows").max()).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldStreamEvents() throws Exception {
+        eventStore.initialize("customer");
+
+        Event created = persist(Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event());
+        Customer customer = new CustomerEventHandler().apply(null, created);
+        persist(customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event());
+        Event sarahAdded = persist(customer.handle(new AddContactPersonCommand("sarah@acme.com", "Sarah")).event());
+
+        try (Stream<Event> events = eventStore.eventStream("customer", customer.getId(), 3)) {
+            assertThat(events).containsExactly(sarahAdded);
+        }
+
+        Customer restored = new Projector().restore(eventStore, "customer", customer.getId(), new CustomerEventHandler());
+        assertThat(restored.getVersion()).isEqualTo(3);
+        assertThat(restored.getContactPersons()).containsExactly(new ContactPerson("bob@acme.com", "Bob"), new ContactPerson("sarah@acme.com", "Sarah"));
+    }
+
+    @Test
+    public void shouldTimeOutWaitingForReadConnection() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.close();
+        eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder().readConnections(1).readTimeout(Duration.ofMillis(100)).build());
+        eventStore.initialize("customer");
+
+        Event created = persist(Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event());
+
+        // the open stream holds on to the only read connection
+        try (Stream<Event> events = eventStore.eventStream("customer", created.aggregateId(), 1)) {
+            assertThatThrownBy(() -> eventStore.events("customer", created.aggregateId()))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("waiting for one of 1 read connections");
+        }
+
+        assertThat(eventStore.events("customer", created.aggregateId())).containsExactly(created);
+    }
+
+    @Test
+    public void shouldReadEventsOfManyAggregates() throws Exception {
+        eventStore.initialize("customer");
+
+        // spans several queries of the multi-aggregate read
+        List<UUID> ids = new ArrayList<>();
+        List<Future<Void>> results = new ArrayList<>();
+        Map<UUID, Event> lastEvents = new HashMap<>();
+
+        for (int i = 0; i < 1_100; i++) {
+            Event created = Customer.handle(new CreateCustomerCommand("Customer " + i)).event();
+            Customer customer = new CustomerEventHandler().apply(null, created);
+            Event bobAdded = customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event();
+
+            results.add(eventStore.persistAll("customer", List.of(created, bobAdded)));
+            ids.add(customer.getId());
+            lastEvents.put(customer.getId(), bobAdded);
+        }
+
+        for (Future<Void> result : results) {
+            result.get();
+        }
+
+        UUID unknown = UUID.randomUUID();
+        ids.add(1, unknown);
+        ids.add(ids.get(0));
+
+        Map<UUID, List<Event>> events = eventStore.events("customer", ids);
+        assertThat(events.keySet()).containsExactlyElementsOf(ids.subList(0, ids.size() - 1));
+        assertThat(events.get(unknown)).isEmpty();
+
+        for (UUID id : lastEvents.keySet()) {
+            assertThat(events.get(id)).hasSize(2);
+            assertThat(events.get(id).get(1)).isEqualTo(lastEvents.get(id));
+        }
+
+        Map<UUID, Customer> customers = new Projector().restoreAll(eventStore, "customer", ids, new CustomerEventHandler());
+        assertThat(customers).hasSize(1_100).doesNotContainKey(unknown);
+        assertThat(customers.get(ids.get(0)).getName()).isEqualTo("Customer 0");
+        assertThat(customers.get(ids.get(0)).getContactPersons()).containsExactly(new ContactPerson("bob@acme.com", "Bob"));
+    }
+
+    @Test
+    public void shouldScanAndRestoreAllAggregates() throws Exception {
+        eventStore.initialize("customer");
+
+        List<Future<Void>> results = new ArrayList<>();
+        Map<UUID, Integer> contacts = new HashMap<>();
+
+        for (int i = 0; i < 500; i++) {
+            Event created = Customer.handle(new CreateCustomerCommand("Customer " + i)).event();
+            Customer customer = new CustomerEventHandler().apply(null, created);
+
+            List<Event> events = new ArrayList<>(List.of(created));
+            for (int j = 0; j < i % 3; j++) {
+                events.add(customer.handle(new AddContactPersonCommand("contact-" + j + "@acme.com", "Contact " + j)).event());
+            }
+
+            results.add(eventStore.persistAll("customer", events));
+            contacts.put(customer.getId(), i % 3);
+        }
+
+        for (Future<Void> result : results) {
+            result.get();
+        }
+
+        Map<UUID, List<Event>> scanned = new ConcurrentHashMap<>();
+        eventStore.scan("customer", 4, (id, events) -> assertThat(scanned.put(id, events)).isNull()).get();
+
+        assertThat(scanned).hasSize(500);
+        for (Map.Entry<UUID, List<Event>> events : scanned.entrySet()) {
+            assertThat(events.getValue()).extracting(Event::version).isSorted().hasSize(contacts.get(events.getKey()) + 1);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Map<UUID, Customer> customers = new ConcurrentHashMap<>();
+
+        try {
+            new Projector().restoreAll(eventStore, "customer", new CustomerEventHandler(), 3, pool, customers::put).get();
+
+            assertThat(customers).hasSize(500);
+            for (Customer customer : customers.values()) {
+                assertThat(customer.getContactPersons()).hasSize(contacts.get(customer.getId()));
+            }
+
+            assertThatThrownBy(() -> new Projector().restoreAll(eventStore, "customer", new CustomerEventHandler(), 3, pool, (id, customer) -> {
+                throw new IllegalStateException("Sink failed");
+            }).get()).hasCauseInstanceOf(IllegalStateException.class);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReadWhileRestoringAllAggregates() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.close();
+        eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder().readConnections(2).readTimeout(Duration.ofSeconds(1)).build());
+        eventStore.initialize("customer");
+
+        List<Event> created = new ArrayList<>();
+        List<Future<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            created.add(Customer.handle(new CreateCustomerCommand("Customer " + i)).event());
+            results.add(eventStore.persist("customer", created.get(i)));
+        }
+        for (Future<Void> result : results) {
+            result.get();
+        }
+
+        CountDownLatch restoring = new CountDownLatch(1);
+        CountDownLatch read = new CountDownLatch(1);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        Map<UUID, Customer> customers = new ConcurrentHashMap<>();
+
+        try {
+            // as many ranges as read connections, with the sink reading from the store, too
+            CompletableFuture<Void> restored = new Projector().restoreAll(eventStore, "customer", new CustomerEventHandler(), 2, pool, (id, customer) -> {
+                restoring.countDown();
+                try {
+                    read.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+
+                assertThat(eventStore.events("customer", id)).hasSize(1);
+                customers.put(id, customer);
+            });
+
+            assertThat(restoring.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(eventStore.events("customer", created.get(0).aggregateId())).containsExactly(created.get(0));
+            read.countDown();
+
+            restored.get(10, TimeUnit.SECONDS);
+            assertThat(customers).hasSize(200);
+        }
+        finally {
+            read.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldStopScansWhenClosing() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.initialize("customer");
+
+        List<Future<Void>> results = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            results.add(eventStore.persist("customer", Customer.handle(new CreateCustomerCommand("Customer " + i)).event()));
+        }
+        for (Future<Void> result : results) {
+            result.get();
+        }
+
+        // each range has a thread and connection of its own
+        assertThatThrownBy(() -> eventStore.scan("customer", 65, (id, events) -> {})).isInstanceOf(IllegalArgumentException.class);
+
+        CountDownLatch scanning = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<Void> scan = eventStore.scan("customer", 2, (id, events) -> {
+            calls.incrementAndGet();
+            scanning.countDown();
+            LockSupport.parkNanos(1_000_000);
+        });
+
+        assertThat(scanning.await(5, TimeUnit.SECONDS)).isTrue();
+        eventStore.close();
+
+        // the scan doesn't go on reading after close() has returned
+        int callsAfterClose = calls.get();
+        assertThatThrownBy(() -> scan.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(calls.get()).isEqualTo(callsAfterClose).isLessThan(200);
+
+        eventStore = createEventStore();
+    }
+
+    @Test
+    public void shouldDeliverEventsToSubscriptionsInLogOrder() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.initialize("customer");
+        eventStore.initialize("purchase");
+        SqliteEventStore store = (SqliteEventStore) eventStore;
+
+        Event created = persist(Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event());
+        Event purchaseCreated = new Event("created", UUID.randomUUID(), 1, "{ \"total\" : 42 }");
+        eventStore.persist("purchase", purchaseCreated).get();
+
+        BlockingQueue<LoggedEvent> customerEvents = new LinkedBlockingQueue<>();
+        BlockingQueue<LoggedEvent> allEvents = new LinkedBlockingQueue<>();
+
+        try (Subscription customerSubscription = store.subscribe("customer", LoggedEvent.POSITION_INIT, customerEvents::addAll);
+                Subscription allSubscription = store.subscribeAll(2, allEvents::addAll)) {
+
+            Customer customer = new CustomerEventHandler().apply(null, created);
+            Event bobAdded = persist(customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event());
+
+            assertThat(customerEvents.poll(5, TimeUnit.SECONDS)).isEqualTo(new LoggedEvent(1, "customer", created));
+            assertThat(customerEvents.poll(5, TimeUnit.SECONDS)).isEqualTo(new LoggedEvent(3, "customer", bobAdded));
+
+            assertThat(allEvents.poll(5, TimeUnit.SECONDS)).isEqualTo(new LoggedEvent(2, "purchase", purchaseCreated));
+            assertThat(allEvents.poll(5, TimeUnit.SECONDS)).isEqualTo(new LoggedEvent(3, "customer", bobAdded));
+        }
+    }
+
+    @Test
+    public void shouldReadAndSubscribeOnVirtualThreads() throws Exception {
+        assumeSqliteEventStore();
+        assumeTrue(Runtime.version().feature() >= 21, "Virtual threads require Java 21");
+
+        eventStore.close();
+        SqliteEventStore store = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                .threadingModel(ThreadingModel.VIRTUAL)
+                .readConnections(4)
+                .readPermits(2)
+                .build());
+        eventStore = store;
+        eventStore.initialize("customer");
+
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(persist(new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"Customer %s\" }".formatted(i))).aggregateId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<List<Event>>> reads = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                UUID id = ids.get(i % ids.size());
+                reads.add(executor.submit(() -> eventStore.events("customer", id)));
+            }
+            for (Future<List<Event>> read : reads) {
+                assertThat(read.get()).hasSize(1);
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        BlockingQueue<Boolean> virtual = new LinkedBlockingQueue<>();
+        Method isVirtual = Thread.class.getMethod("isVirtual");
+
+        try (Subscription subscription = store.subscribe("customer", LoggedEvent.POSITION_INIT, events -> {
+            try {
+                virtual.add((Boolean) isVirtual.invoke(Thread.currentThread()));
+            }
+            catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        })) {
+            assertThat(virtual.poll(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    public void shouldPersistAndReadAsynchronously() throws Exception {
+        eventStore.initialize("customer");
+
+        UUID id = UUID.randomUUID();
+        Event created = new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }");
+        Event bobAdded = new Event("contact-person-added", id, 2, "{ \"email\" : \"bob@acme.com\", \"name\" : \"Bob\" }");
+
+        List<Event> events = eventStore.persistAsync("customer", created)
+                .thenCompose(ignored -> eventStore.persistAsync("customer", bobAdded))
+                .thenCompose(ignored -> eventStore.eventsAsync("customer", id))
+                .toCompletableFuture()
+                .get(5, TimeUnit.SECONDS);
+
+        assertThat(events).containsExactly(created, bobAdded);
+        assertThat(eventStore.eventsAsync("customer", id, 2).toCompletableFuture().get(5, TimeUnit.SECONDS)).containsExactly(bobAdded);
+
+        Event duplicate = new Event("contact-person-added", id, 2, "{ \"email\" : \"joe@acme.com\", \"name\" : \"Joe\" }");
+        assertThatThrownBy(() -> eventStore.persistAsync("customer", duplicate).toCompletableFuture().get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(DuplicateVersionException.class);
+
+        // failures aren't signalled on the writer thread either; the preceding
+        // batch keeps the writer busy until the callback has been added
+        if (eventStore instanceof SqliteEventStore) {
+            List<Event> batch = new ArrayList<>();
+            UUID other = UUID.randomUUID();
+            for (int i = 1; i <= 20_000; i++) {
+                batch.add(new Event(i == 1 ? "created" : "contact-person-added", other, i, "{ \"name\" : \"Globex\" }"));
+            }
+            Future<Void> batchResult = eventStore.persistAll("customer", batch);
+
+            String failureThread = eventStore.persistAsync("customer", duplicate)
+                    .handle((ignored, e) -> e instanceof DuplicateVersionException ? Thread.currentThread().getName() : "unexpected failure: " + e)
+                    .toCompletableFuture()
+                    .get(5, TimeUnit.SECONDS);
+            batchResult.get();
+
+            assertThat(failureThread).startsWith("eventful-async-");
+        }
+
+        assertThatThrownBy(() -> eventStore.eventsAsync("unknown", id).toCompletableFuture().get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldPersistAllEventsAtomically() throws Exception {
+        eventStore.initialize("customer");
+
+        UUID id = UUID.randomUUID();
+        List<Event> events = new ArrayList<>();
+        events.add(new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"));
+        for (int i = 2; i <= 300; i++) {
+            events.add(new Event("contact-person-added", id, i, "{ \"email\" : \"contact-%s@acme.com\", \"name\" : \"Contact %s\" }".formatted(i, i)));
+        }
+
+        eventStore.persistAll("customer", events).get();
+        assertThat(eventStore.events("customer", id)).containsExactlyElementsOf(events);
+
+        Event other = new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"Globex\" }");
+        Event next = new Event("contact-person-added", id, 301, "{ \"email\" : \"jim@acme.com\", \"name\" : \"Jim\" }");
+        Event conflicting = new Event("contact-person-added", id, 300, "{ \"email\" : \"joe@acme.com\", \"name\" : \"Joe\" }");
+
+        assertThatThrownBy(() -> eventStore.persistAll("customer", List.of(other, next, conflicting)).get()).hasCauseInstanceOf(InconsistentVersionException.class);
+        assertThat(eventStore.events("customer", id)).hasSize(300);
+        assertThat(eventStore.events("customer", other.aggregateId())).isEmpty();
+    }
+
+    @Test
+    public void shouldRestoreFromSnapshot() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.initialize("customer");
+        SqliteSnapshotStore snapshotStore = new SqliteSnapshotStore((SqliteEventStore) eventStore);
+        snapshotStore.initialize("customer");
+        Snapshotter<Customer> snapshotter = new Snapshotter<>(snapshotStore, "customer", new JacksonSnapshotSerializer<>(Customer.class), 3);
+        Projector projector = new Projector();
+
+        try {
+            CommandResult result = Customer.handle(new CreateCustomerCommand("ACME, Inc."));
+            eventStore.persist("customer", result.event()).get();
+            Customer customer = projector.initialize(result.event(), new CustomerEventHandler());
+
+            eventStore.persist("customer", customer.handle(new AddContactPersonCommand("bob@acme.com", "Bob")).event()).get();
+            eventStore.persist("customer", customer.handle(new AddContactPersonCommand("sarah@acme.com", "Sarah")).event()).get();
+
+            Customer restored = projector.restore(eventStore, customer.getId(), new CustomerEventHandler(), snapshotter);
+            assertThat(restored.getVersion()).isEqualTo(3);
+            assertThat(snapshotStore.latest("customer", customer.getId()).get().version()).isEqualTo(3);
+
+            eventStore.persist("customer", customer.handle(new AddContactPersonCommand("jim@acme.com", "Jim")).event()).get();
+
+            restored = projector.restore(eventStore, customer.getId(), new CustomerEventHandler(), snapshotter);
+            assertThat(restored.getName()).isEqualTo("ACME, Inc.");
+            assertThat(restored.getVersion()).isEqualTo(4);
+            assertThat(restored.getContactPersons()).containsExactly(new ContactPerson("bob@acme.com", "Bob"), new ContactPerson("sarah@acme.com", "Sarah"),
+                    new ContactPerson("jim@acme.com", "Jim"));
+            assertThat(snapshotStore.latest("customer", customer.getId()).get().version()).isEqualTo(3);
+
+            Customer restoredAsync = projector.restoreAsync(eventStore, customer.getId(), new CustomerEventHandler(), snapshotter)
+                    .toCompletableFuture()
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(restoredAsync.getVersion()).isEqualTo(4);
+            assertThat(restoredAsync.getContactPersons()).isEqualTo(restored.getContactPersons());
+        }
+        finally {
+            snapshotStore.close();
+        }
+    }
+
+    @Test
+    public void shouldCompleteAllWritesWhenClosing() throws Exception {
+        assumeSqliteEventStore();
+        eventStore.close();
+
+        // with a small queue, most producers wait for space and enqueue their work
+        // while the writer is stopping; the race is hit in some rounds only
+        for (int round = 0; round < 20; round++) {
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder().queueSize(2).backpressureStrategy(BackpressureStrategy.BLOCK).build());
+            eventStore.initialize("customer");
+
+            List<Future<Void>> results = new ArrayList<>();
+            List<Thread> producers = new ArrayList<>();
+
+            for (int i = 0; i < 16; i++) {
+                Thread producer = new Thread(() -> {
+                    while (true) {
+                        Future<Void> result = eventStore.persist("customer", Customer.handle(new CreateCustomerCommand("ACME, Inc.")).event());
+                        synchronized (results) {
+                            results.add(result);
+                        }
+                        if (result.state() == Future.State.FAILED) {
+                            return;
+                        }
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+
+            Thread.sleep(20);
+            eventStore.close();
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            for (Future<Void> result : results) {
+                try {
+                    result.get(5, TimeUnit.SECONDS);
+                }
+                catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class).hasMessage("Store is stopped already");
+                }
+            }
+        }
+
+        eventStore = createEventStore();
+    }
+
+    private Event persist(Event event) throws Exception {
+        eventStore.persist("customer", event).get();
+        return event;
+    }
 }
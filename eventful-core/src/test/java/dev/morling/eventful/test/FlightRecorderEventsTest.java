@@ -0,0 +1,74 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.test.handler.CustomerEventHandler;
+import dev.morling.eventful.test.model.Customer;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class FlightRecorderEventsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldEmitEventsForWritesReadsAndRestores() throws Exception {
+        UUID id = UUID.randomUUID();
+        Path recordingFile = directory.resolve("recording.jfr");
+
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("QueueWait", "Batch", "Read", "Restore")) {
+                recording.enable("dev.morling.eventful." + name);
+            }
+            recording.start();
+
+            SqliteEventStore eventStore = new SqliteEventStore();
+            try {
+                eventStore.initialize("customer");
+                eventStore.persistAll("customer", List.of(
+                        new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"),
+                        new Event("contact-person-added", id, 2, "{ \"email\" : \"bob@acme.com\", \"name\" : \"Bob\" }"))).get();
+
+                Customer customer = new Projector().restore(eventStore, "customer", id, new CustomerEventHandler());
+                assertThat(customer.getVersion()).isEqualTo(2);
+                assertThat(eventStore.events("customer", id)).hasSize(2);
+            }
+            finally {
+                eventStore.close();
+            }
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("dev.morling.eventful.QueueWait"))
+                .singleElement()
+                .satisfies(event -> assertThat(event.getInt("events")).isEqualTo(2));
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("dev.morling.eventful.Batch"))
+                .singleElement()
+                .satisfies(event -> assertThat(event.getInt("events")).isEqualTo(2));
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("dev.morling.eventful.Read"))
+                .hasSize(2)
+                .allSatisfy(event -> assertThat(event.getInt("rows")).isEqualTo(2));
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("dev.morling.eventful.Restore"))
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getString("aggregateId")).isEqualTo(id.toString());
+                    assertThat(event.getInt("events")).isEqualTo(2);
+                });
+    }
+}
@@ -0,0 +1,81 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import dev.morling.eventful.store.Histogram;
+
+public class HistogramTest {
+
+    @Test
+    public void shouldReportPercentilesWithBoundedError() {
+        Histogram histogram = new Histogram();
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count()).isEqualTo(1000L);
+        assertThat(snapshot.valueAt(0.5)).isBetween(500L, 563L);
+        assertThat(snapshot.valueAt(0.99)).isBetween(990L, 1114L);
+        assertThat(snapshot.max()).isBetween(1000L, 1125L);
+    }
+
+    @Test
+    public void shouldRecordSmallValuesExactly() {
+        Histogram histogram = new Histogram();
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(7);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.valueAt(0.0)).isEqualTo(0L);
+        assertThat(snapshot.valueAt(0.5)).isEqualTo(3L);
+        assertThat(snapshot.max()).isEqualTo(7L);
+    }
+
+    @Test
+    public void shouldMergeStripesInSnapshot() throws Exception {
+        Histogram histogram = new Histogram(4);
+        Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 1; j <= 1000; j++) {
+                    histogram.record(j);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.count()).isEqualTo(4000L);
+        assertThat(snapshot.valueAt(0.5)).isBetween(500L, 563L);
+
+        histogram.reset();
+        assertThat(histogram.snapshot().count()).isZero();
+    }
+
+    @Test
+    public void shouldReportValuesBetweenSnapshots() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        Histogram.Snapshot earlier = histogram.snapshot();
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        Histogram.Snapshot interval = histogram.snapshot().minus(earlier);
+        assertThat(interval.count()).isEqualTo(100L);
+        assertThat(interval.valueAt(0.5)).isBetween(50L, 56L);
+        assertThat(interval.max()).isBetween(100L, 112L);
+    }
+}
@@ -0,0 +1,90 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.morling.eventful.codec.PayloadCodec;
+import dev.morling.eventful.codec.PayloadCodecs;
+import dev.morling.eventful.codec.PayloadSchema;
+import dev.morling.eventful.codec.SchemaPayloadCodec;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.test.model.ContactPerson;
+
+public class PayloadCodecTest {
+
+    private static final PayloadCodec SCHEMA_CODEC = new SchemaPayloadCodec(Map.of(
+            "contact-person-added", PayloadSchema.of(PayloadSchema.string("email"), PayloadSchema.string("name")),
+            "order-placed", PayloadSchema.of(PayloadSchema.string("item"), PayloadSchema.int64("quantity"), PayloadSchema.float64("price"),
+                    PayloadSchema.bool("express"), PayloadSchema.string("note"))));
+
+    static {
+        PayloadCodecs.register(SCHEMA_CODEC);
+    }
+
+    private SqliteEventStore eventStore;
+
+    @BeforeEach
+    public void setupStore() {
+        eventStore = new SqliteEventStore();
+    }
+
+    @AfterEach
+    public void closeStore() {
+        eventStore.close();
+    }
+
+    @Test
+    public void shouldRoundtripPayloadsWithAllCodecs() throws Exception {
+        Map<String, Object> order = new LinkedHashMap<>();
+        order.put("item", "Widget ✓");
+        order.put("quantity", -12_345_678_901L);
+        order.put("price", 19.99);
+        order.put("express", true);
+        order.put("note", null);
+
+        JsonNode expected = new ObjectMapper().valueToTree(order);
+
+        for (PayloadCodec codec : List.of(PayloadCodecs.JSON, PayloadCodecs.CBOR, PayloadCodecs.SMILE, SCHEMA_CODEC)) {
+            byte[] data = codec.encode("order-placed", order);
+            assertThat(codec.decode("order-placed", data, JsonNode.class)).describedAs(codec.name()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void shouldRejectFieldsNotInSchema() {
+        assertThatThrownBy(() -> SCHEMA_CODEC.encode("contact-person-added", Map.of("email", "bob@acme.com", "phone", "555-1234")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void shouldReadStreamWithMixedCodecs() throws Exception {
+        eventStore.initialize("customer");
+        UUID id = UUID.randomUUID();
+
+        List<Event> events = List.of(
+                new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"),
+                new Event("contact-person-added", id, 2, PayloadCodecs.CBOR, new ContactPerson("bob@acme.com", "Bob")),
+                new Event("contact-person-added", id, 3, SCHEMA_CODEC, new ContactPerson("sarah@acme.com", "Sarah")));
+
+        eventStore.persistAll("customer", events).get();
+
+        List<Event> read = eventStore.events("customer", id);
+        assertThat(read).containsExactlyElementsOf(events);
+        assertThat(read.get(1).payload(ContactPerson.class)).isEqualTo(new ContactPerson("bob@acme.com", "Bob"));
+        assertThat(read.get(2).payload(ContactPerson.class)).isEqualTo(new ContactPerson("sarah@acme.com", "Sarah"));
+        assertThat(read.get(2).payload()).isEqualTo("{\"email\":\"sarah@acme.com\",\"name\":\"Sarah\"}");
+    }
+}
@@ -0,0 +1,127 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.morling.eventful.codec.PayloadCompressors;
+import dev.morling.eventful.store.Durability;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.OpenMode;
+import dev.morling.eventful.store.SchemaLayout;
+import dev.morling.eventful.store.SchemaMigration;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+public class SchemaMigrationTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldMigrateTextLayoutToBinaryLayout() throws Exception {
+        Path source = directory.resolve("source.db");
+        Path target = directory.resolve("target.db");
+
+        SqliteEventStore eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                .databasePath(source)
+                .schemaLayout(SchemaLayout.TEXT)
+                .eventTypeDictionary(true)
+                .compression(PayloadCompressors.DEFLATE, 64)
+                .build());
+
+        UUID customerId = UUID.randomUUID();
+        List<Event> customerEvents = new ArrayList<>();
+        customerEvents.add(new Event("created", customerId, 1, "{ \"name\" : \"ACME, Inc.\" }"));
+        for (int i = 2; i <= 100; i++) {
+            customerEvents.add(new Event("contact-person-added", customerId, i, "{ \"email\" : \"bob%s@acme.com\", \"name\" : \"Bob %s\", \"notes\" : \"%s\" }"
+                    .formatted(i, i, "Bob %s is in charge of events. ".formatted(i).repeat(4))));
+        }
+        Event purchase = new Event("created", UUID.randomUUID(), 1, "{ \"total\" : 42 }");
+
+        try {
+            eventStore.initialize("customer");
+            eventStore.initialize("purchase");
+
+            eventStore.persistAll("customer", customerEvents.subList(0, 50)).get();
+            eventStore.persist("purchase", purchase).get();
+            eventStore.trainCompressionDictionary("customer", 50, 1024);
+            eventStore.persistAll("customer", customerEvents.subList(50, 100)).get();
+        }
+        finally {
+            eventStore.close();
+        }
+
+        List<Long> sourcePositions = positions(source);
+        assertThat(compressions(source)).anyMatch(compression -> compression != 0);
+
+        SchemaMigration.migrate(source, target, SchemaLayout.BINARY, false);
+        assertThatThrownBy(() -> SchemaMigration.migrate(source, target, SchemaLayout.BINARY, false)).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(positions(target)).isEqualTo(sourcePositions);
+        // payloads are decompressed
+        assertThat(compressions(target)).containsOnly(0);
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + target);
+                ResultSet rs = connection.createStatement().executeQuery("SELECT DISTINCT typeof(AGGREGATE_ID), typeof(TYPE) FROM customer")) {
+            assertThat(rs.next()).isTrue();
+            assertThat(rs.getString(1)).isEqualTo("blob");
+            assertThat(rs.getString(2)).isEqualTo("text");
+            assertThat(rs.next()).isFalse();
+        }
+
+        SqliteEventStore migrated = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                .databasePath(target)
+                .openMode(OpenMode.OPEN)
+                .build());
+
+        try {
+            assertThat(migrated.events("customer", customerId)).containsExactlyElementsOf(customerEvents);
+            assertThat(migrated.events("purchase", purchase.aggregateId())).containsExactly(purchase);
+
+            // the log continues after the migrated positions
+            Event next = new Event("contact-person-added", customerId, 101, "{ \"email\" : \"joe@acme.com\", \"name\" : \"Joe\" }");
+            migrated.persist("customer", next, Durability.FULL).get();
+            assertThat(positions(target)).last().isEqualTo(sourcePositions.get(sourcePositions.size() - 1) + 1);
+        }
+        finally {
+            migrated.close();
+        }
+    }
+
+    private static List<Long> positions(Path database) throws Exception {
+        List<Long> positions = new ArrayList<>();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+                ResultSet rs = connection.createStatement().executeQuery("SELECT POSITION FROM customer ORDER BY POSITION")) {
+            while (rs.next()) {
+                positions.add(rs.getLong(1));
+            }
+        }
+
+        return positions;
+    }
+
+    private static List<Integer> compressions(Path database) throws Exception {
+        List<Integer> compressions = new ArrayList<>();
+
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database);
+                ResultSet rs = connection.createStatement().executeQuery("SELECT COMPRESSION FROM customer ORDER BY POSITION")) {
+            while (rs.next()) {
+                compressions.add(rs.getInt(1));
+            }
+        }
+
+        return compressions;
+    }
+}
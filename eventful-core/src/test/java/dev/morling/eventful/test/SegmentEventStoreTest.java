@@ -0,0 +1,136 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.morling.eventful.store.DuplicateVersionException;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.EventStore;
+import dev.morling.eventful.store.SegmentEventStore;
+import dev.morling.eventful.store.SegmentEventStoreOptions;
+
+/**
+ * Runs the tests of {@link EventStoreTest} against {@link SegmentEventStore},
+ * plus tests of re-opening and recovering the segments.
+ */
+public class SegmentEventStoreTest extends EventStoreTest {
+
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Override
+    protected EventStore createEventStore() {
+        return open();
+    }
+
+    private SegmentEventStore open() {
+        return new SegmentEventStore(SegmentEventStoreOptions.builder()
+                .directory(directory)
+                .segmentSize(SEGMENT_SIZE)
+                .build());
+    }
+
+    @Test
+    public void shouldRecoverEventsAcrossSegmentsAfterReopening() throws Exception {
+        SegmentEventStore store = open();
+        List<Event> events = new ArrayList<>();
+        UUID id = UUID.randomUUID();
+
+        try {
+            store.initialize("account");
+            events.add(new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"));
+            for (int i = 2; i <= 1_000; i++) {
+                events.add(new Event("deposited", id, i, "{ \"amount\" : %s }".formatted(i)));
+            }
+
+            for (Event event : events) {
+                store.persist("account", event).get();
+            }
+        }
+        finally {
+            store.close();
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.filter(file -> file.toString().endsWith(".segment")).count()).isGreaterThan(1);
+        }
+
+        SegmentEventStore reopened = open();
+
+        try {
+            assertThat(reopened.events("account", id)).containsExactlyElementsOf(events);
+            assertThat(reopened.events("account", id, 990)).containsExactlyElementsOf(events.subList(989, 1_000));
+            assertThatThrownBy(() -> reopened.initialize("account")).isInstanceOf(IllegalArgumentException.class);
+
+            Event duplicate = new Event("deposited", id, 1_000, "{ \"amount\" : 1 }");
+            assertThatThrownBy(() -> reopened.persist("account", duplicate).get()).hasCauseInstanceOf(DuplicateVersionException.class);
+
+            Event next = new Event("deposited", id, 1_001, "{ \"amount\" : 1 }");
+            reopened.persist("account", next).get();
+            assertThat(reopened.events("account", id, 1_001)).containsExactly(next);
+        }
+        finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    public void shouldDropTornBatchUponRecovery() throws Exception {
+        SegmentEventStore store = open();
+        UUID id = UUID.randomUUID();
+        Event created = new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }");
+        List<Event> batch = List.of(
+                new Event("deposited", id, 2, "{ \"amount\" : 2 }"),
+                new Event("deposited", id, 3, "{ \"amount\" : 3 }"));
+
+        try {
+            store.initialize("account");
+            store.persist("account", created).get();
+            store.persistAll("account", batch).get();
+        }
+        finally {
+            store.close();
+        }
+
+        // corrupts the last record of the batch, as if it had been torn by a crash
+        Path segment = directory.resolve("%020d.segment".formatted(0));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long position = file.length() - 1;
+            while (position > 0) {
+                file.seek(position);
+                if (file.read() != 0) {
+                    break;
+                }
+                position--;
+            }
+
+            file.seek(position);
+            file.write(0xFF);
+        }
+
+        store = open();
+
+        try {
+            assertThat(store.events("account", id)).containsExactly(created);
+
+            store.persistAll("account", batch).get();
+            assertThat(store.events("account", id)).containsExactly(created, batch.get(0), batch.get(1));
+        }
+        finally {
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package dev.morling.eventful.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import dev.morling.eventful.store.DuplicateVersionException;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.ShardedEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+public class ShardedEventStoreTest {
+
+    private static final int SHARDS = 4;
+
+    @TempDir
+    Path directory;
+
+    private ShardedEventStore eventStore;
+
+    @BeforeEach
+    public void setupStore() {
+        eventStore = new ShardedEventStore(SHARDS, SqliteEventStoreOptions.builder()
+                .databasePath(directory.resolve("events.db"))
+                .build());
+        eventStore.initialize("customer");
+    }
+
+    @AfterEach
+    public void closeStore() {
+        eventStore.close();
+    }
+
+    @Test
+    public void shouldRouteAggregatesToTheirShards() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        List<Future<Void>> results = new ArrayList<>();
+
+        for (int i = 0; i < 200; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+
+            results.add(eventStore.persist("customer", new Event("created", id, 1, "{ \"name\" : \"Customer %s\" }".formatted(i))));
+            results.add(eventStore.persist("customer", new Event("contact-person-added", id, 2, "{ \"email\" : \"bob@acme.com\", \"name\" : \"Bob\" }")));
+        }
+
+        // each shard has its own writer, so there is no single last write to wait for
+        for (Future<Void> result : results) {
+            result.get();
+        }
+
+        assertThat(ids.stream().mapToInt(eventStore::shardOf).distinct().count()).isEqualTo(SHARDS);
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertThat(ShardedEventStore.shardPath(directory.resolve("events.db"), shard)).exists();
+        }
+
+        for (UUID id : ids) {
+            List<Event> events = eventStore.events("customer", id);
+            assertThat(events).extracting(Event::version).containsExactly(1L, 2L);
+            assertThat(events).extracting(Event::type).containsExactly("created", "contact-person-added");
+        }
+
+        assertThat(eventStore.events("customer", ids.get(0), 2)).hasSize(1);
+
+        Map<UUID, List<Event>> events = eventStore.events("customer", ids);
+        assertThat(events.keySet()).containsExactlyElementsOf(ids);
+        assertThat(events.values()).allSatisfy(e -> assertThat(e).extracting(Event::version).containsExactly(1L, 2L));
+
+        Map<UUID, List<Event>> scanned = new ConcurrentHashMap<>();
+        eventStore.scan("customer", 8, scanned::put).get();
+        assertThat(scanned).isEqualTo(events);
+
+        // the first failure stops the scans of all shards
+        AtomicInteger calls = new AtomicInteger();
+        assertThatThrownBy(() -> eventStore.scan("customer", 8, (id, e) -> {
+            if (calls.incrementAndGet() == 10) {
+                throw new IllegalStateException("Consumer failed");
+            }
+            LockSupport.parkNanos(1_000_000);
+        }).get()).hasCauseInstanceOf(IllegalStateException.class).hasRootCauseMessage("Consumer failed");
+        assertThat(calls.get()).isLessThan(50);
+    }
+
+    @Test
+    public void shouldDetectVersionConflictsWithinShard() throws Exception {
+        UUID id = UUID.randomUUID();
+        eventStore.persist("customer", new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }")).get();
+
+        Event duplicate = new Event("created", id, 1, "{ \"name\" : \"Globex\" }");
+        assertThatThrownBy(() -> eventStore.persist("customer", duplicate).get()).hasCauseInstanceOf(DuplicateVersionException.class);
+        assertThat(eventStore.events("customer", id)).hasSize(1);
+    }
+
+    @Test
+    public void shouldPersistAllEventsOfOneShardAtomically() throws Exception {
+        UUID id = UUID.randomUUID();
+        UUID sameShard = idInShard(eventStore.shardOf(id), id);
+
+        eventStore.persistAll("customer", List.of(
+                new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"),
+                new Event("created", sameShard, 1, "{ \"name\" : \"Globex\" }"))).get();
+
+        Event next = new Event("contact-person-added", sameShard, 2, "{ \"email\" : \"jim@globex.com\", \"name\" : \"Jim\" }");
+        Event conflicting = new Event("contact-person-added", id, 1, "{ \"email\" : \"joe@acme.com\", \"name\" : \"Joe\" }");
+
+        assertThatThrownBy(() -> eventStore.persistAll("customer", List.of(next, conflicting)).get()).hasCauseInstanceOf(DuplicateVersionException.class);
+        assertThat(eventStore.events("customer", id)).hasSize(1);
+        assertThat(eventStore.events("customer", sameShard)).hasSize(1);
+    }
+
+    @Test
+    public void shouldRejectBatchesSpanningShards() throws Exception {
+        UUID id = UUID.randomUUID();
+        UUID otherShard = idInShard((eventStore.shardOf(id) + 1) % SHARDS, id);
+
+        List<Event> events = List.of(
+                new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"),
+                new Event("created", otherShard, 1, "{ \"name\" : \"Globex\" }"));
+
+        assertThatThrownBy(() -> eventStore.persistAll("customer", events).get()).hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(eventStore.events("customer", id)).isEmpty();
+        assertThat(eventStore.events("customer", otherShard)).isEmpty();
+    }
+
+    private UUID idInShard(int shard, UUID except) {
+        UUID id;
+        do {
+            id = UUID.randomUUID();
+        } while (eventStore.shardOf(id) != shard || id.equals(except));
+
+        return id;
+    }
+}
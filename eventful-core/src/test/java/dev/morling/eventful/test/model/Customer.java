@@ -1,8 +1,12 @@
 package dev.morling.eventful.test.model;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 import dev.morling.eventful.client.CommandResult;
 import dev.morling.eventful.store.Event;
 import dev.morling.eventful.store.InvalidCommandException;
@@ -17,7 +21,9 @@ public class Customer {
     private String name;
     private final List<ContactPerson> contactPersons;
 
-    public Customer(UUID id, long version, String name, List<ContactPerson> contactPersons) {
+    @JsonCreator
+    public Customer(@JsonProperty("id") UUID id, @JsonProperty("version") long version, @JsonProperty("name") String name,
+            @JsonProperty("contactPersons") List<ContactPerson> contactPersons) {
         this.id = id;
         this.version = version;
         this.name = name;
@@ -57,4 +63,8 @@ public class Customer {
     public void incrementVersion() {
         version++;
     }
+
+    public Customer copy() {
+        return new Customer(id, version, name, new ArrayList<>(contactPersons));
+    }
 }
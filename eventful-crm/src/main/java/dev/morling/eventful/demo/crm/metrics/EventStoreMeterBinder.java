@@ -0,0 +1,163 @@
+package dev.morling.eventful.demo.crm.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import dev.morling.eventful.store.Histogram;
+import dev.morling.eventful.store.MetricsCollector;
+import dev.morling.eventful.store.StoreMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Registers the metrics of an event store with Micrometer. Histograms are
+ * exposed as their count (and total, for timers) since the start, plus gauges
+ * for their maximum and percentiles (tagged with {@code phi}) over the
+ * interval since the previous scrape; durations are reported in seconds. All
+ * values are taken from the store when the registry is polled, with one
+ * snapshot per histogram and scrape, so that they are consistent with each
+ * other. The intervals assume a single registry scraping the metrics.
+ * <p>
+ * Micrometer only keeps weak references to the state of function-based
+ * meters, so all meters use the store's metrics, which live as long as the
+ * store, as their state.
+ */
+public class EventStoreMeterBinder implements MeterBinder {
+
+    private static final List<Double> PERCENTILES = List.of(0.5, 0.9, 0.99, 0.999);
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    // the meters of one histogram polled within this time belong to the same scrape
+    private static final long SCRAPE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final StoreMetrics metrics;
+
+    public EventStoreMeterBinder(StoreMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        metrics.collect(new MetricsCollector() {
+
+            @Override
+            public void gauge(String name, String description, Map<String, String> tags, DoubleSupplier value) {
+                Gauge.builder(name, metrics, m -> value.getAsDouble())
+                        .description(description)
+                        .tags(tags(tags))
+                        .register(registry);
+            }
+
+            @Override
+            public void counter(String name, String description, Map<String, String> tags, LongSupplier count) {
+                FunctionCounter.builder(name, metrics, m -> count.getAsLong())
+                        .description(description)
+                        .tags(tags(tags))
+                        .register(registry);
+            }
+
+            @Override
+            public void timer(String name, String description, Map<String, String> tags, Supplier<Histogram.Snapshot> snapshot) {
+                ScrapeSnapshots snapshots = new ScrapeSnapshots(snapshot);
+
+                FunctionTimer.builder(name, metrics, m -> snapshots.total().count(), m -> snapshots.totalTime(), TimeUnit.NANOSECONDS)
+                        .description(description)
+                        .tags(tags(tags))
+                        .register(registry);
+
+                registerValueGauges(registry, name, description, "seconds", tags, snapshots, NANOS_PER_SECOND);
+            }
+
+            @Override
+            public void distribution(String name, String description, String baseUnit, Map<String, String> tags, Supplier<Histogram.Snapshot> snapshot) {
+                ScrapeSnapshots snapshots = new ScrapeSnapshots(snapshot);
+
+                FunctionCounter.builder(name + ".count", metrics, m -> snapshots.total().count())
+                        .description(description)
+                        .tags(tags(tags))
+                        .register(registry);
+
+                registerValueGauges(registry, name, description, baseUnit, tags, snapshots, 1);
+            }
+        });
+    }
+
+    private void registerValueGauges(MeterRegistry registry, String name, String description, String baseUnit, Map<String, String> tags,
+                                            ScrapeSnapshots snapshots, double divisor) {
+        Gauge.builder(name + ".max", metrics, m -> snapshots.interval().max() / divisor)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tags(tags(tags))
+                .register(registry);
+
+        for (double percentile : PERCENTILES) {
+            Gauge.builder(name + ".percentile", metrics, m -> snapshots.interval().valueAt(percentile) / divisor)
+                    .description(description)
+                    .baseUnit(baseUnit)
+                    .tags(tags(tags).and("phi", String.valueOf(percentile)))
+                    .register(registry);
+        }
+    }
+
+    private static Tags tags(Map<String, String> tags) {
+        Tags result = Tags.empty();
+
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            result = result.and(tag.getKey(), tag.getValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * The snapshot of a histogram for the current scrape, taken when the first
+     * of its meters is polled, and the values recorded since the previous one.
+     */
+    private static class ScrapeSnapshots {
+
+        private final Supplier<Histogram.Snapshot> snapshot;
+        private Histogram.Snapshot total;
+        private Histogram.Snapshot interval;
+        private long takenAt;
+
+        ScrapeSnapshots(Supplier<Histogram.Snapshot> snapshot) {
+            this.snapshot = snapshot;
+            this.total = snapshot.get();
+            this.interval = total.minus(total);
+            this.takenAt = System.nanoTime();
+        }
+
+        synchronized Histogram.Snapshot total() {
+            refresh();
+            return total;
+        }
+
+        synchronized double totalTime() {
+            refresh();
+            return total.mean() * total.count();
+        }
+
+        synchronized Histogram.Snapshot interval() {
+            refresh();
+            return interval;
+        }
+
+        private void refresh() {
+            long now = System.nanoTime();
+
+            if (now - takenAt > SCRAPE_WINDOW_NANOS) {
+                Histogram.Snapshot current = snapshot.get();
+                interval = current.minus(total);
+                total = current;
+                takenAt = now;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package dev.morling.eventful.demo.crm.rest;
+
+import java.util.UUID;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import dev.morling.eventful.demo.crm.model.Customer;
+import dev.morling.eventful.demo.crm.model.Customer.AddContactPersonCommand;
+import dev.morling.eventful.demo.crm.model.Customer.CreateCustomerCommand;
+import dev.morling.eventful.demo.crm.service.CustomerService;
+
+/**
+ * The customer endpoints, blocking a worker thread per request while the
+ * events are read or committed.
+ */
+@Path("/blocking/customer")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class BlockingCustomerResource {
+
+    @Inject
+    CustomerService customerService;
+
+    @POST
+    public Customer createCustomer(CreateCustomerCommand command) throws Exception {
+        return customerService.createCustomer(command);
+    }
+
+    @POST
+    @Path("/{id}/contact")
+    public Response addContactPerson(@PathParam("id") UUID id, AddContactPersonCommand command) throws Exception {
+        return customerService.addContactPerson(id, command);
+    }
+
+    @GET
+    @Path("/{id}")
+    public Customer getCustomer(@PathParam("id") UUID id) {
+        return customerService.getCustomer(id);
+    }
+}
@@ -0,0 +1,55 @@
+package dev.morling.eventful.demo.crm.rest;
+
+import java.util.UUID;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import dev.morling.eventful.demo.crm.model.Customer;
+import dev.morling.eventful.demo.crm.model.Customer.AddContactPersonCommand;
+import dev.morling.eventful.demo.crm.model.Customer.CreateCustomerCommand;
+import dev.morling.eventful.demo.crm.service.CustomerService;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+
+/**
+ * The customer endpoints, with each request running on a virtual thread
+ * instead of a worker thread; requires Java 21, or Java 19 with
+ * {@code --enable-preview}, falling back to worker threads otherwise. Set
+ * {@code eventful.threading-model=VIRTUAL} for bounding the concurrent reads of
+ * the store by its read permits.
+ */
+@Path("/vt/customer")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class VirtualThreadCustomerResource {
+
+    @Inject
+    CustomerService customerService;
+
+    @POST
+    @RunOnVirtualThread
+    public Customer createCustomer(CreateCustomerCommand command) throws Exception {
+        return customerService.createCustomer(command);
+    }
+
+    @POST
+    @RunOnVirtualThread
+    @Path("/{id}/contact")
+    public Response addContactPerson(@PathParam("id") UUID id, AddContactPersonCommand command) throws Exception {
+        return customerService.addContactPerson(id, command);
+    }
+
+    @GET
+    @RunOnVirtualThread
+    @Path("/{id}")
+    public Customer getCustomer(@PathParam("id") UUID id) {
+        return customerService.getCustomer(id);
+    }
+}
@@ -0,0 +1,132 @@
+package dev.morling.eventful.demo.crm.service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import dev.morling.eventful.client.CommandProcessor;
+import dev.morling.eventful.client.CommandResult;
+import dev.morling.eventful.client.JacksonSnapshotSerializer;
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.client.Snapshotter;
+import dev.morling.eventful.demo.crm.handler.CustomerEventHandler;
+import dev.morling.eventful.demo.crm.metrics.EventStoreMeterBinder;
+import dev.morling.eventful.demo.crm.model.Customer;
+import dev.morling.eventful.demo.crm.model.Customer.AddContactPersonCommand;
+import dev.morling.eventful.demo.crm.model.Customer.CreateCustomerCommand;
+import dev.morling.eventful.store.InvalidCommandException;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+import dev.morling.eventful.store.SqliteSnapshotStore;
+import dev.morling.eventful.store.ThreadingModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Handles the customer commands and queries, shared by the REST resources.
+ * The plain methods block until the events have been read or committed, for
+ * resources running on worker or virtual threads; the {@code Async} variants
+ * return right away, with the store's threads completing the returned stages.
+ * All commands go through one command processor, which keeps the customers
+ * in memory and serializes the commands for each customer, so concurrent
+ * requests for one customer don't conflict.
+ */
+@ApplicationScoped
+public class CustomerService {
+
+    private static final int SNAPSHOT_FREQUENCY = 100;
+    private static final int MAILBOXES = 4;
+    private static final int MAX_AGGREGATES = 100_000;
+
+    private final CustomerEventHandler eventHandler = new CustomerEventHandler();
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "eventful.threading-model", defaultValue = "PLATFORM")
+    ThreadingModel threadingModel;
+
+    private SqliteEventStore eventStore;
+    private SqliteSnapshotStore snapshotStore;
+    private Snapshotter<Customer> snapshotter;
+    private CommandProcessor<Customer> commandProcessor;
+
+    public void initializeStore(@Observes StartupEvent startupEvent) {
+        eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                .threadingModel(threadingModel)
+                .build());
+        eventStore.initialize("customer");
+        new EventStoreMeterBinder(eventStore.metrics()).bindTo(meterRegistry);
+
+        snapshotStore = new SqliteSnapshotStore(eventStore);
+        snapshotStore.initialize("customer");
+        snapshotter = new Snapshotter<>(snapshotStore, "customer", new JacksonSnapshotSerializer<>(Customer.class), SNAPSHOT_FREQUENCY);
+        commandProcessor = new CommandProcessor<>(eventStore, "customer", eventHandler, Customer::copy, MAILBOXES, MAX_AGGREGATES);
+    }
+
+    public void closeStore(@Observes ShutdownEvent shutdownEvent) {
+        commandProcessor.close();
+        snapshotStore.close();
+        eventStore.close();
+    }
+
+    public Customer createCustomer(CreateCustomerCommand command) throws Exception {
+        return createCustomerAsync(command).toCompletableFuture().get();
+    }
+
+    public Response addContactPerson(UUID id, AddContactPersonCommand command) throws Exception {
+        return addContactPersonAsync(id, command).toCompletableFuture().get();
+    }
+
+    public Customer getCustomer(UUID id) {
+        return new Projector().restore(eventStore, id, eventHandler, snapshotter);
+    }
+
+    public CompletionStage<Customer> createCustomerAsync(CreateCustomerCommand command) {
+        CommandResult result = Customer.handle(command);
+        return commandProcessor.submit(result.event().aggregateId(), customer -> result);
+    }
+
+    public CompletionStage<Response> addContactPersonAsync(UUID id, AddContactPersonCommand command) {
+        return commandProcessor.submit(id, customer -> {
+            if (customer == null) {
+                throw new NotFoundException("Customer with id %s not found".formatted(id));
+            }
+            return customer.handle(command);
+        })
+        .thenApply(customer -> {
+            snapshotter.onPersisted(id, customer.getVersion(), customer);
+            return Response.ok(customer).build();
+        })
+        .exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+
+            if (cause instanceof NotFoundException) {
+                return Response.status(Status.NOT_FOUND)
+                        .entity(cause.getMessage())
+                        .build();
+            }
+            else if (cause instanceof InvalidCommandException) {
+                return Response.status(Status.BAD_REQUEST)
+                        .entity(cause.getMessage())
+                        .build();
+            }
+
+            throw e instanceof CompletionException completionException ? completionException : new CompletionException(e);
+        });
+    }
+
+    public CompletionStage<Customer> getCustomerAsync(UUID id) {
+        return new Projector().restoreAsync(eventStore, id, eventHandler, snapshotter);
+    }
+}
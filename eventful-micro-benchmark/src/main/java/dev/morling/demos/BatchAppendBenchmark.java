@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * Imports aggregates with a given number of events each, either with one
+ * {@code persistAll()} call per aggregate or with looped {@code persist()}
+ * calls. Throughput is given in events.
+ */
+public class BatchAppendBenchmark {
+
+    private static final int EVENTS = 20_000;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "10", "100", "1000" })
+        int eventsPerAggregate;
+
+        SqliteEventStore eventStore;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            eventStore = new SqliteEventStore();
+            eventStore.initialize("customer");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            eventStore.close();
+        }
+
+        List<Event> aggregate() {
+            UUID id = UUID.randomUUID();
+            List<Event> events = new ArrayList<>(eventsPerAggregate);
+
+            events.add(new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"));
+            for (int i = 2; i <= eventsPerAggregate; i++) {
+                events.add(new Event("contact-person-added", id, i, "{ \"email\" : \"contact-" + i + "@acme.com\", \"name\" : \"Contact " + i + "\" }"));
+            }
+
+            return events;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(EVENTS)
+    public void persistLooped(StoreState state) throws Exception {
+        Future<Void> result = null;
+
+        for (int i = 0; i < EVENTS / state.eventsPerAggregate; i++) {
+            for (Event event : state.aggregate()) {
+                result = state.eventStore.persist("customer", event);
+            }
+        }
+
+        result.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(EVENTS)
+    public void persistAll(StoreState state) throws Exception {
+        Future<Void> result = null;
+
+        for (int i = 0; i < EVENTS / state.eventsPerAggregate; i++) {
+            result = state.eventStore.persistAll("customer", state.aggregate());
+        }
+
+        result.get();
+    }
+}
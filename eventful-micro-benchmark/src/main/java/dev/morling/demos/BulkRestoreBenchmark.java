@@ -0,0 +1,159 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.OpenMode;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+/**
+ * Restores all the customers of the "customer_read" data set of
+ * {@link EventStoreBenchmark}, scaled up to 200k customers with 51 events each
+ * by default, either one after another or with a parallel bulk restore using
+ * as many scan ranges and fold threads as the given parallelism. As populating
+ * the database takes a while, it is kept in {@code bulk-restore-<customers>.db}
+ * and reused by later trials and runs; delete it to start over.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class BulkRestoreBenchmark {
+
+    private static final int CONTACTS_PER_CUSTOMER = 50;
+    private static final int READ_CONNECTIONS = 8;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "200000" })
+        int customers;
+
+        SqliteEventStore eventStore;
+        List<UUID> ids;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            Path databasePath = Path.of("bulk-restore-" + customers + ".db");
+            boolean exists = Files.exists(databasePath);
+
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                    .databasePath(databasePath)
+                    .openMode(OpenMode.OPEN)
+                    .readConnections(READ_CONNECTIONS)
+                    .build());
+
+            if (!exists) {
+                eventStore.initialize("customer_read");
+
+                Future<Void> result = null;
+                for (int i = 0; i < customers; i++) {
+                    UUID customerId = UUID.randomUUID();
+
+                    List<Event> events = new ArrayList<>(CONTACTS_PER_CUSTOMER + 1);
+                    events.add(new Event("created", customerId, 1, "{ \"name\" : \"" + i + "_ACME, Inc.\" }"));
+
+                    for (int j = 0; j < CONTACTS_PER_CUSTOMER; j++) {
+                        events.add(new Event("contact-person-added", customerId, j + 2, "{ \"email\" : \"bobby" + j + "@acme.com\", \"name\" : \"Bobby" + j + "\" }"));
+                    }
+
+                    result = eventStore.persistAll("customer_read", events);
+                }
+
+                result.get();
+            }
+
+            List<UUID> scanned = new ArrayList<>(customers);
+            eventStore.scan("customer_read", 1, (id, events) -> scanned.add(id)).get();
+            ids = scanned;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            eventStore.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class PoolState {
+
+        @Param({ "1", "2", "4", "8" })
+        int parallelism;
+
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long sequential(StoreState state) {
+        Projector projector = new Projector();
+        CustomerEventHandler eventHandler = new CustomerEventHandler();
+        long contacts = 0;
+
+        for (UUID id : state.ids) {
+            contacts += projector.restore(state.eventStore.events("customer_read", id), eventHandler).getContactPersons().size();
+        }
+
+        return contacts;
+    }
+
+    @Benchmark
+    public long bulk(StoreState state, PoolState pool) throws Exception {
+        LongAdder contacts = new LongAdder();
+
+        new Projector().restoreAll(state.eventStore, "customer_read", new CustomerEventHandler(), pool.parallelism, pool.pool,
+                (id, customer) -> contacts.add(customer.getContactPersons().size()))
+                .get();
+
+        return contacts.sum();
+    }
+}
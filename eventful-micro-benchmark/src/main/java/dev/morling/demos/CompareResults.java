@@ -0,0 +1,298 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH result files written with {@code -rf json} and flags the
+ * benchmarks which got significantly worse. Results are matched by benchmark,
+ * mode and parameters; the iteration scores of both runs are compared with
+ * Welch's t-test, falling back to non-overlapping confidence intervals if a
+ * run has less than two iterations. A change counts as regression if it is
+ * significant and exceeds the threshold; whether higher or lower is worse
+ * depends on the benchmark mode. Results of the baseline which are missing
+ * from the current run are reported, too.
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar dev.morling.demos.CompareResults
+ * <baseline.json> <current.json> [--threshold <percent>] [--alpha <level>]}.
+ * Exits with status 1 if there is at least one regression.
+ */
+public class CompareResults {
+
+    private static final double DEFAULT_THRESHOLD = 5;
+    private static final double DEFAULT_ALPHA = 0.05;
+
+    record Result(String key, String mode, String unit, double score, double[] confidence, double[] samples) {
+    }
+
+    record Comparison(Result baseline, Result current, double change, double pValue, boolean significant) {
+
+        boolean isWorse() {
+            return "thrpt".equals(current.mode()) ? change < 0 : change > 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <current.json> [--threshold <percent>] [--alpha <level>]");
+            System.exit(2);
+        }
+
+        double threshold = DEFAULT_THRESHOLD;
+        double alpha = DEFAULT_ALPHA;
+        for (int i = 2; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--threshold" -> threshold = Double.parseDouble(args[i + 1]);
+                case "--alpha" -> alpha = Double.parseDouble(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Map<String, Result> baseline = read(Path.of(args[0]));
+        Map<String, Result> current = read(Path.of(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %6s %14s %14s %9s %8s  %s%n", "Benchmark", "Mode", "Baseline", "Current", "Change", "p", "");
+
+        for (Result result : current.values()) {
+            Result previous = baseline.get(result.key() + " " + result.mode());
+            if (previous == null) {
+                System.out.printf("%-90s %6s %14s %14.3f %9s %8s  %s%n", result.key(), result.mode(), "-", result.score(), "-", "-", "new");
+                continue;
+            }
+
+            Comparison comparison = compare(previous, result, alpha);
+
+            String verdict = "";
+            if (comparison.significant() && Math.abs(comparison.change()) >= threshold) {
+                if (comparison.isWorse()) {
+                    verdict = "REGRESSION";
+                    regressions++;
+                }
+                else {
+                    verdict = "improvement";
+                }
+            }
+
+            System.out.printf("%-90s %6s %14.3f %14.3f %+8.2f%% %8s  %s%n", result.key(), result.mode(), previous.score(), result.score(),
+                    comparison.change(), Double.isNaN(comparison.pValue()) ? "-" : "%.4f".formatted(comparison.pValue()), verdict);
+        }
+
+        int missing = 0;
+        for (Map.Entry<String, Result> previous : baseline.entrySet()) {
+            if (!current.containsKey(previous.getKey())) {
+                Result result = previous.getValue();
+                System.out.printf("%-90s %6s %14.3f %14s %9s %8s  %s%n", result.key(), result.mode(), result.score(), "-", "-", "-", "missing");
+                missing++;
+            }
+        }
+
+        System.out.printf("%n%s regression(s), %s missing (threshold %s%%, alpha %s)%n", regressions, missing, threshold, alpha);
+
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    static Comparison compare(Result baseline, Result current, double alpha) {
+        double change = (current.score() - baseline.score()) / baseline.score() * 100;
+
+        if (baseline.samples().length >= 2 && current.samples().length >= 2) {
+            double pValue = welchTest(baseline.samples(), current.samples());
+            return new Comparison(baseline, current, change, pValue, pValue < alpha);
+        }
+
+        boolean disjoint = baseline.confidence()[1] < current.confidence()[0] || current.confidence()[1] < baseline.confidence()[0];
+        return new Comparison(baseline, current, change, Double.NaN, disjoint);
+    }
+
+    private static Map<String, Result> read(Path file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+
+        for (JsonNode benchmark : new ObjectMapper().readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(benchmark.get("benchmark").asText());
+            JsonNode params = benchmark.get("params");
+            if (params != null) {
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> param = fields.next();
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+                }
+            }
+
+            String mode = benchmark.get("mode").asText();
+            JsonNode metric = benchmark.get("primaryMetric");
+            JsonNode confidence = metric.get("scoreConfidence");
+
+            Result result = new Result(key.toString(), mode, metric.get("scoreUnit").asText(), metric.get("score").asDouble(),
+                    new double[]{ confidence.get(0).asDouble(), confidence.get(1).asDouble() }, samples(metric));
+            results.put(result.key() + " " + mode, result);
+        }
+
+        return results;
+    }
+
+    /**
+     * Returns the score of each measurement iteration across all forks; for
+     * sample time runs, that's the mean of the samples of the iteration.
+     */
+    private static double[] samples(JsonNode metric) {
+        List<Double> samples = new ArrayList<>();
+
+        if (metric.has("rawData")) {
+            for (JsonNode fork : metric.get("rawData")) {
+                for (JsonNode iteration : fork) {
+                    samples.add(iteration.asDouble());
+                }
+            }
+        }
+        else if (metric.has("rawDataHistogram")) {
+            for (JsonNode fork : metric.get("rawDataHistogram")) {
+                for (JsonNode iteration : fork) {
+                    double sum = 0;
+                    long count = 0;
+                    for (JsonNode bucket : iteration) {
+                        sum += bucket.get(0).asDouble() * bucket.get(1).asLong();
+                        count += bucket.get(1).asLong();
+                    }
+                    if (count > 0) {
+                        samples.add(sum / count);
+                    }
+                }
+            }
+        }
+
+        return samples.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    /**
+     * Returns the two-sided p-value of Welch's t-test for the given samples.
+     */
+    static double welchTest(double[] a, double[] b) {
+        double meanA = mean(a);
+        double meanB = mean(b);
+        double varianceA = variance(a, meanA) / a.length;
+        double varianceB = variance(b, meanB) / b.length;
+
+        if (varianceA + varianceB == 0) {
+            return meanA == meanB ? 1 : 0;
+        }
+
+        double t = (meanA - meanB) / Math.sqrt(varianceA + varianceB);
+        double degreesOfFreedom = Math.pow(varianceA + varianceB, 2)
+                / (varianceA * varianceA / (a.length - 1) + varianceB * varianceB / (b.length - 1));
+
+        // P(|T| > |t|) for Student's t distribution
+        return regularizedIncompleteBeta(degreesOfFreedom / (degreesOfFreedom + t * t), degreesOfFreedom / 2, 0.5);
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+
+        return sum / values.length;
+    }
+
+    private static double variance(double[] values, double mean) {
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+
+        return sum / (values.length - 1);
+    }
+
+    private static double regularizedIncompleteBeta(double x, double a, double b) {
+        if (x <= 0) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1 - x));
+
+        // the continued fraction converges quickly only below this point
+        if (x < (a + 1) / (a + b + 2)) {
+            return front * betaContinuedFraction(x, a, b) / a;
+        }
+
+        return 1 - front * betaContinuedFraction(1 - x, b, a) / b;
+    }
+
+    private static double betaContinuedFraction(double x, double a, double b) {
+        double tiny = 1e-300;
+        double c = 1;
+        double d = 1 - (a + b) * x / (a + 1);
+        d = 1 / (Math.abs(d) < tiny ? tiny : d);
+        double result = d;
+
+        for (int m = 1; m <= 300; m++) {
+            int m2 = 2 * m;
+
+            double numerator = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1 / nonZero(1 + numerator * d, tiny);
+            c = nonZero(1 + numerator / c, tiny);
+            result *= d * c;
+
+            numerator = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1 / nonZero(1 + numerator * d, tiny);
+            c = nonZero(1 + numerator / c, tiny);
+            double delta = d * c;
+            result *= delta;
+
+            if (Math.abs(delta - 1) < 1e-12) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    private static double nonZero(double value, double tiny) {
+        return Math.abs(value) < tiny ? tiny : value;
+    }
+
+    /**
+     * Lanczos approximation of ln(Γ(x)).
+     */
+    private static double logGamma(double x) {
+        double[] coefficients = { 76.18009172947146, -86.50532032941677, 24.01409824083091, -1.231739572450155, 0.1208650973866179e-2,
+                -0.5395239384953e-5 };
+
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.codec.PayloadCodecs;
+import dev.morling.eventful.codec.PayloadCompressors;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+/**
+ * Database size versus restore latency with payload compression, using the 36
+ * field JSON contact payloads of {@link EventStoreBenchmark#main(String[])}.
+ * For the "-dict" variants, a dictionary is trained from the events of the
+ * first customers, and all further events are compressed with it. The
+ * database size is printed after each trial.
+ */
+public class CompressionBenchmark {
+
+    private static final int CUSTOMERS = 5_000;
+    private static final int CONTACTS_PER_CUSTOMER = 50;
+    private static final int TRAINING_CUSTOMERS = 100;
+    private static final int COMPRESSION_THRESHOLD = 256;
+    private static final int DICTIONARY_SIZE = 16 * 1024;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "none", "deflate", "deflate-dict", "zstd", "zstd-dict" })
+        String compression;
+
+        SqliteEventStore eventStore;
+        Projector projector;
+        CustomerEventHandler handler;
+        UUID[] ids;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            SqliteEventStoreOptions.Builder options = SqliteEventStoreOptions.builder();
+            boolean dictionary = compression.endsWith("-dict");
+
+            if (!compression.equals("none")) {
+                options.compression(PayloadCompressors.forName(compression.replace("-dict", "")), COMPRESSION_THRESHOLD);
+            }
+
+            eventStore = new SqliteEventStore(options.build());
+            eventStore.initialize("customer");
+            projector = new Projector();
+            handler = new CustomerEventHandler();
+            random = new Random(42);
+
+            ids = new UUID[CUSTOMERS];
+            Future<Void> result = null;
+            for (int i = 0; i < CUSTOMERS; i++) {
+                ids[i] = UUID.randomUUID();
+
+                List<Event> events = new ArrayList<>(CONTACTS_PER_CUSTOMER + 1);
+                events.add(new Event("created", ids[i], 1, PayloadCodecs.JSON, ContactPayloads.created(i + "_ACME, Inc.")));
+                for (int j = 0; j < CONTACTS_PER_CUSTOMER; j++) {
+                    events.add(new Event("contact-person-added", ids[i], j + 2, PayloadCodecs.JSON, ContactPayloads.contact(j)));
+                }
+
+                result = eventStore.persistAll("customer", events);
+
+                if (dictionary && i == TRAINING_CUSTOMERS - 1) {
+                    result.get();
+                    eventStore.trainCompressionDictionary("customer", TRAINING_CUSTOMERS * (CONTACTS_PER_CUSTOMER + 1), DICTIONARY_SIZE);
+                }
+            }
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            eventStore.close();
+            System.out.printf("%nDatabase size with compression %s: %.1f MB%n", compression, Files.size(Path.of("test.db")) / 1024.0 / 1024.0);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Customer restore(StoreState state) {
+        List<Event> events = state.eventStore.events("customer", state.ids[state.random.nextInt(CUSTOMERS)]);
+        return state.projector.restore(events, state.handler);
+    }
+}
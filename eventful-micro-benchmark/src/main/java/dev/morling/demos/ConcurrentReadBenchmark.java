@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+/**
+ * Read throughput with an increasing number of reader threads, with a single
+ * read connection and with a pool of read connections.
+ */
+public class ConcurrentReadBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+    private static final int CONTACTS_PER_CUSTOMER = 50;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "1", "8" })
+        int readConnections;
+
+        SqliteEventStore eventStore;
+        UUID[] ids;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder().readConnections(readConnections).build());
+            eventStore.initialize("customer");
+
+            ids = new UUID[CUSTOMERS];
+            Future<Void> result = null;
+            for (int i = 0; i < CUSTOMERS; i++) {
+                ids[i] = UUID.randomUUID();
+                result = eventStore.persist("customer", new Event("created", ids[i], 1, "{ \"name\" : \"" + i + "_ACME, Inc.\" }"));
+
+                for (int j = 0; j < CONTACTS_PER_CUSTOMER; j++) {
+                    result = eventStore.persist("customer", new Event("contact-person-added", ids[i], j + 2,
+                            "{ \"email\" : \"contact-" + j + "@acme.com\", \"name\" : \"Contact " + j + "\" }"));
+                }
+            }
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(1)
+    public List<Event> read1(StoreState state) {
+        return read(state);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(2)
+    public List<Event> read2(StoreState state) {
+        return read(state);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public List<Event> read4(StoreState state) {
+        return read(state);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(8)
+    public List<Event> read8(StoreState state) {
+        return read(state);
+    }
+
+    private List<Event> read(StoreState state) {
+        return state.eventStore.events("customer", state.ids[ThreadLocalRandom.current().nextInt(CUSTOMERS)]);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * Write throughput when a share of the written events conflicts with an
+ * existing event (same aggregate and version). Events are submitted without
+ * waiting, so they end up in large batches together with the conflicting ones.
+ */
+public class ConflictRateBenchmark {
+
+    private static final int EVENTS = 20_000;
+    private static final int EXISTING_CUSTOMERS = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "0.001", "0.01", "0.1" })
+        double conflictRate;
+
+        SqliteEventStore eventStore;
+        UUID[] existingIds;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = new SqliteEventStore();
+            eventStore.initialize("customer");
+            random = new Random(42);
+
+            existingIds = new UUID[EXISTING_CUSTOMERS];
+            Future<Void> result = null;
+            for (int i = 0; i < EXISTING_CUSTOMERS; i++) {
+                existingIds[i] = UUID.randomUUID();
+                result = eventStore.persist("customer", new Event("created", existingIds[i], 1, "{ \"name\" : \"ACME, Inc.\" }"));
+            }
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(EVENTS)
+    public void persistWithConflicts(StoreState state, Blackhole blackhole) throws Exception {
+        List<Future<Void>> results = new ArrayList<>(EVENTS);
+
+        for (int i = 0; i < EVENTS; i++) {
+            UUID id = state.random.nextDouble() < state.conflictRate ? state.existingIds[state.random.nextInt(EXISTING_CUSTOMERS)] : UUID.randomUUID();
+            results.add(state.eventStore.persist("customer", new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }")));
+        }
+
+        int failed = 0;
+        for (Future<Void> result : results) {
+            try {
+                result.get();
+            }
+            catch (ExecutionException e) {
+                failed++;
+            }
+        }
+
+        blackhole.consume(failed);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dev.morling.eventful.codec.PayloadCodec;
+import dev.morling.eventful.codec.PayloadCodecs;
+import dev.morling.eventful.codec.PayloadSchema;
+import dev.morling.eventful.codec.SchemaPayloadCodec;
+
+/**
+ * The payloads of the customer events used by the benchmarks, with schemas for
+ * the schema-based codec. Contact payloads have 36 fields.
+ */
+public class ContactPayloads {
+
+    private static final int CONTACT_FIELD_PAIRS = 18;
+
+    private static final SchemaPayloadCodec SCHEMA_CODEC = new SchemaPayloadCodec(Map.of(
+            "created", PayloadSchema.of(PayloadSchema.string("name")),
+            "contact-person-added", contactSchema()));
+
+    static {
+        PayloadCodecs.register(SCHEMA_CODEC);
+    }
+
+    private ContactPayloads() {
+    }
+
+    /**
+     * Returns the codec with the given name, one of "json", "cbor", "smile" or
+     * "schema".
+     */
+    public static PayloadCodec codec(String name) {
+        return name.equals("schema") ? SCHEMA_CODEC : PayloadCodecs.forName(name);
+    }
+
+    public static Map<String, Object> created(String name) {
+        return Map.of("name", name);
+    }
+
+    public static Map<String, Object> contact(int index) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+
+        payload.put("email", "bobby" + index + "@acme.com");
+        payload.put("name", "Bobby" + index);
+
+        for (int i = 2; i <= CONTACT_FIELD_PAIRS; i++) {
+            payload.put("email" + i, "bobby" + index + "@acme.com");
+            payload.put("name" + i, "Bobby" + index);
+        }
+
+        return payload;
+    }
+
+    private static PayloadSchema contactSchema() {
+        List<PayloadSchema.Field> fields = new ArrayList<>();
+
+        fields.add(PayloadSchema.string("email"));
+        fields.add(PayloadSchema.string("name"));
+
+        for (int i = 2; i <= CONTACT_FIELD_PAIRS; i++) {
+            fields.add(PayloadSchema.string("email" + i));
+            fields.add(PayloadSchema.string("name" + i));
+        }
+
+        return new PayloadSchema(fields);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures the HTTP request latency of the CRM example's customer endpoints
+ * when blocking a worker thread ({@code /blocking/customer}), when blocking a
+ * virtual thread ({@code /vt/customer}) and when returning a {@code Uni} on the
+ * event loop ({@code /customer}). Requires a running CRM application, by
+ * default at {@code http://localhost:8080}; set the system property
+ * {@code crm.url} for another address, e.g. {@code -jvmArgs -Dcrm.url=...}.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CrmLatencyBenchmark {
+
+    private static final int CUSTOMERS = 100;
+
+    @State(Scope.Benchmark)
+    public static class ClientState {
+
+        @Param({ "/blocking/customer", "/vt/customer", "/customer" })
+        String path;
+
+        HttpClient client;
+        String url;
+        String[] customerIds;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            client = HttpClient.newHttpClient();
+            url = System.getProperty("crm.url", "http://localhost:8080");
+            customerIds = new String[CUSTOMERS];
+
+            ObjectMapper mapper = new ObjectMapper();
+            for (int i = 0; i < CUSTOMERS; i++) {
+                HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(url + path))
+                        .header("Content-Type", "application/json")
+                        .POST(BodyPublishers.ofString("{ \"name\" : \"Customer %s\" }".formatted(i)))
+                        .build(), BodyHandlers.ofString());
+
+                customerIds[i] = mapper.readTree(response.body()).get("id").asText();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+
+        SplittableRandom random = new SplittableRandom();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int getCustomerLowLoad(ClientState client, ThreadState thread) throws Exception {
+        return getCustomer(client, thread);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public int getCustomerHighLoad(ClientState client, ThreadState thread) throws Exception {
+        return getCustomer(client, thread);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int createCustomer(ClientState client) throws Exception {
+        return client.client.send(HttpRequest.newBuilder(URI.create(client.url + client.path))
+                .header("Content-Type", "application/json")
+                .POST(BodyPublishers.ofString("{ \"name\" : \"ACME, Inc.\" }"))
+                .build(), BodyHandlers.discarding()).statusCode();
+    }
+
+    private int getCustomer(ClientState client, ThreadState thread) throws Exception {
+        String id = client.customerIds[thread.random.nextInt(CUSTOMERS)];
+
+        return client.client.send(HttpRequest.newBuilder(URI.create(client.url + client.path + "/" + id)).GET().build(), BodyHandlers.discarding())
+                .statusCode();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import dev.morling.eventful.store.Histogram;
+
+/**
+ * Compares the request throughput and latency of the CRM example's customer
+ * endpoints on worker threads ({@code /blocking/customer}), on virtual threads
+ * ({@code /vt/customer}) and on the event loop ({@code /customer}) with many
+ * concurrent clients. Each client sends its
+ * next request as soon as the previous one has completed; 90% of the requests
+ * load a customer, the others add a contact person to it.
+ * <p>
+ * Start the CRM application first (on Java 19, with {@code --enable-preview}),
+ * then run: {@code java -cp benchmarks.jar dev.morling.demos.CrmLoadTest
+ * [--url http://localhost:8080] [--clients 10000] [--customers 1000]
+ * [--warmup 10] [--duration 30]}, with durations in seconds. Many clients
+ * need a raised limit of open files ({@code ulimit -n}) on both sides.
+ */
+public class CrmLoadTest {
+
+    private static final List<String> PATHS = List.of("/blocking/customer", "/vt/customer", "/customer");
+
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final String url;
+    private final int clients;
+    private final List<String> customerIds;
+
+    private volatile boolean recording;
+    private volatile long deadline;
+    private final Histogram latencies;
+    private final LongAdder requests;
+    private final LongAdder errors;
+
+    CrmLoadTest(String url, int clients) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        this.mapper = new ObjectMapper();
+        this.url = url;
+        this.clients = clients;
+        this.customerIds = new ArrayList<>();
+        this.latencies = new Histogram(Runtime.getRuntime().availableProcessors());
+        this.requests = new LongAdder();
+        this.errors = new LongAdder();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080";
+        int clients = 10_000;
+        int customers = 1_000;
+        int warmup = 10;
+        int duration = 30;
+
+        for (int i = 0; i < args.length - 1; i += 2) {
+            switch (args[i]) {
+                case "--url" -> url = args[i + 1];
+                case "--clients" -> clients = Integer.parseInt(args[i + 1]);
+                case "--customers" -> customers = Integer.parseInt(args[i + 1]);
+                case "--warmup" -> warmup = Integer.parseInt(args[i + 1]);
+                case "--duration" -> duration = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        CrmLoadTest loadTest = new CrmLoadTest(url, clients);
+        loadTest.createCustomers(customers);
+
+        System.out.printf("%-18s %8s %12s %8s %10s %10s %10s %10s%n", "Path", "Clients", "Requests/s", "Errors", "p50 ms", "p99 ms", "p99.9 ms",
+                "max ms");
+
+        for (String path : PATHS) {
+            loadTest.run(path, warmup, false);
+            loadTest.run(path, duration, true);
+            loadTest.report(path, duration);
+        }
+    }
+
+    private void createCustomers(int customers) throws Exception {
+        for (int i = 0; i < customers; i++) {
+            HttpResponse<String> response = client.send(post("/customer", "{ \"name\" : \"Customer %s\" }".formatted(i)), BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Couldn't create customer: " + response.statusCode() + " " + response.body());
+            }
+
+            customerIds.add(mapper.readTree(response.body()).get("id").asText());
+        }
+    }
+
+    private void run(String path, int seconds, boolean record) {
+        latencies.reset();
+        requests.reset();
+        errors.reset();
+        recording = record;
+        deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        CompletableFuture<?>[] loops = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            loops[i] = loop(path, new SplittableRandom(i));
+        }
+
+        CompletableFuture.allOf(loops).join();
+    }
+
+    /**
+     * Sends requests one after another until the deadline has passed.
+     */
+    private CompletableFuture<Void> loop(String path, SplittableRandom random) {
+        if (System.nanoTime() >= deadline) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String id = customerIds.get(random.nextInt(customerIds.size()));
+        HttpRequest request = random.nextInt(10) == 0
+                ? post(path + "/" + id + "/contact", "{ \"email\" : \"bob-%s@acme.com\", \"name\" : \"Bob\" }".formatted(random.nextInt()))
+                : HttpRequest.newBuilder(URI.create(url + path + "/" + id)).GET().build();
+
+        long start = System.nanoTime();
+
+        return client.sendAsync(request, BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (recording) {
+                        latencies.record(System.nanoTime() - start);
+                        requests.increment();
+
+                        if (error != null || response.statusCode() != 200) {
+                            errors.increment();
+                        }
+                    }
+                    return null;
+                })
+                .thenCompose(ignored -> loop(path, random));
+    }
+
+    private void report(String path, int seconds) {
+        Histogram.Snapshot snapshot = latencies.snapshot();
+        double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+
+        System.out.printf("%-18s %8d %12.1f %8d %10.2f %10.2f %10.2f %10.2f%n", path, clients, requests.sum() / (double) seconds, errors.sum(),
+                snapshot.valueAt(0.5) / nanosPerMilli, snapshot.valueAt(0.99) / nanosPerMilli, snapshot.valueAt(0.999) / nanosPerMilli,
+                snapshot.max() / nanosPerMilli);
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(BodyPublishers.ofString(body))
+                .build();
+    }
+}
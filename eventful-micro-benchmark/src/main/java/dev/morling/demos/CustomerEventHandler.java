@@ -2,51 +2,36 @@ package dev.morling.demos;
 
 import java.util.ArrayList;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
+import dev.morling.eventful.client.DispatchingEventHandler;
 import dev.morling.eventful.client.EventHandler;
+import dev.morling.eventful.client.FieldBinder;
 import dev.morling.eventful.store.Event;
 
 public class CustomerEventHandler implements EventHandler<Customer> {
 
-    private ObjectMapper mapper;
+    private static final FieldBinder<String> NAME = FieldBinder.fields("name")
+            .to(values -> values.string(0));
 
-    public CustomerEventHandler() {
-        this.mapper = new ObjectMapper();
-    }
+    private static final FieldBinder<ContactPerson> CONTACT_PERSON = FieldBinder.fields("email", "name")
+            .to(values -> new ContactPerson(values.string(0), values.string(1)));
+
+    private static final EventHandler<Customer> HANDLER = DispatchingEventHandler.<Customer> builder("customer")
+            .on("created", NAME, CustomerEventHandler::createCustomer)
+            .on("contact-person-added", CONTACT_PERSON, CustomerEventHandler::addContactPerson)
+            .build();
 
     @Override
     public Customer apply(Customer aggregate, Event event) {
-        switch(event.type()) {
-            case "created" : return createCustomer(event);
-            case "contact-person-added" : return addContactPerson(aggregate, event);
-            default: throw new IllegalArgumentException("Unsupported event type %s for stream of type %s".formatted(event.type(), "customer"));
-        }
-
+        return HANDLER.apply(aggregate, event);
     }
 
-    private Customer createCustomer(Event event) {
-        try {
-            JsonNode payload = mapper.readTree(event.payload());
-            return new Customer(event.aggregateId(), 1, payload.get("name").asText(), new ArrayList<>());
-        }
-        catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Couldn't deserialize event %s".formatted(event.id()), e);
-        }
+    private static Customer createCustomer(Customer aggregate, Event event, String name) {
+        return new Customer(event.aggregateId(), 1, name, new ArrayList<>());
     }
 
-    private Customer addContactPerson(Customer aggregate, Event event) {
-        try {
-            JsonNode payload = mapper.readTree(event.payload());
-            aggregate.getContactPersons().add(new ContactPerson(payload.get("email").asText(), payload.get("name").asText()));
-            aggregate.incrementVersion();
-            return aggregate;
-        }
-        catch (JsonProcessingException e) {
-            throw new IllegalArgumentException("Couldn't deserialize event %s".formatted(event.id()), e);
-        }
+    private static Customer addContactPerson(Customer aggregate, Event event, ContactPerson contactPerson) {
+        aggregate.getContactPersons().add(contactPerson);
+        aggregate.incrementVersion();
+        return aggregate;
     }
-
 }
@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.morling.eventful.store.Durability;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+/**
+ * Write throughput per durability tier, with group commits ("bulkInsert")
+ * and with one commit per event ("syncInsert"), where the cost of syncing is
+ * not amortized across events. "syncInsertRequiringFull" requests
+ * {@link Durability#FULL} for each event, regardless of the configured tier.
+ */
+public class DurabilityBenchmark {
+
+    private static final int CUSTOMERS = 20_000;
+    private static final int SYNC_CUSTOMERS = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class WriteState {
+
+        @Param({ "NONE", "NORMAL", "FULL" })
+        Durability durability;
+
+        SqliteEventStore eventStore;
+        String[] values;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            values = new Random().ints(CUSTOMERS, 0, 100_000)
+                    .mapToObj(i -> i + "_ACME, Inc.")
+                    .toArray(String[]::new);
+
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                    .durability(durability)
+                    .build());
+            eventStore.initialize("customer_write");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS)
+    public void bulkInsert(WriteState state, Blackhole blackhole) throws Exception {
+        Future<Void> result = null;
+        for (String customer : state.values) {
+            result = state.eventStore.persist("customer_write", new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"" + customer + "\" }"));
+        }
+
+        result.get();
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(SYNC_CUSTOMERS)
+    public void syncInsert(WriteState state, Blackhole blackhole) throws Exception {
+        for (int i = 0; i < SYNC_CUSTOMERS; i++) {
+            Event event = new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"" + state.values[i] + "\" }");
+            blackhole.consume(state.eventStore.persist("customer_write", event).get());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(SYNC_CUSTOMERS)
+    public void syncInsertRequiringFull(WriteState state, Blackhole blackhole) throws Exception {
+        for (int i = 0; i < SYNC_CUSTOMERS; i++) {
+            Event event = new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"" + state.values[i] + "\" }");
+            blackhole.consume(state.eventStore.persist("customer_write", event, Durability.FULL).get());
+        }
+    }
+}
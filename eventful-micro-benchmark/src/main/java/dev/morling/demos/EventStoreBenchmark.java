@@ -15,6 +15,9 @@
  */
 package dev.morling.demos;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
@@ -25,25 +28,38 @@ import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Level;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.infra.Blackhole;
 
+import dev.morling.eventful.client.CachingAggregateRepository;
+import dev.morling.eventful.client.JacksonSnapshotSerializer;
 import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.client.Snapshotter;
+import dev.morling.eventful.codec.PayloadCodec;
 import dev.morling.eventful.store.Event;
 import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+import dev.morling.eventful.store.SqliteSnapshotStore;
 
 public class EventStoreBenchmark {
 
     private static final int CUSTOMERS = 20_000;
     private static final int CONTACTS_PER_CUSTOMER = 50;
+    private static final int SNAPSHOT_FREQUENCY = 10;
+    // number of events after the snapshot of each customer in "customer_read"
+    private static final int EVENTS_AFTER_SNAPSHOT = 5;
 
     @State(Scope.Benchmark)
     public static class BenchmarkState {
 
         SqliteEventStore eventStore;
+        SqliteSnapshotStore snapshotStore;
+        Snapshotter<Customer> snapshotter;
+        CachingAggregateRepository<Customer> repository;
         String[] values;
         UUID[] ids;
 
@@ -63,17 +79,64 @@ public class EventStoreBenchmark {
             for(int i = 0; i < CUSTOMERS; i++) {
                 UUID customerId = UUID.randomUUID();
                 ids[i] = customerId;
-                result = eventStore.persist("customer_read", new Event("created", customerId, 1, "{ \"name\" : \"" + values[i] + "\" }"));
+
+                List<Event> events = new ArrayList<>(CONTACTS_PER_CUSTOMER + 1);
+                events.add(new Event("created", customerId, 1, "{ \"name\" : \"" + values[i] + "\" }"));
 
                 for(int j = 0; j < CONTACTS_PER_CUSTOMER; j++) {
-                    result = eventStore.persist("customer_read", new Event("contact-person-added", customerId, j + 2, "{ \"email\" : \"bobby" + j + "@acme.com\", \"name\" : \"Bobby" + j + "\" }"));
+                    events.add(new Event("contact-person-added", customerId, j + 2, "{ \"email\" : \"bobby" + j + "@acme.com\", \"name\" : \"Bobby" + j + "\" }"));
                 }
+
+                result = eventStore.persistAll("customer_read", events);
             }
 
             result.get();
+
+            snapshotStore = new SqliteSnapshotStore(eventStore);
+            snapshotStore.initialize("customer_read");
+            snapshotter = new Snapshotter<>(snapshotStore, "customer_read", new JacksonSnapshotSerializer<>(Customer.class), SNAPSHOT_FREQUENCY);
+
+            for (UUID id : ids) {
+                List<Event> events = eventStore.events("customer_read", id);
+                List<Event> beforeSnapshot = events.subList(0, events.size() - EVENTS_AFTER_SNAPSHOT);
+                Customer customer = new Projector().restore(beforeSnapshot, new CustomerEventHandler());
+                snapshotter.snapshot(id, customer.getVersion(), customer);
+            }
+
+            repository = new CachingAggregateRepository<>(eventStore, "customer_read", new CustomerEventHandler(), Customer::copy, CUSTOMERS);
         }
 
         @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.println(repository.stats());
+            snapshotStore.close();
+            eventStore.close();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WriteState {
+
+        // 0 disables the in-memory version index
+        @Param({ "0", "4000000" })
+        int versionIndexSize;
+
+        SqliteEventStore eventStore;
+        String[] values;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            values = new Random().ints(CUSTOMERS, 0, 100_000)
+                    .mapToObj(i -> i + "_ACME, Inc.")
+                    .toArray(String[]::new);
+
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                    .versionIndexSize(versionIndexSize)
+                    .build());
+            eventStore.initialize("customer_write");
+        }
+
+        @TearDown(Level.Iteration)
         public void tearDown() {
             eventStore.close();
         }
@@ -93,7 +156,7 @@ public class EventStoreBenchmark {
     @Benchmark
     @BenchmarkMode(Mode.Throughput)
     @OperationsPerInvocation(CUSTOMERS)
-    public void bulkInsert(BenchmarkState state, Blackhole blackhole) throws Exception {
+    public void bulkInsert(WriteState state, Blackhole blackhole) throws Exception {
         String[] customers = state.values;
         Future<Void> result = null;
         for (String customer : customers) {
@@ -115,7 +178,33 @@ public class EventStoreBenchmark {
         }
     }
 
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS)
+    public void readFromSnapshot(BenchmarkState state, Blackhole blackhole) throws Exception {
+        for(int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Projector().restore(state.eventStore, state.ids[i], new CustomerEventHandler(), state.snapshotter);
+            blackhole.consume(customer);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS)
+    public void readCached(BenchmarkState state, Blackhole blackhole) throws Exception {
+        for(int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = state.repository.load(state.ids[i]);
+            blackhole.consume(customer);
+        }
+    }
+
+    /**
+     * Writes and reads 100k customers with 50 contacts each, with the payload
+     * codec given as first argument ("json" by default, "cbor", "smile" or
+     * "schema"), and prints the resulting database size.
+     */
     public static void main(String[] args) throws Exception {
+        PayloadCodec codec = ContactPayloads.codec(args.length > 0 ? args[0] : "json");
         SqliteEventStore eventStore = new SqliteEventStore();
         eventStore.initialize("customer");
         int COUNT = 100_000;
@@ -127,49 +216,10 @@ public class EventStoreBenchmark {
             long before = System.nanoTime();
             UUID customerId = UUID.randomUUID();
             ids[i] = customerId;
-            result = eventStore.persist("customer", new Event("created", customerId, 1, "{ \"name\" : \"" + i + "_ACME, Inc." + "\" }"));
+            result = eventStore.persist("customer", new Event("created", customerId, 1, codec, ContactPayloads.created(i + "_ACME, Inc.")));
 
             for(int j = 0; j < 50; j++) {
-                result = eventStore.persist("customer", new Event("contact-person-added", customerId, j + 2, """
-                        {
-                          "email" : "bobby%1$s@acme.com",
-                          "name" : "Bobby%1$s",
-                          "email2" : "bobby%1$s@acme.com",
-                          "name2" : "Bobby%1$s",
-                          "email3" : "bobby%1$s@acme.com",
-                          "name3" : "Bobby%1$s",
-                          "email4" : "bobby%1$s@acme.com",
-                          "name4" : "Bobby%1$s",
-                          "email5" : "bobby%1$s@acme.com",
-                          "name5" : "Bobby%1$s",
-                          "email6" : "bobby%1$s@acme.com",
-                          "name6" : "Bobby%1$s",
-                          "email7" : "bobby%1$s@acme.com",
-                          "name7" : "Bobby%1$s",
-                          "email8" : "bobby%1$s@acme.com",
-                          "name8" : "Bobby%1$s",
-                          "email9" : "bobby%1$s@acme.com",
-                          "name9" : "Bobby%1$s",
-                          "email10" : "bobby%1$s@acme.com",
-                          "name10" : "Bobby%1$s",
-                          "email11" : "bobby%1$s@acme.com",
-                          "name11" : "Bobby%1$s",
-                          "email12" : "bobby%1$s@acme.com",
-                          "name12" : "Bobby%1$s",
-                          "email13" : "bobby%1$s@acme.com",
-                          "name13" : "Bobby%1$s",
-                          "email14" : "bobby%1$s@acme.com",
-                          "name14" : "Bobby%1$s",
-                          "email15" : "bobby%1$s@acme.com",
-                          "name15" : "Bobby%1$s",
-                          "email16" : "bobby%1$s@acme.com",
-                          "name16" : "Bobby%1$s",
-                          "email17" : "bobby%1$s@acme.com",
-                          "name17" : "Bobby%1$s",
-                          "email18" : "bobby%1$s@acme.com",
-                          "name18" : "Bobby%1$s"
-                        }
-                        """.formatted(j)));
+                result = eventStore.persist("customer", new Event("contact-person-added", customerId, j + 2, codec, ContactPayloads.contact(j)));
             }
 
 
@@ -195,5 +245,7 @@ public class EventStoreBenchmark {
 
 
         eventStore.close();
+
+        System.out.println("Database size with codec " + codec.name() + ": " + Files.size(Path.of("test.db")) / 1024 / 1024 + " MB");
     }
 }
@@ -0,0 +1,83 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.GroupCommitPolicy;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+/**
+ * Write throughput of 16 concurrent producers, each waiting for its commit,
+ * under different group commit policies. The batch size and commit duration
+ * histograms of the writer are printed after each trial.
+ */
+public class GroupCommitBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "unbounded", "fixed-64", "fixed-64-linger-1ms", "adaptive-5ms" })
+        String policy;
+
+        SqliteEventStore eventStore;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            GroupCommitPolicy groupCommitPolicy = switch (policy) {
+                case "unbounded" -> GroupCommitPolicy.fixed(32768, Duration.ZERO);
+                case "fixed-64" -> GroupCommitPolicy.fixed(64, Duration.ZERO);
+                case "fixed-64-linger-1ms" -> GroupCommitPolicy.fixed(64, Duration.ofMillis(1));
+                case "adaptive-5ms" -> GroupCommitPolicy.adaptive(16, 8192, Duration.ofMillis(1), Duration.ofMillis(5));
+                default -> throw new IllegalArgumentException("Unknown policy: " + policy);
+            };
+
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                    .groupCommitPolicy(groupCommitPolicy)
+                    .build());
+            eventStore.initialize("customer");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            System.out.println();
+            System.out.println("Batch sizes: " + eventStore.writerStatistics().batchSizes());
+            System.out.println("Commit durations (ns): " + eventStore.writerStatistics().commitDurations());
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(16)
+    public void persist(StoreState state) throws Exception {
+        state.eventStore.persist("customer", new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"ACME, Inc.\" }")).get();
+    }
+}
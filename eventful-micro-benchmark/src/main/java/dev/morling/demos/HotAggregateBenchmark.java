@@ -0,0 +1,142 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import dev.morling.eventful.client.CommandProcessor;
+import dev.morling.eventful.client.CommandResult;
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.store.DuplicateVersionException;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.InconsistentVersionException;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * Concurrent commands against a few hot aggregates, either by reading and
+ * replaying each aggregate before persisting the command's event, which fails
+ * if another command for the same aggregate got persisted in between, or via a
+ * {@link CommandProcessor}, which keeps the aggregates in memory and handles the
+ * commands of one aggregate one after another. Failed commands are reported
+ * as the {@code conflicts} counter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Threads(8)
+public class HotAggregateBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "1", "16" })
+        int hotAggregates;
+
+        SqliteEventStore eventStore;
+        CommandProcessor<Customer> processor;
+        UUID[] ids;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = new SqliteEventStore();
+            eventStore.initialize("customer");
+            processor = new CommandProcessor<>(eventStore, "customer", new CustomerEventHandler(), Customer::copy, 4, 1_000);
+
+            ids = new UUID[hotAggregates];
+            for (int i = 0; i < hotAggregates; i++) {
+                CommandResult created = Customer.handle(new Customer.CreateCustomerCommand("Customer " + i));
+                ids[i] = created.event().aggregateId();
+                eventStore.persist("customer", created.event()).get();
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            processor.close();
+            eventStore.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class ClientState {
+
+        public long conflicts;
+
+        SplittableRandom random = new SplittableRandom();
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    public void readReplayWrite(StoreState store, ClientState client) throws Exception {
+        UUID id = store.ids[client.random.nextInt(store.hotAggregates)];
+
+        List<Event> events = store.eventStore.events("customer", id);
+        Customer customer = new Projector().restore(events, new CustomerEventHandler());
+
+        try {
+            store.eventStore.persist("customer", contactPersonAdded(customer).event()).get();
+        }
+        catch (ExecutionException e) {
+            if (!(e.getCause() instanceof DuplicateVersionException || e.getCause() instanceof InconsistentVersionException)) {
+                throw e;
+            }
+            client.conflicts++;
+        }
+    }
+
+    @Benchmark
+    public Customer commandProcessor(StoreState store, ClientState client) throws Exception {
+        UUID id = store.ids[client.random.nextInt(store.hotAggregates)];
+
+        try {
+            return store.processor.submit(id, HotAggregateBenchmark::contactPersonAdded).get();
+        }
+        catch (ExecutionException e) {
+            client.conflicts++;
+            return null;
+        }
+    }
+
+    /**
+     * Adds a contact person without the limit of ten per customer, so that hot
+     * aggregates can take any number of commands; only the version is
+     * advanced, keeping the in-memory aggregate small.
+     */
+    private static CommandResult contactPersonAdded(Customer customer) {
+        customer.incrementVersion();
+
+        return new CommandResult(new Event("contact-person-added", customer.getId(), customer.getVersion(),
+                "{ \"email\" : \"bob@acme.com\", \"name\" : \"Bob\" }"));
+    }
+}
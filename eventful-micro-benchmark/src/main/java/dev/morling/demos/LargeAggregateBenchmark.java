@@ -0,0 +1,96 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.morling.eventful.client.EventHandler;
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * Restores an aggregate with 100k events, either from a materialized list or
+ * by folding the events while streaming them from the database. Run with
+ * {@code -prof gc} for comparing allocations; the heap is limited, so that
+ * holding all the events in memory is reflected by the GC activity.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class LargeAggregateBenchmark {
+
+    private static final int EVENTS = 100_000;
+
+    /**
+     * The aggregate only keeps track of its version and data size, so that
+     * its own footprint doesn't distort the measurement.
+     */
+    record Totals(long version, long dataSize) {
+    }
+
+    private static final EventHandler<Totals> TOTALS_HANDLER = (totals, event) -> new Totals(event.version(),
+            (totals != null ? totals.dataSize() : 0) + event.data().length);
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        SqliteEventStore eventStore;
+        Projector projector;
+        UUID id;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = new SqliteEventStore();
+            eventStore.initialize("customer");
+            projector = new Projector();
+            id = UUID.randomUUID();
+
+            Future<Void> result = eventStore.persist("customer", new Event("created", id, 1, "{ \"name\" : \"ACME, Inc.\" }"));
+            for (int i = 2; i <= EVENTS; i++) {
+                result = eventStore.persist("customer", new Event("contact-person-added", id, i,
+                        "{ \"email\" : \"contact-" + i + "@acme.com\", \"name\" : \"Contact " + i + "\" }"));
+            }
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Totals restoreMaterialized(StoreState state) {
+        return state.projector.restore(state.eventStore.events("customer", state.id), TOTALS_HANDLER);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Totals restoreStreaming(StoreState state) {
+        return state.projector.restore(state.eventStore, "customer", state.id, TOTALS_HANDLER);
+    }
+}
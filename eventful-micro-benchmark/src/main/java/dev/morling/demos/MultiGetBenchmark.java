@@ -0,0 +1,143 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * Restores a list of customers, e.g. for a dashboard, either with one read per
+ * customer or with one multi-aggregate read for all of them. The store holds
+ * 20k customers with five events each; each invocation restores a random
+ * selection of the given size.
+ */
+@Fork(1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MultiGetBenchmark {
+
+    private static final int CUSTOMERS = 20_000;
+    private static final int CONTACTS = 4;
+    private static final int SELECTIONS = 16;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "100", "1000", "10000" })
+        int ids;
+
+        SqliteEventStore eventStore;
+        Projector projector;
+        CustomerEventHandler eventHandler;
+        List<List<UUID>> selections;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = new SqliteEventStore();
+            eventStore.initialize("customer");
+            projector = new Projector();
+            eventHandler = new CustomerEventHandler();
+            List<UUID> customerIds = new ArrayList<>(CUSTOMERS);
+
+            Future<Void> result = null;
+            for (int i = 0; i < CUSTOMERS; i++) {
+                UUID id = UUID.randomUUID();
+                customerIds.add(id);
+
+                List<Event> events = new ArrayList<>();
+                events.add(new Event("created", id, 1, "{ \"name\" : \"Customer " + i + "\" }"));
+                for (int j = 0; j < CONTACTS; j++) {
+                    events.add(new Event("contact-person-added", id, j + 2,
+                            "{ \"email\" : \"contact-" + j + "@customer-" + i + ".com\", \"name\" : \"Contact " + j + "\" }"));
+                }
+
+                result = eventStore.persistAll("customer", events);
+            }
+            result.get();
+
+            Random random = new Random(42);
+            selections = new ArrayList<>(SELECTIONS);
+            for (int i = 0; i < SELECTIONS; i++) {
+                Collections.shuffle(customerIds, random);
+                selections.add(new ArrayList<>(customerIds.subList(0, ids)));
+            }
+        }
+
+        List<UUID> selection() {
+            return selections.get(next++ % SELECTIONS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    public List<Customer> perAggregate(StoreState state) {
+        List<Customer> customers = new ArrayList<>(state.ids);
+
+        for (UUID id : state.selection()) {
+            customers.add(state.projector.restore(state.eventStore.events("customer", id), state.eventHandler));
+        }
+
+        return customers;
+    }
+
+    @Benchmark
+    public Map<UUID, Customer> multiGet(StoreState state) {
+        return state.projector.restoreAll(state.eventStore, "customer", state.selection(), state.eventHandler);
+    }
+
+    @Benchmark
+    public int readPerAggregate(StoreState state) {
+        int events = 0;
+
+        for (UUID id : state.selection()) {
+            events += state.eventStore.events("customer", id).size();
+        }
+
+        return events;
+    }
+
+    @Benchmark
+    public Map<UUID, List<Event>> readMultiGet(StoreState state) {
+        return state.eventStore.events("customer", state.selection());
+    }
+}
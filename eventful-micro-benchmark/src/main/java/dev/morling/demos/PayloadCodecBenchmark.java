@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.codec.PayloadCodec;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * Payload size, decoding cost, write throughput and restore latency with the
+ * different payload codecs, using the 36 field contact payloads of
+ * {@link EventStoreBenchmark#main(String[])}.
+ */
+public class PayloadCodecBenchmark {
+
+    private static final int CUSTOMERS = 5_000;
+    private static final int CONTACTS_PER_CUSTOMER = 50;
+    private static final int INSERTS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "json", "cbor", "smile", "schema" })
+        String codecName;
+
+        PayloadCodec codec;
+        SqliteEventStore eventStore;
+        Projector projector;
+        UUID[] ids;
+        Random random;
+        byte[] contactData;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            codec = ContactPayloads.codec(codecName);
+            eventStore = new SqliteEventStore();
+            eventStore.initialize("customer_read");
+            eventStore.initialize("customer_write");
+            projector = new Projector();
+            random = new Random(42);
+
+            contactData = codec.encode("contact-person-added", ContactPayloads.contact(42));
+            System.out.printf("%nSize of contact payload with codec %s: %s bytes%n", codecName, contactData.length);
+
+            ids = new UUID[CUSTOMERS];
+            Future<Void> result = null;
+            for (int i = 0; i < CUSTOMERS; i++) {
+                ids[i] = UUID.randomUUID();
+
+                List<Event> events = new ArrayList<>(CONTACTS_PER_CUSTOMER + 1);
+                events.add(new Event("created", ids[i], 1, codec, ContactPayloads.created(i + "_ACME, Inc.")));
+                for (int j = 0; j < CONTACTS_PER_CUSTOMER; j++) {
+                    events.add(new Event("contact-person-added", ids[i], j + 2, codec, ContactPayloads.contact(j)));
+                }
+
+                result = eventStore.persistAll("customer_read", events);
+            }
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            eventStore.close();
+            System.out.printf("%nDatabase size with codec %s: %.1f MB%n", codecName, Files.size(Path.of("test.db")) / 1024.0 / 1024.0);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public JsonNode decode(StoreState state) {
+        return state.codec.decode("contact-person-added", state.contactData, JsonNode.class);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public Customer restore(StoreState state) {
+        List<Event> events = state.eventStore.events("customer_read", state.ids[state.random.nextInt(CUSTOMERS)]);
+        return state.projector.restore(events, new CustomerEventHandler());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(INSERTS)
+    public void persist(StoreState state) throws Exception {
+        Future<Void> result = null;
+
+        for (int i = 0; i < INSERTS; i++) {
+            result = state.eventStore.persist("customer_write", new Event("contact-person-added", UUID.randomUUID(), 1, state.codec, ContactPayloads.contact(i)));
+        }
+
+        result.get();
+    }
+}
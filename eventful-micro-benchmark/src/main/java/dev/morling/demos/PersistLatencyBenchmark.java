@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+import dev.morling.eventful.store.WaitStrategy;
+
+/**
+ * Measures the latency of {@code persist().get()}, i.e. from enqueueing an
+ * event until its commit has been signalled; percentiles (p50, p99, etc.) are
+ * reported by JMH's sample time mode. The low load variant issues one request
+ * at a time, the high load variant runs 32 concurrent producers.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PersistLatencyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "BLOCKING", "YIELDING", "BUSY_SPIN" })
+        WaitStrategy waitStrategy;
+
+        SqliteEventStore eventStore;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                    .waitStrategy(waitStrategy)
+                    .build());
+            eventStore.initialize("customer");
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void persistLowLoad(StoreState state) throws Exception {
+        persist(state);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void persistHighLoad(StoreState state) throws Exception {
+        persist(state);
+    }
+
+    private void persist(StoreState state) throws Exception {
+        state.eventStore.persist("customer", new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"ACME, Inc.\" }")).get();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.SchemaLayout;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+/**
+ * Insert throughput, read latency and database size with the different schema
+ * layouts. The size of the database file (including the WAL) is printed after
+ * each trial.
+ */
+public class SchemaLayoutBenchmark {
+
+    private static final int CUSTOMERS = 5_000;
+    private static final int CONTACTS_PER_CUSTOMER = 50;
+    private static final int INSERTS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "TEXT", "BINARY", "BINARY_DICTIONARY" })
+        String layout;
+
+        SqliteEventStore eventStore;
+        UUID[] ids;
+        Random random;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = new SqliteEventStore(SqliteEventStoreOptions.builder()
+                    .schemaLayout(layout.startsWith("BINARY") ? SchemaLayout.BINARY : SchemaLayout.TEXT)
+                    .eventTypeDictionary(layout.endsWith("DICTIONARY"))
+                    .build());
+            eventStore.initialize("customer_read");
+            eventStore.initialize("customer_write");
+            random = new Random(42);
+
+            ids = new UUID[CUSTOMERS];
+            Future<Void> result = null;
+            for (int i = 0; i < CUSTOMERS; i++) {
+                ids[i] = UUID.randomUUID();
+                result = eventStore.persist("customer_read", new Event("created", ids[i], 1, "{ \"name\" : \"" + i + "_ACME, Inc.\" }"));
+
+                for (int j = 0; j < CONTACTS_PER_CUSTOMER; j++) {
+                    result = eventStore.persist("customer_read", new Event("contact-person-added", ids[i], j + 2,
+                            "{ \"email\" : \"contact-" + j + "@acme.com\", \"name\" : \"Contact " + j + "\" }"));
+                }
+            }
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            eventStore.close();
+
+            long size = Files.size(Path.of("test.db"));
+            if (Files.exists(Path.of("test.db-wal"))) {
+                size += Files.size(Path.of("test.db-wal"));
+            }
+            System.out.printf("%nDatabase size with layout %s: %.1f MB%n", layout, size / 1024.0 / 1024.0);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(INSERTS)
+    public void insert(StoreState state) throws Exception {
+        Future<Void> result = null;
+
+        for (int i = 0; i < INSERTS; i++) {
+            result = state.eventStore.persist("customer_write", new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"ACME, Inc.\" }"));
+        }
+
+        result.get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    public List<Event> read(StoreState state) {
+        return state.eventStore.events("customer_read", state.ids[state.random.nextInt(CUSTOMERS)]);
+    }
+}
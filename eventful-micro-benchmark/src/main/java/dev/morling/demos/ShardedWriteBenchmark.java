@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.ShardedEventStore;
+import dev.morling.eventful.store.SqliteEventStoreOptions;
+
+/**
+ * Write throughput of {@link ShardedEventStore} with an increasing number of
+ * shards, i.e. of writer threads and databases. As the writers of the shards
+ * run in parallel, the scaling depends on the number of available cores.
+ */
+public class ShardedWriteBenchmark {
+
+    private static final int CUSTOMERS = 20_000;
+    private static final Path DATABASE = SqliteEventStoreOptions.defaults().databasePath();
+
+    @State(Scope.Benchmark)
+    public static class WriteState {
+
+        @Param({ "1", "2", "4", "8" })
+        int shards;
+
+        ShardedEventStore eventStore;
+        String[] values;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            values = new Random().ints(CUSTOMERS, 0, 100_000)
+                    .mapToObj(i -> i + "_ACME, Inc.")
+                    .toArray(String[]::new);
+
+            eventStore = new ShardedEventStore(shards);
+            eventStore.initialize("customer_write");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            eventStore.close();
+
+            for (int i = 0; i < shards; i++) {
+                Path shard = ShardedEventStore.shardPath(DATABASE, i);
+                Files.deleteIfExists(shard);
+                Files.deleteIfExists(Path.of(shard + "-wal"));
+                Files.deleteIfExists(Path.of(shard + "-shm"));
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS)
+    public void bulkInsert(WriteState state, Blackhole blackhole) throws Exception {
+        // the shards are written concurrently, so await the last write of each of them
+        @SuppressWarnings("unchecked")
+        Future<Void>[] results = new Future[state.shards];
+
+        for (String customer : state.values) {
+            UUID customerId = UUID.randomUUID();
+            results[state.eventStore.shardOf(customerId)] = state.eventStore.persist("customer_write", new Event("created", customerId, 1, "{ \"name\" : \"" + customer + "\" }"));
+        }
+
+        awaitAll(results, blackhole);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS * 51)
+    public void batchInsert(WriteState state, Blackhole blackhole) throws Exception {
+        @SuppressWarnings("unchecked")
+        Future<Void>[] results = new Future[state.shards];
+
+        for (String customer : state.values) {
+            UUID customerId = UUID.randomUUID();
+            results[state.eventStore.shardOf(customerId)] = state.eventStore.persistAll("customer_write", StorageEngineBenchmark.customerEvents(customerId, customer));
+        }
+
+        awaitAll(results, blackhole);
+    }
+
+    private static void awaitAll(Future<Void>[] results, Blackhole blackhole) throws Exception {
+        for (Future<Void> result : results) {
+            if (result != null) {
+                blackhole.consume(result.get());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import dev.morling.eventful.client.Projector;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.EventStore;
+import dev.morling.eventful.store.SegmentEventStore;
+import dev.morling.eventful.store.SegmentEventStoreOptions;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * The workloads of {@link EventStoreBenchmark}, side by side on
+ * {@link SqliteEventStore} and {@link SegmentEventStore}.
+ */
+public class StorageEngineBenchmark {
+
+    private static final int CUSTOMERS = 20_000;
+    private static final int CONTACTS_PER_CUSTOMER = 50;
+    private static final Path SEGMENTS = Path.of("segments");
+
+    static EventStore open(String engine) throws IOException {
+        return switch (engine) {
+            case "sqlite" -> new SqliteEventStore();
+            case "segment" -> {
+                deleteSegments();
+                yield new SegmentEventStore(SegmentEventStoreOptions.builder().directory(SEGMENTS).build());
+            }
+            default -> throw new IllegalArgumentException("Unknown engine: " + engine);
+        };
+    }
+
+    static void deleteSegments() throws IOException {
+        if (Files.exists(SEGMENTS)) {
+            try (Stream<Path> files = Files.walk(SEGMENTS)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    static List<Event> customerEvents(UUID customerId, String name) {
+        List<Event> events = new ArrayList<>(CONTACTS_PER_CUSTOMER + 1);
+        events.add(new Event("created", customerId, 1, "{ \"name\" : \"" + name + "\" }"));
+
+        for (int j = 0; j < CONTACTS_PER_CUSTOMER; j++) {
+            events.add(new Event("contact-person-added", customerId, j + 2, "{ \"email\" : \"bobby" + j + "@acme.com\", \"name\" : \"Bobby" + j + "\" }"));
+        }
+
+        return events;
+    }
+
+    @State(Scope.Benchmark)
+    public static class ReadState {
+
+        @Param({ "sqlite", "segment" })
+        String engine;
+
+        EventStore eventStore;
+        UUID[] ids;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = open(engine);
+            eventStore.initialize("customer_read");
+            ids = new UUID[CUSTOMERS];
+
+            Future<Void> result = null;
+            for (int i = 0; i < CUSTOMERS; i++) {
+                ids[i] = UUID.randomUUID();
+                result = eventStore.persistAll("customer_read", customerEvents(ids[i], i + "_ACME, Inc."));
+            }
+
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            eventStore.close();
+            deleteSegments();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WriteState {
+
+        @Param({ "sqlite", "segment" })
+        String engine;
+
+        EventStore eventStore;
+        String[] values;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            values = new Random().ints(CUSTOMERS, 0, 100_000)
+                    .mapToObj(i -> i + "_ACME, Inc.")
+                    .toArray(String[]::new);
+
+            eventStore = open(engine);
+            eventStore.initialize("customer_write");
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            eventStore.close();
+            deleteSegments();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS)
+    public void bulkInsert(WriteState state, Blackhole blackhole) throws Exception {
+        Future<Void> result = null;
+        for (String customer : state.values) {
+            result = state.eventStore.persist("customer_write", new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"" + customer + "\" }"));
+        }
+
+        result.get();
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS * (CONTACTS_PER_CUSTOMER + 1))
+    public void batchInsert(WriteState state, Blackhole blackhole) throws Exception {
+        Future<Void> result = null;
+        for (String customer : state.values) {
+            result = state.eventStore.persistAll("customer_write", customerEvents(UUID.randomUUID(), customer));
+        }
+
+        result.get();
+        blackhole.consume(result);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CUSTOMERS)
+    public void read(ReadState state, Blackhole blackhole) throws Exception {
+        for (int i = 0; i < CUSTOMERS; i++) {
+            List<Event> events = state.eventStore.events("customer_read", state.ids[i]);
+            Customer customer = new Projector().restore(events, new CustomerEventHandler());
+            blackhole.consume(customer);
+        }
+    }
+}
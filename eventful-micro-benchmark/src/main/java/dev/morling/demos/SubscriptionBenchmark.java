@@ -0,0 +1,102 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.LoggedEvent;
+import dev.morling.eventful.store.SqliteEventStore;
+import dev.morling.eventful.store.Subscription;
+
+/**
+ * Write throughput until all the written events have been delivered to the
+ * given number of subscribers, i.e. whether subscriptions keep up with the
+ * writer.
+ */
+public class SubscriptionBenchmark {
+
+    private static final int EVENTS = 20_000;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "0", "1", "4" })
+        int subscribers;
+
+        SqliteEventStore eventStore;
+        List<Subscription> subscriptions;
+        AtomicLong[] delivered;
+        // the position of the latest written event
+        long written;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            eventStore = new SqliteEventStore();
+            eventStore.initialize("customer");
+
+            subscriptions = new ArrayList<>();
+            delivered = new AtomicLong[subscribers];
+
+            for (int i = 0; i < subscribers; i++) {
+                AtomicLong position = new AtomicLong();
+                delivered[i] = position;
+                subscriptions.add(eventStore.subscribeAll(LoggedEvent.POSITION_INIT, events -> position.set(events.get(events.size() - 1).position())));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            subscriptions.forEach(Subscription::close);
+            eventStore.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(EVENTS)
+    public void persistAndDeliver(StoreState state) throws Exception {
+        Future<Void> result = null;
+
+        for (int i = 0; i < EVENTS; i++) {
+            result = state.eventStore.persist("customer", new Event("created", UUID.randomUUID(), 1, "{ \"name\" : \"ACME, Inc.\" }"));
+        }
+        result.get();
+
+        state.written += EVENTS;
+
+        for (AtomicLong position : state.delivered) {
+            while (position.get() < state.written) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
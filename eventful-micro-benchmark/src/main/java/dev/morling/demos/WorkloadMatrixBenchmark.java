@@ -0,0 +1,194 @@
+/*
+ *  Copyright 2022 The original authors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package dev.morling.demos;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import dev.morling.eventful.store.DuplicateVersionException;
+import dev.morling.eventful.store.Event;
+import dev.morling.eventful.store.InconsistentVersionException;
+import dev.morling.eventful.store.SqliteEventStore;
+
+/**
+ * A mixed workload of reads and synchronous writes against a store preloaded
+ * with {@value #AGGREGATES} aggregates for reading and as many for writing,
+ * parameterized over the payload size, the number of events per aggregate
+ * read, the number of stream types the
+ * aggregates are spread across, the share of reads and the share of writes
+ * conflicting with an existing version. Each method runs with a different
+ * number of concurrent clients and reports both throughput and the latency
+ * distribution of single operations. As the writes go to aggregates of their
+ * own, the aggregates read keep their length throughout the run.
+ * <p>
+ * The full matrix takes long to run; narrow it down with {@code -p}, e.g.
+ * {@code -p payloadSize=512 -p streamTypes=1}, and save the results with
+ * {@code -rf json} for comparing them via {@link CompareResults}.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WorkloadMatrixBenchmark {
+
+    private static final int AGGREGATES = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class StoreState {
+
+        @Param({ "64", "512", "4096" })
+        int payloadSize;
+
+        @Param({ "1", "10", "100" })
+        int streamLength;
+
+        @Param({ "1", "4" })
+        int streamTypes;
+
+        @Param({ "0", "0.5", "0.9" })
+        double readRatio;
+
+        @Param({ "0", "0.05" })
+        double conflictRate;
+
+        SqliteEventStore eventStore;
+        UUID[] readIds;
+        UUID[] writeIds;
+        AtomicLongArray versions;
+        String payload;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            eventStore = new SqliteEventStore();
+            for (int i = 0; i < streamTypes; i++) {
+                eventStore.initialize(streamType(i));
+            }
+
+            payload = payload(payloadSize);
+            readIds = new UUID[AGGREGATES];
+            writeIds = new UUID[AGGREGATES];
+            versions = new AtomicLongArray(AGGREGATES);
+
+            Future<Void> result = null;
+            for (int i = 0; i < AGGREGATES; i++) {
+                readIds[i] = UUID.randomUUID();
+
+                List<Event> events = new ArrayList<>(streamLength);
+                for (int version = 1; version <= streamLength; version++) {
+                    events.add(new Event(version == 1 ? "created" : "contact-person-added", readIds[i], version, payload));
+                }
+
+                eventStore.persistAll(streamTypeOf(i), events);
+
+                writeIds[i] = UUID.randomUUID();
+                result = eventStore.persist(streamTypeOf(i), new Event("created", writeIds[i], 1, payload));
+                versions.set(i, 1);
+            }
+            result.get();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            eventStore.close();
+        }
+
+        String streamTypeOf(int aggregate) {
+            return streamType(aggregate % streamTypes);
+        }
+
+        private static String streamType(int index) {
+            return "customer_" + index;
+        }
+
+        private static String payload(int size) {
+            StringBuilder payload = new StringBuilder("{ \"name\" : \"ACME, Inc.\", \"notes\" : \"");
+            while (payload.length() < size - 3) {
+                payload.append('x');
+            }
+
+            return payload.append("\" }").toString();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            random = new SplittableRandom(Thread.currentThread().threadId());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object singleClient(StoreState store, ClientState client) throws Exception {
+        return operation(store, client);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object fourClients(StoreState store, ClientState client) throws Exception {
+        return operation(store, client);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object sixteenClients(StoreState store, ClientState client) throws Exception {
+        return operation(store, client);
+    }
+
+    private Object operation(StoreState store, ClientState client) throws Exception {
+        int aggregate = client.random.nextInt(AGGREGATES);
+        String streamType = store.streamTypeOf(aggregate);
+
+        if (client.random.nextDouble() < store.readRatio) {
+            return store.eventStore.events(streamType, store.readIds[aggregate]);
+        }
+
+        // a conflicting write re-uses the current version of the aggregate
+        long version = client.random.nextDouble() < store.conflictRate ? store.versions.get(aggregate) : store.versions.incrementAndGet(aggregate);
+
+        try {
+            return store.eventStore.persist(streamType, new Event("contact-person-added", store.writeIds[aggregate], version, store.payload)).get();
+        }
+        catch (ExecutionException e) {
+            // concurrent clients may also race for the versions of one aggregate
+            if (e.getCause() instanceof DuplicateVersionException || e.getCause() instanceof InconsistentVersionException) {
+                return e;
+            }
+
+            throw e;
+        }
+    }
+}